@@ -0,0 +1,313 @@
+package org.scd.business.analysis;
+
+import org.scd.business.model.Circuit;
+import org.scd.business.simulation.CompiledCircuit;
+import org.scd.business.simulation.CompiledEvaluator;
+import org.scd.business.simulation.TruthTableLayout;
+
+import java.util.Arrays;
+
+import static org.scd.business.simulation.CompiledCircuit.*;
+
+
+/**
+ * And-inverter graph: combinational logic as two-input AND nodes whose
+ * edges may be complemented.
+ *
+ * Signals are literals, {@code 2 * node + complement}. Node 0 is constant
+ * false, so literal {@link #FALSE} is 0 and {@link #TRUE} is 1; nodes 1 to
+ * {@code inputCount} are the inputs, and AND nodes follow in the order they
+ * were created, which is a topological order. The whole graph is one
+ * {@code int[]} holding two fanin literals per node, 8 bytes per node.
+ *
+ * {@link #and(int, int)} folds constants and trivial cases and looks the
+ * pair of fanins up in a structural hash table before creating a node, so
+ * structurally identical logic is built once. OR and NOT cost nothing extra:
+ * NOT flips the complement bit, OR is a complemented AND of complements.
+ */
+public final class Aig {
+
+    public static final int FALSE = 0;
+    public static final int TRUE = 1;
+
+    private static final int UNDETERMINED = -1;
+
+    private final int inputCount;
+    private int nodeCount;
+    private int[] fanins;        // 2 literals per node; unused for the constant and inputs
+    private int[] table;         // structural hash: AND node per bucket, 0 = empty
+    private int tableMask;
+    private int[] outputs = new int[4];
+    private int outputCount;
+
+    public Aig(int inputCount) {
+        this.inputCount = inputCount;
+        this.nodeCount = inputCount + 1;
+        int capacity = Math.max(16, Integer.highestOneBit(nodeCount) * 2);
+        fanins = new int[capacity * 2];
+        table = new int[capacity * 2];
+        tableMask = table.length - 1;
+    }
+
+    /**
+     * Converts the current structure of a circuit; see {@link #of(TruthTableLayout)}.
+     */
+    public static Aig of(Circuit circuit) {
+        return of(TruthTableLayout.of(CompiledCircuit.compile(circuit)));
+    }
+
+    /**
+     * Converts the outputs of a combinational circuit. Inputs and outputs
+     * are the columns of its truth table; as there, an undetermined gate
+     * output reads as 0 and an LED lights only on a known 1.
+     *
+     * @throws IllegalArgumentException if the circuit has feedback, clocks
+     *                                  or storage elements
+     */
+    public static Aig of(TruthTableLayout layout) {
+        CompiledCircuit netlist = layout.getNetlist();
+        String name = netlist.getCircuit().getCircuitName();
+        if (netlist.getFeedbackStart() < netlist.getNodeCount()) {
+            throw new IllegalArgumentException("Circuit " + name + " has feedback loops and is not combinational");
+        }
+
+        Aig aig = new Aig(layout.getInputCount());
+        int nodeCount = netlist.getNodeCount();
+        int[] value = new int[nodeCount];
+        int[] slotValue = new int[nodeCount * 2];
+        Arrays.fill(slotValue, Integer.MIN_VALUE);
+        for (int j = 0; j < layout.getInputCount(); j++) {
+            int node = layout.getInputNode(j);
+            if (layout.getInputSlot(j) < 0) value[node] = aig.input(j);
+            else slotValue[2 * node + layout.getInputSlot(j)] = aig.input(j);
+        }
+
+        // Slots that are neither wired nor inputs keep the value they have in the model
+        CompiledEvaluator state = new CompiledEvaluator(netlist);
+        state.load();
+
+        for (int i = 0; i < nodeCount; i++) {
+            switch (netlist.getType(i)) {
+                case SWITCH:
+                    break; // every switch is a layout input
+                case AND:
+                case OR: {
+                    int a = slot(netlist, state, slotValue, value, i, 0);
+                    int b = slot(netlist, state, slotValue, value, i, 1);
+                    if (a == UNDETERMINED || b == UNDETERMINED) value[i] = UNDETERMINED;
+                    else value[i] = netlist.getType(i) == AND ? aig.and(a, b) : aig.or(a, b);
+                    break;
+                }
+                case NOT: {
+                    int a = slot(netlist, state, slotValue, value, i, 0);
+                    value[i] = a == UNDETERMINED ? UNDETERMINED : not(a);
+                    break;
+                }
+                case LED: {
+                    int a = slot(netlist, state, slotValue, value, i, 0);
+                    value[i] = a == UNDETERMINED ? FALSE : a;
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Circuit " + name + " is sequential and not combinational");
+            }
+        }
+
+        for (int k = 0; k < layout.getOutputCount(); k++) {
+            int literal = value[layout.getOutputNode(k)];
+            aig.addOutput(literal == UNDETERMINED ? FALSE : literal);
+        }
+        return aig;
+    }
+
+    private static int slot(CompiledCircuit netlist, CompiledEvaluator state, int[] slotValue, int[] value,
+                            int node, int slot) {
+        int s = netlist.getSource(node, slot);
+        if (s >= 0) return value[s];
+        if (s == MISSING) return FALSE;
+        if (slotValue[2 * node + slot] != Integer.MIN_VALUE) return slotValue[2 * node + slot];
+        switch (state.input(node, slot)) {
+            case LOW: return FALSE;
+            case HIGH: return TRUE;
+            default: return UNDETERMINED;
+        }
+    }
+
+    /**
+     * @return literal of input {@code j}
+     */
+    public int input(int j) {
+        if (j < 0 || j >= inputCount) {
+            throw new IllegalArgumentException("No input " + j + " among " + inputCount);
+        }
+        return 2 * (j + 1);
+    }
+
+    public static int not(int literal) {
+        return literal ^ 1;
+    }
+
+    public static int node(int literal) {
+        return literal >>> 1;
+    }
+
+    public static boolean isComplemented(int literal) {
+        return (literal & 1) != 0;
+    }
+
+    public int or(int a, int b) {
+        return not(and(not(a), not(b)));
+    }
+
+    /**
+     * @return literal of a AND b, reusing an existing node when there is one
+     */
+    public int and(int a, int b) {
+        if (a > b) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        if (a == FALSE) return FALSE;
+        if (a == TRUE) return b;
+        if (a == b) return a;
+        if (a == not(b)) return FALSE;
+
+        int bucket = hash(a, b) & tableMask;
+        for (int n = table[bucket]; n != 0; n = table[bucket]) {
+            if (fanins[2 * n] == a && fanins[2 * n + 1] == b) return 2 * n;
+            bucket = (bucket + 1) & tableMask;
+        }
+
+        if (2 * (nodeCount + 1) > fanins.length) {
+            grow();
+            return and(a, b);
+        }
+        int n = nodeCount++;
+        fanins[2 * n] = a;
+        fanins[2 * n + 1] = b;
+        table[bucket] = n;
+        return 2 * n;
+    }
+
+    private void grow() {
+        fanins = Arrays.copyOf(fanins, fanins.length * 2);
+
+        // Keep the hash table at most half full
+        table = new int[fanins.length];
+        tableMask = table.length - 1;
+        for (int n = inputCount + 1; n < nodeCount; n++) {
+            int bucket = hash(fanins[2 * n], fanins[2 * n + 1]) & tableMask;
+            while (table[bucket] != 0) {
+                bucket = (bucket + 1) & tableMask;
+            }
+            table[bucket] = n;
+        }
+    }
+
+    private static int hash(int a, int b) {
+        int h = a * 0x9E3779B1 + b * 0x85EBCA6B;
+        return h ^ (h >>> 16);
+    }
+
+    public int xor(int a, int b) {
+        return or(and(a, not(b)), and(not(a), b));
+    }
+
+    /**
+     * Copies the logic of another graph into this one, feeding its inputs
+     * from the given literals. Shared structure is hashed together with the
+     * nodes already here.
+     *
+     * @return the other graph's outputs as literals of this graph
+     */
+    public int[] append(Aig other, int[] inputLiterals) {
+        if (inputLiterals.length != other.inputCount) {
+            throw new IllegalArgumentException("Expected " + other.inputCount + " input literals, got "
+                    + inputLiterals.length);
+        }
+        int[] map = new int[other.nodeCount];
+        map[0] = FALSE;
+        System.arraycopy(inputLiterals, 0, map, 1, other.inputCount);
+        for (int n = other.inputCount + 1; n < other.nodeCount; n++) {
+            map[n] = and(translate(map, other.fanins[2 * n]), translate(map, other.fanins[2 * n + 1]));
+        }
+        int[] result = new int[other.outputCount];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = translate(map, other.outputs[k]);
+        }
+        return result;
+    }
+
+    private static int translate(int[] map, int literal) {
+        return map[literal >>> 1] ^ (literal & 1);
+    }
+
+    /**
+     * Marks a literal as output {@link #getOutputCount()}.
+     */
+    public void addOutput(int literal) {
+        if (outputCount == outputs.length) {
+            outputs = Arrays.copyOf(outputs, outputCount * 2);
+        }
+        outputs[outputCount++] = literal;
+    }
+
+    public int getInputCount() {
+        return inputCount;
+    }
+
+    /**
+     * @return number of nodes, the constant and the inputs included
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getAndCount() {
+        return nodeCount - inputCount - 1;
+    }
+
+    public boolean isAnd(int node) {
+        return node > inputCount;
+    }
+
+    public int getFanin0(int node) {
+        return fanins[2 * node];
+    }
+
+    public int getFanin1(int node) {
+        return fanins[2 * node + 1];
+    }
+
+    public int getOutputCount() {
+        return outputCount;
+    }
+
+    public int getOutput(int output) {
+        return outputs[output];
+    }
+
+    /**
+     * Simulates 64 input patterns at once, one per bit.
+     *
+     * @param inputWords one word per input
+     * @return one word per output
+     */
+    public long[] simulate(long[] inputWords) {
+        long[] value = new long[nodeCount];
+        System.arraycopy(inputWords, 0, value, 1, inputCount);
+        for (int n = inputCount + 1; n < nodeCount; n++) {
+            value[n] = literalValue(value, fanins[2 * n]) & literalValue(value, fanins[2 * n + 1]);
+        }
+        long[] result = new long[outputCount];
+        for (int k = 0; k < outputCount; k++) {
+            result[k] = literalValue(value, outputs[k]);
+        }
+        return result;
+    }
+
+    private static long literalValue(long[] value, int literal) {
+        return isComplemented(literal) ? ~value[literal >>> 1] : value[literal >>> 1];
+    }
+}
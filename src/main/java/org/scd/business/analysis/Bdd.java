@@ -0,0 +1,292 @@
+package org.scd.business.analysis;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Reduced ordered binary decision diagrams over a fixed number of variables.
+ *
+ * Nodes are rows of three parallel {@code int} arrays (variable, low child,
+ * high child) and are referred to by their index; {@link #ZERO} and
+ * {@link #ONE} are the terminals. Every node is created through a unique
+ * table, an open-addressed hash over (variable, low, high), so no two nodes
+ * describe the same function: two functions are equal exactly when their
+ * indices are equal, and a tautology is {@link #ONE}.
+ *
+ * All operations are built on if-then-else, whose results are remembered in
+ * a direct-mapped computed table so shared subproblems are solved once.
+ * Variable {@code 0} is at the top of every diagram; which circuit input gets
+ * which variable is up to the caller (see {@link CircuitBdd}).
+ *
+ * Nodes are never freed. A manager refuses to grow past its node limit with
+ * an {@link IllegalStateException} rather than running out of memory on a
+ * function with no compact diagram, such as a large multiplier.
+ */
+public final class Bdd {
+
+    public static final int ZERO = 0;
+    public static final int ONE = 1;
+
+    /** Default limit on the number of nodes, about 80 MB of tables. */
+    public static final int DEFAULT_MAX_NODES = 1 << 22;
+
+    private static final int CACHE_SIZE = 1 << 16;
+
+    private final int variableCount;
+    private final int maxNodes;
+
+    private int[] var;
+    private int[] low;
+    private int[] high;
+    private int nodeCount;
+
+    private int[] unique;       // node index per bucket, 0 = empty
+    private int uniqueMask;
+
+    private final int[] cacheF = new int[CACHE_SIZE];
+    private final int[] cacheG = new int[CACHE_SIZE];
+    private final int[] cacheH = new int[CACHE_SIZE];
+    private final int[] cacheResult = new int[CACHE_SIZE];
+
+    public Bdd(int variableCount) {
+        this(variableCount, DEFAULT_MAX_NODES);
+    }
+
+    public Bdd(int variableCount, int maxNodes) {
+        if (variableCount < 0) {
+            throw new IllegalArgumentException("Variable count must not be negative, got " + variableCount);
+        }
+        this.variableCount = variableCount;
+        this.maxNodes = maxNodes;
+
+        int capacity = 1024;
+        var = new int[capacity];
+        low = new int[capacity];
+        high = new int[capacity];
+        unique = new int[capacity * 2];
+        uniqueMask = unique.length - 1;
+        Arrays.fill(cacheF, -1);
+
+        // Terminals sit below every variable
+        var[ZERO] = variableCount;
+        var[ONE] = variableCount;
+        low[ONE] = high[ONE] = ONE;
+        nodeCount = 2;
+    }
+
+    public int getVariableCount() {
+        return variableCount;
+    }
+
+    /**
+     * @return number of nodes created so far, terminals included
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the function that is true exactly when the variable is
+     */
+    public int variable(int v) {
+        if (v < 0 || v >= variableCount) {
+            throw new IllegalArgumentException("No variable " + v + " among " + variableCount);
+        }
+        return mk(v, ZERO, ONE);
+    }
+
+    /**
+     * @return the variable tested at the root of a node, or
+     *         {@link #getVariableCount()} for a terminal
+     */
+    public int getVariable(int f) {
+        return var[f];
+    }
+
+    public int getLow(int f) {
+        return low[f];
+    }
+
+    public int getHigh(int f) {
+        return high[f];
+    }
+
+    public int not(int f) {
+        return ite(f, ZERO, ONE);
+    }
+
+    public int and(int f, int g) {
+        return ite(f, g, ZERO);
+    }
+
+    public int or(int f, int g) {
+        return ite(f, ONE, g);
+    }
+
+    public int xor(int f, int g) {
+        return ite(f, not(g), g);
+    }
+
+    /**
+     * @return the function "if f then g else h"
+     */
+    public int ite(int f, int g, int h) {
+        // Terminal cases
+        if (f == ONE) return g;
+        if (f == ZERO) return h;
+        if (g == h) return g;
+        if (g == ONE && h == ZERO) return f;
+
+        int slot = hash(f, g, h) & (CACHE_SIZE - 1);
+        if (cacheF[slot] == f && cacheG[slot] == g && cacheH[slot] == h) {
+            return cacheResult[slot];
+        }
+
+        int top = Math.min(var[f], Math.min(var[g], var[h]));
+        int r0 = ite(cofactor(f, top, false), cofactor(g, top, false), cofactor(h, top, false));
+        int r1 = ite(cofactor(f, top, true), cofactor(g, top, true), cofactor(h, top, true));
+        int result = mk(top, r0, r1);
+
+        cacheF[slot] = f;
+        cacheG[slot] = g;
+        cacheH[slot] = h;
+        cacheResult[slot] = result;
+        return result;
+    }
+
+    private int cofactor(int f, int v, boolean value) {
+        if (var[f] != v) return f;
+        return value ? high[f] : low[f];
+    }
+
+    /**
+     * Returns the node for (v ? hi : lo), creating it only if the unique
+     * table does not already hold it.
+     */
+    private int mk(int v, int lo, int hi) {
+        if (lo == hi) return lo;
+
+        int bucket = hash(v, lo, hi) & uniqueMask;
+        for (int n = unique[bucket]; n != 0; n = unique[bucket]) {
+            if (var[n] == v && low[n] == lo && high[n] == hi) return n;
+            bucket = (bucket + 1) & uniqueMask;
+        }
+
+        if (nodeCount == maxNodes) {
+            throw new IllegalStateException("BDD exceeds " + maxNodes + " nodes");
+        }
+        if (nodeCount == var.length) {
+            grow();
+            return mk(v, lo, hi);
+        }
+        int n = nodeCount++;
+        var[n] = v;
+        low[n] = lo;
+        high[n] = hi;
+        unique[bucket] = n;
+        return n;
+    }
+
+    private void grow() {
+        int capacity = var.length * 2;
+        var = Arrays.copyOf(var, capacity);
+        low = Arrays.copyOf(low, capacity);
+        high = Arrays.copyOf(high, capacity);
+
+        // Keep the unique table at most half full
+        unique = new int[capacity * 2];
+        uniqueMask = unique.length - 1;
+        for (int n = 2; n < nodeCount; n++) {
+            int bucket = hash(var[n], low[n], high[n]) & uniqueMask;
+            while (unique[bucket] != 0) {
+                bucket = (bucket + 1) & uniqueMask;
+            }
+            unique[bucket] = n;
+        }
+    }
+
+    private static int hash(int a, int b, int c) {
+        int h = a * 0x9E3779B1 + b;
+        h = h * 0x85EBCA6B + c;
+        return h ^ (h >>> 15);
+    }
+
+    /**
+     * @return number of assignments of all variables for which f is true
+     */
+    public BigInteger satCount(int f) {
+        return count(f, new HashMap<>()).shiftLeft(var[f]);
+    }
+
+    /**
+     * Counts the assignments of the variables from {@code var[f]} down.
+     */
+    private BigInteger count(int f, Map<Integer, BigInteger> memo) {
+        if (f == ZERO) return BigInteger.ZERO;
+        if (f == ONE) return BigInteger.ONE;
+        BigInteger known = memo.get(f);
+        if (known != null) return known;
+
+        BigInteger result = count(low[f], memo).shiftLeft(var[low[f]] - var[f] - 1)
+                .add(count(high[f], memo).shiftLeft(var[high[f]] - var[f] - 1));
+        memo.put(f, result);
+        return result;
+    }
+
+    /**
+     * @return one assignment for which f is true, variables that do not
+     *         matter set to false; null if f is unsatisfiable
+     */
+    public boolean[] satisfyingAssignment(int f) {
+        if (f == ZERO) return null;
+        boolean[] assignment = new boolean[variableCount];
+        while (f != ONE) {
+            if (low[f] != ZERO) {
+                f = low[f];
+            } else {
+                assignment[var[f]] = true;
+                f = high[f];
+            }
+        }
+        return assignment;
+    }
+
+    /**
+     * @return value of f under a complete assignment
+     */
+    public boolean evaluate(int f, boolean[] assignment) {
+        while (f > ONE) {
+            f = assignment[var[f]] ? high[f] : low[f];
+        }
+        return f == ONE;
+    }
+
+    /**
+     * @return number of nodes reachable from f, terminals included
+     */
+    public int size(int f) {
+        boolean[] seen = new boolean[nodeCount];
+        int[] stack = new int[nodeCount];
+        int top = 0;
+        int size = 0;
+        stack[top++] = f;
+        seen[f] = true;
+        while (top > 0) {
+            int n = stack[--top];
+            size++;
+            if (n <= ONE) continue;
+            if (!seen[low[n]]) {
+                seen[low[n]] = true;
+                stack[top++] = low[n];
+            }
+            if (!seen[high[n]]) {
+                seen[high[n]] = true;
+                stack[top++] = high[n];
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,225 @@
+package org.scd.business.analysis;
+
+import org.scd.business.simulation.TruthTableLayout;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+
+/**
+ * The outputs of a combinational circuit as {@link Bdd} nodes.
+ *
+ * Inputs and outputs are those of the circuit's truth table (see
+ * {@link TruthTableLayout}), so every query answers the same question as a
+ * scan of that table would, without enumerating its rows: tautology,
+ * satisfiability and equality are constant-time checks on the canonical
+ * nodes, and minterms are counted over the diagram.
+ *
+ * Diagram size depends heavily on the variable order. {@link VariableOrder#DEPTH_FIRST}
+ * numbers inputs in the order a depth-first walk from the outputs reaches
+ * them, visiting the deeper fanin of each gate first, which keeps inputs
+ * that meet early in the logic close together in the order.
+ *
+ * The diagrams are built from the circuit's {@link Aig}, so undetermined
+ * values are handled as in the truth table and circuits with feedback,
+ * clocks or storage elements are rejected.
+ */
+public class CircuitBdd {
+
+    /** How circuit inputs are assigned to BDD variables. */
+    public enum VariableOrder {
+        /** Truth table column order. */
+        LAYOUT,
+        /** Depth-first from the outputs, deeper fanin first. */
+        DEPTH_FIRST
+    }
+
+    private final Bdd bdd;
+    private final TruthTableLayout layout;
+    private final int[] variableOfInput;
+    private final int[] outputs;
+
+    /**
+     * Builds the outputs of a layout in an existing manager, so functions of
+     * several circuits over the same variables can be compared.
+     *
+     * @param variableOfInput BDD variable of each layout input
+     */
+    public CircuitBdd(Bdd bdd, TruthTableLayout layout, int[] variableOfInput) {
+        this(bdd, layout, Aig.of(layout), variableOfInput);
+    }
+
+    private CircuitBdd(Bdd bdd, TruthTableLayout layout, Aig aig, int[] variableOfInput) {
+        if (variableOfInput.length != layout.getInputCount()) {
+            throw new IllegalArgumentException("Expected a variable for each of "
+                    + layout.getInputCount() + " inputs, got " + variableOfInput.length);
+        }
+        this.bdd = bdd;
+        this.layout = layout;
+        this.variableOfInput = variableOfInput.clone();
+        this.outputs = build(aig);
+    }
+
+    public static CircuitBdd build(TruthTableLayout layout) {
+        return build(layout, VariableOrder.DEPTH_FIRST);
+    }
+
+    public static CircuitBdd build(TruthTableLayout layout, VariableOrder order) {
+        Aig aig = Aig.of(layout);
+        int[] variables = order == VariableOrder.LAYOUT ? layoutOrder(layout) : depthFirstOrder(aig);
+        return new CircuitBdd(new Bdd(layout.getInputCount()), layout, aig, variables);
+    }
+
+    private static int[] layoutOrder(TruthTableLayout layout) {
+        int[] variables = new int[layout.getInputCount()];
+        for (int j = 0; j < variables.length; j++) {
+            variables[j] = j;
+        }
+        return variables;
+    }
+
+    /**
+     * Numbers the inputs in first-reached order of a depth-first walk from
+     * each output, deeper fanin first; unreached inputs come last.
+     */
+    static int[] depthFirstOrder(Aig aig) {
+        int nodeCount = aig.getNodeCount();
+        int[] depth = new int[nodeCount];
+        for (int n = 0; n < nodeCount; n++) {
+            if (aig.isAnd(n)) {
+                depth[n] = 1 + Math.max(depth[Aig.node(aig.getFanin0(n))], depth[Aig.node(aig.getFanin1(n))]);
+            }
+        }
+
+        int[] variables = new int[aig.getInputCount()];
+        Arrays.fill(variables, -1);
+        int next = 0;
+        boolean[] visited = new boolean[nodeCount];
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        for (int k = 0; k < aig.getOutputCount(); k++) {
+            stack.push(Aig.node(aig.getOutput(k)));
+            while (!stack.isEmpty()) {
+                int n = stack.pop();
+                if (visited[n]) continue;
+                visited[n] = true;
+                if (!aig.isAnd(n)) {
+                    if (n > 0) variables[n - 1] = next++;
+                    continue;
+                }
+                int a = Aig.node(aig.getFanin0(n));
+                int b = Aig.node(aig.getFanin1(n));
+                // Pushed last so the deeper fanin is explored first
+                if (depth[a] >= depth[b]) {
+                    stack.push(b);
+                    stack.push(a);
+                } else {
+                    stack.push(a);
+                    stack.push(b);
+                }
+            }
+        }
+        for (int j = 0; j < variables.length; j++) {
+            if (variables[j] < 0) variables[j] = next++;
+        }
+        return variables;
+    }
+
+    private int[] build(Aig aig) {
+        int[] function = new int[aig.getNodeCount()];
+        function[0] = Bdd.ZERO;
+        for (int j = 0; j < aig.getInputCount(); j++) {
+            function[j + 1] = bdd.variable(variableOfInput[j]);
+        }
+        for (int n = aig.getInputCount() + 1; n < function.length; n++) {
+            function[n] = bdd.and(literal(function, aig.getFanin0(n)), literal(function, aig.getFanin1(n)));
+        }
+
+        int[] result = new int[aig.getOutputCount()];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = literal(function, aig.getOutput(k));
+        }
+        return result;
+    }
+
+    private int literal(int[] function, int literal) {
+        int f = function[Aig.node(literal)];
+        return Aig.isComplemented(literal) ? bdd.not(f) : f;
+    }
+
+    public Bdd getBdd() {
+        return bdd;
+    }
+
+    public TruthTableLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * @return BDD variable assigned to a layout input
+     */
+    public int getVariable(int input) {
+        return variableOfInput[input];
+    }
+
+    /**
+     * @return BDD node of an output
+     */
+    public int getOutput(int output) {
+        return outputs[output];
+    }
+
+    /**
+     * @return true if the output is 1 for every input combination
+     */
+    public boolean isTautology(int output) {
+        return outputs[output] == Bdd.ONE;
+    }
+
+    /**
+     * @return true if the output is 1 for some input combination
+     */
+    public boolean isSatisfiable(int output) {
+        return outputs[output] != Bdd.ZERO;
+    }
+
+    /**
+     * @return true if two outputs agree on every input combination
+     */
+    public boolean isEquivalent(int output, int other) {
+        return outputs[output] == outputs[other];
+    }
+
+    /**
+     * @return number of truth table rows in which the output is 1
+     */
+    public BigInteger countMinterms(int output) {
+        return bdd.satCount(outputs[output]);
+    }
+
+    /**
+     * @return input values, in layout order, for which the output is 1, or
+     *         null if there are none
+     */
+    public boolean[] findSatisfyingInputs(int output) {
+        boolean[] assignment = bdd.satisfyingAssignment(outputs[output]);
+        if (assignment == null) return null;
+        boolean[] inputs = new boolean[variableOfInput.length];
+        for (int j = 0; j < inputs.length; j++) {
+            inputs[j] = assignment[variableOfInput[j]];
+        }
+        return inputs;
+    }
+
+    /**
+     * @return total number of nodes of all outputs' diagrams, shared nodes
+     *         counted once per output
+     */
+    public int getSize() {
+        int size = 0;
+        for (int f : outputs) {
+            size += bdd.size(f);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,341 @@
+package org.scd.business.analysis;
+
+import org.scd.business.model.*;
+import org.scd.business.simulation.LevelizedEvaluator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Structural optimization of a circuit before simulation.
+ *
+ * The pass builds a new {@link Circuit} and leaves the one being edited
+ * untouched. Combinational gates are visited in topological order and each
+ * is rewritten into a signal of the new circuit:
+ * <ul>
+ *   <li>constant inputs are propagated: an undetermined input makes the gate
+ *       undetermined, a 1 into an AND or a 0 into an OR leaves the other
+ *       input, and a 0 into an AND or a 1 into an OR gives a constant when
+ *       the other input can never be undetermined;</li>
+ *   <li>NOT of a NOT is its inner input, and an AND or OR of a signal with
+ *       itself is that signal;</li>
+ *   <li>what remains is hash-consed on (type, inputs), inputs of AND and OR
+ *       in either order, so identical gates are created once.</li>
+ * </ul>
+ * Gates whose output then reaches no LED are dropped. The rewrites follow
+ * the simulator's three-valued rules, so every LED of the optimized circuit
+ * shows what it would in the original for the same switch positions.
+ *
+ * Constants are the values set directly on unconnected gate inputs and the
+ * 0 carried from missing sources. Storage elements, subcircuit instances and
+ * gates on or behind a feedback loop are copied as they are, only their
+ * inputs are rewired. Surviving components keep their ids.
+ */
+public class CircuitOptimizer {
+
+    /** A value in the optimized circuit: a constant or an output port. */
+    private static final class Signal {
+        final Integer componentId;  // null for a constant
+        final int outputIndex;
+        final Integer constant;     // 0, 1, or null for undetermined
+        final boolean binary;       // never undetermined
+
+        private Signal(Integer componentId, int outputIndex, Integer constant, boolean binary) {
+            this.componentId = componentId;
+            this.outputIndex = outputIndex;
+            this.constant = constant;
+            this.binary = binary;
+        }
+
+        static Signal constant(Integer value) {
+            return new Signal(null, 0, value, value != null);
+        }
+
+        static Signal port(int componentId, int outputIndex, boolean binary) {
+            return new Signal(componentId, outputIndex, null, binary);
+        }
+
+        boolean isConstant() {
+            return componentId == null;
+        }
+
+        boolean is(int value) {
+            return isConstant() && constant != null && constant == value;
+        }
+
+        String key() {
+            return isConstant() ? "k" + constant : componentId + "." + outputIndex;
+        }
+    }
+
+    private Circuit source;
+    private Circuit target;
+    private Map<Integer, Signal> signals;     // original component id -> its value in the new circuit
+    private Map<String, Signal> gatesByKey;  // hash-consing table
+    private Map<Integer, Signal> notInputs;  // new NOT gate id -> its input
+    private int nextConnectorId;
+    private int folded;
+    private int collapsed;
+    private int merged;
+
+    /**
+     * Optimizes a circuit.
+     *
+     * @return the optimized copy and what was removed
+     */
+    public OptimizationResult optimize(Circuit circuit) {
+        source = circuit;
+        target = new Circuit(circuit.getCircuitId(), circuit.getCircuitName());
+        signals = new HashMap<>();
+        gatesByKey = new HashMap<>();
+        notInputs = new HashMap<>();
+        nextConnectorId = 1;
+        for (Connector connector : circuit.getConnectors()) {
+            nextConnectorId = Math.max(nextConnectorId, connector.getConnectorId() + 1);
+        }
+        folded = collapsed = merged = 0;
+
+        LevelizedEvaluator levelized = new LevelizedEvaluator(circuit);
+        Set<Component> rewritten = new HashSet<>();
+        for (List<Component> level : levelized.getLevels()) {
+            for (Component component : level) {
+                if (component instanceof Gate && !(component instanceof Sequential)) {
+                    rewrite((Gate) component);
+                    rewritten.add(component);
+                }
+            }
+        }
+
+        // Everything else is copied; inputs are wired once every signal is known
+        List<Component> copied = new ArrayList<>();
+        for (Switch switchComp : circuit.getSwitches()) {
+            target.addSwitch(new Switch(switchComp, switchComp.getComponentId(), 0, 0));
+        }
+        for (Clock clock : circuit.getClocks()) {
+            target.addClock(new Clock(clock, clock.getComponentId(), 0, 0));
+        }
+        for (Gate gate : circuit.getGates()) {
+            if (!rewritten.contains(gate)) {
+                Gate copy = copyOf(gate);
+                target.addGate(copy);
+                copied.add(copy);
+            }
+        }
+        for (SubcircuitInstance instance : circuit.getSubcircuits()) {
+            SubcircuitInstance copy = new SubcircuitInstance(instance, instance.getComponentId(), 0, 0);
+            target.addSubcircuit(copy);
+            copied.add(copy);
+        }
+        for (LED led : circuit.getLeds()) {
+            LED copy = new LED(led, led.getComponentId(), 0, 0);
+            target.addLED(copy);
+            copied.add(copy);
+        }
+        for (Component component : copied) {
+            List<Input> inputs = inputsOf(component);
+            for (int slot = 0; slot < inputs.size(); slot++) {
+                Input original = inputsOf(source.findComponentById(component.getComponentId())).get(slot);
+                wire(component, inputs.get(slot), slot, inputSignal(component.getComponentId(), slot, original));
+            }
+        }
+
+        int dead = removeDeadGates();
+        return new OptimizationResult(target, circuit.getGates().size(), folded, collapsed, merged, dead);
+    }
+
+    private void rewrite(Gate gate) {
+        Signal a = inputSignal(gate.getComponentId(), 0, gate.getInput1());
+        String type = gate.getGateType();
+
+        if (type.equals("NOT")) {
+            if (a.isConstant()) {
+                signals.put(gate.getComponentId(), Signal.constant(a.constant == null ? null : 1 - a.constant));
+                folded++;
+            } else if (notInputs.containsKey(a.componentId)) {
+                signals.put(gate.getComponentId(), notInputs.get(a.componentId));
+                collapsed++;
+            } else {
+                emit(gate, a, null);
+            }
+            return;
+        }
+
+        Signal b = inputSignal(gate.getComponentId(), 1, gate.getInput2());
+        boolean and = type.equals("AND");
+        int identity = and ? 1 : 0;
+        Signal result = null;
+        if ((a.isConstant() && a.constant == null) || (b.isConstant() && b.constant == null)) {
+            result = Signal.constant(null);
+        } else if (a.is(identity)) {
+            result = b;
+        } else if (b.is(identity)) {
+            result = a;
+        } else if ((a.is(1 - identity) && b.binary) || (b.is(1 - identity) && a.binary)) {
+            result = Signal.constant(1 - identity);
+        }
+        if (result != null) {
+            signals.put(gate.getComponentId(), result);
+            folded++;
+        } else if (a.key().equals(b.key())) {
+            signals.put(gate.getComponentId(), a);
+            merged++;
+        } else {
+            emit(gate, a, b);
+        }
+    }
+
+    /**
+     * Adds a gate for the given inputs to the new circuit, or reuses an
+     * identical one.
+     */
+    private void emit(Gate gate, Signal a, Signal b) {
+        String first = a.key();
+        String second = b == null ? "" : b.key();
+        if (b != null && first.compareTo(second) > 0) {
+            String swap = first;
+            first = second;
+            second = swap;
+        }
+        String key = gate.getGateType() + "(" + first + "," + second + ")";
+        Signal existing = gatesByKey.get(key);
+        if (existing != null) {
+            signals.put(gate.getComponentId(), existing);
+            merged++;
+            return;
+        }
+
+        Gate copy = copyOf(gate);
+        target.addGate(copy);
+        wire(copy, copy.getInput1(), 0, a);
+        if (b != null) {
+            wire(copy, copy.getInput2(), 1, b);
+        }
+        Signal output = Signal.port(copy.getComponentId(), 0, a.binary && (b == null || b.binary));
+        signals.put(gate.getComponentId(), output);
+        gatesByKey.put(key, output);
+        if (b == null) {
+            notInputs.put(copy.getComponentId(), a);
+        }
+    }
+
+    /**
+     * @return the value an input of an original component sees: its last
+     *         connector's source, else the value set on the input
+     */
+    private Signal inputSignal(int componentId, int slot, Input input) {
+        Component component = source.findComponentById(componentId);
+        Connector driver = null;
+        for (Connector connector : source.getFaninConnectors(componentId)) {
+            if (slotOf(component, connector.getTargetInputIndex()) == slot) {
+                driver = connector;
+            }
+        }
+        if (driver == null) {
+            return Signal.constant(input != null ? input.getValue() : null);
+        }
+
+        Component driverComponent = source.findComponentById(driver.getSourceComponentId());
+        if (driverComponent == null) {
+            return Signal.constant(0); // missing sources carry 0
+        }
+        Signal known = signals.get(driverComponent.getComponentId());
+        if (known != null) {
+            return known;
+        }
+        boolean binary = driverComponent instanceof Switch || driverComponent instanceof Clock
+                || driverComponent instanceof LED;
+        return Signal.port(driverComponent.getComponentId(), driver.getSourceOutputIndex(), binary);
+    }
+
+    /**
+     * Same input mapping as the simulator: gates use input2 for any index
+     * but 0, LEDs have one input.
+     */
+    private static int slotOf(Component component, int targetInputIndex) {
+        if (component instanceof Gate) return targetInputIndex == 0 ? 0 : 1;
+        if (component instanceof LED) return 0;
+        return targetInputIndex;
+    }
+
+    private static List<Input> inputsOf(Component component) {
+        if (component instanceof Gate) return ((Gate) component).getInputs();
+        if (component instanceof LED) return List.of(((LED) component).getInput());
+        if (component instanceof SubcircuitInstance) return ((SubcircuitInstance) component).getInputs();
+        return List.of();
+    }
+
+    /**
+     * Drives an input of a new component with a signal: a connector for a
+     * port, a directly set value for a constant.
+     */
+    private void wire(Component component, Input input, int slot, Signal signal) {
+        if (signal.isConstant()) {
+            input.setSourceComponentId(null);
+            input.setValue(signal.constant);
+            return;
+        }
+        Connector connector = new Connector(nextConnectorId++, signal.componentId,
+                component.getComponentId(), slot, "#000000");
+        connector.setSourceOutputIndex(signal.outputIndex);
+        target.addConnector(connector);
+        input.setSourceComponentId(signal.componentId);
+        input.setValue(null);
+    }
+
+    private static Gate copyOf(Gate gate) {
+        int id = gate.getComponentId();
+        switch (gate.getGateType()) {
+            case "AND": return new And((And) gate, id, 0, 0);
+            case "OR": return new Or((Or) gate, id, 0, 0);
+            case "NOT": return new Not((Not) gate, id, 0, 0);
+            case "DFF": return new DFlipFlop((DFlipFlop) gate, id, 0, 0);
+            case "LATCH": return new Latch((Latch) gate, id, 0, 0);
+            default:
+                throw new IllegalArgumentException("Unknown gate type: " + gate.getGateType());
+        }
+    }
+
+    /**
+     * Removes the gates of the new circuit from which no LED can be reached.
+     *
+     * @return number of gates removed
+     */
+    private int removeDeadGates() {
+        Set<Integer> live = new HashSet<>();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (LED led : target.getLeds()) {
+            live.add(led.getComponentId());
+            queue.add(led.getComponentId());
+        }
+        while (!queue.isEmpty()) {
+            for (Connector connector : target.getFaninConnectors(queue.poll())) {
+                if (live.add(connector.getSourceComponentId())) {
+                    queue.add(connector.getSourceComponentId());
+                }
+            }
+        }
+
+        List<Gate> gates = new ArrayList<>();
+        Set<Integer> dead = new HashSet<>();
+        for (Gate gate : target.getGates()) {
+            if (live.contains(gate.getComponentId())) gates.add(gate);
+            else dead.add(gate.getComponentId());
+        }
+        List<Connector> connectors = new ArrayList<>();
+        for (Connector connector : target.getConnectors()) {
+            if (!dead.contains(connector.getSourceComponentId())
+                    && !dead.contains(connector.getTargetComponentId())) {
+                connectors.add(connector);
+            }
+        }
+        target.setGates(gates);
+        target.setConnectors(connectors);
+        return dead.size();
+    }
+}
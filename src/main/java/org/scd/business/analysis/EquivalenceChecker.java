@@ -0,0 +1,243 @@
+package org.scd.business.analysis;
+
+import org.scd.business.model.Circuit;
+import org.scd.business.simulation.CompiledCircuit;
+import org.scd.business.simulation.TruthTableLayout;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Proves two combinational circuits equivalent or finds an input vector on
+ * which they differ.
+ *
+ * Circuits are compared through their ports: switch {@code j} of one is
+ * paired with switch {@code j} of the other, and LED {@code k} with LED
+ * {@code k}. Both are converted to {@link Aig}s over shared inputs and
+ * joined into a miter, a single output that is 1 exactly when some LED pair
+ * differs. Then:
+ * <ol>
+ *   <li>if structural hashing already reduced the miter to constant 0, the
+ *       circuits are equivalent;</li>
+ *   <li>random input vectors are simulated 64 at a time across the pool,
+ *       each task drawing from its own split of one {@link SplittableRandom},
+ *       so cheap counterexamples are found without the solver;</li>
+ *   <li>otherwise the miter is encoded into clauses (Tseitin) and handed to
+ *       the {@link SatSolver}: unsatisfiable means equivalent, a model is a
+ *       counterexample.</li>
+ * </ol>
+ */
+public class EquivalenceChecker {
+
+    /** Default number of 64-vector words simulated before the SAT phase. */
+    public static final long DEFAULT_RANDOM_WORDS = 1 << 14;
+
+    /** Default seed, so runs are repeatable. */
+    public static final long DEFAULT_SEED = 0x5DEECE66DL;
+
+    private static final long LEAF_WORDS = 256;
+
+    private final ForkJoinPool pool;
+    private final long randomWords;
+    private final long seed;
+
+    public EquivalenceChecker() {
+        this(ForkJoinPool.commonPool(), DEFAULT_RANDOM_WORDS, DEFAULT_SEED);
+    }
+
+    /**
+     * @param pool pool the random phase runs on
+     * @param randomWords 64-vector words to simulate; 0 goes straight to SAT
+     * @param seed seed of the random vectors
+     */
+    public EquivalenceChecker(ForkJoinPool pool, long randomWords, long seed) {
+        this.pool = pool;
+        this.randomWords = randomWords;
+        this.seed = seed;
+    }
+
+    /**
+     * Compares the LEDs of two circuits for every combination of their switches.
+     *
+     * @throws IllegalArgumentException if the switch or LED counts differ, or
+     *                                  a circuit is not combinational
+     */
+    public EquivalenceResult check(Circuit original, Circuit revised) {
+        Aig a = Aig.of(TruthTableLayout.ofPorts(CompiledCircuit.compile(original)));
+        Aig b = Aig.of(TruthTableLayout.ofPorts(CompiledCircuit.compile(revised)));
+        if (a.getInputCount() != b.getInputCount()) {
+            throw new IllegalArgumentException("Circuits have " + a.getInputCount() + " and "
+                    + b.getInputCount() + " switches");
+        }
+        if (a.getOutputCount() != b.getOutputCount()) {
+            throw new IllegalArgumentException("Circuits have " + a.getOutputCount() + " and "
+                    + b.getOutputCount() + " LEDs");
+        }
+
+        // Miter outputs: the LEDs of a, the LEDs of b, then whether any pair differs
+        int inputCount = a.getInputCount();
+        int outputCount = a.getOutputCount();
+        Aig miter = new Aig(inputCount);
+        int[] inputs = new int[inputCount];
+        for (int j = 0; j < inputCount; j++) {
+            inputs[j] = miter.input(j);
+        }
+        int[] outputsA = miter.append(a, inputs);
+        int[] outputsB = miter.append(b, inputs);
+        int differ = Aig.FALSE;
+        for (int k = 0; k < outputCount; k++) {
+            differ = miter.or(differ, miter.xor(outputsA[k], outputsB[k]));
+        }
+        for (int k = 0; k < outputCount; k++) miter.addOutput(outputsA[k]);
+        for (int k = 0; k < outputCount; k++) miter.addOutput(outputsB[k]);
+        miter.addOutput(differ);
+
+        if (differ == Aig.FALSE) {
+            return new EquivalenceResult(true, null, List.of(), EquivalenceResult.Method.STRUCTURAL, 0, 0);
+        }
+
+        AtomicLong simulated = new AtomicLong();
+        if (randomWords > 0) {
+            boolean[] vector = pool.invoke(new RandomSearch(miter, new SplittableRandom(seed), randomWords,
+                    new AtomicBoolean(), simulated));
+            if (vector != null) {
+                return counterexample(miter, vector, EquivalenceResult.Method.RANDOM_SIMULATION,
+                        simulated.get() * 64, 0);
+            }
+        }
+
+        SatSolver solver = new SatSolver();
+        int[] variables = encode(miter, Aig.node(differ), solver);
+        solver.addClause(literal(variables, differ));
+        if (!solver.solve()) {
+            return new EquivalenceResult(true, null, List.of(), EquivalenceResult.Method.SAT,
+                    simulated.get() * 64, solver.getConflictCount());
+        }
+        boolean[] vector = new boolean[inputCount];
+        for (int j = 0; j < inputCount; j++) {
+            vector[j] = variables[j + 1] != 0 && solver.getValue(variables[j + 1]);
+        }
+        return counterexample(miter, vector, EquivalenceResult.Method.SAT,
+                simulated.get() * 64, solver.getConflictCount());
+    }
+
+    /**
+     * Tseitin encoding of the cone of one node: a variable per node and, for
+     * each AND node x = a & b, the clauses (!x | a), (!x | b), (x | !a | !b).
+     *
+     * @return variable per node, 0 for nodes outside the cone
+     */
+    private static int[] encode(Aig aig, int root, SatSolver solver) {
+        int[] variables = new int[aig.getNodeCount()];
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        stack.push(root);
+        List<Integer> cone = new ArrayList<>();
+        while (!stack.isEmpty()) {
+            int n = stack.pop();
+            if (variables[n] != 0) continue;
+            variables[n] = solver.newVariable();
+            cone.add(n);
+            if (aig.isAnd(n)) {
+                stack.push(Aig.node(aig.getFanin0(n)));
+                stack.push(Aig.node(aig.getFanin1(n)));
+            }
+        }
+
+        for (int n : cone) {
+            int x = variables[n];
+            if (n == 0) {
+                solver.addClause(-x);
+            } else if (aig.isAnd(n)) {
+                int a = literal(variables, aig.getFanin0(n));
+                int b = literal(variables, aig.getFanin1(n));
+                solver.addClause(-x, a);
+                solver.addClause(-x, b);
+                solver.addClause(x, -a, -b);
+            }
+        }
+        return variables;
+    }
+
+    private static int literal(int[] variables, int aigLiteral) {
+        int v = variables[Aig.node(aigLiteral)];
+        return Aig.isComplemented(aigLiteral) ? -v : v;
+    }
+
+    private static EquivalenceResult counterexample(Aig miter, boolean[] vector, EquivalenceResult.Method method,
+                                                    long patterns, long conflicts) {
+        long[] words = new long[vector.length];
+        for (int j = 0; j < vector.length; j++) {
+            words[j] = vector[j] ? 1 : 0;
+        }
+        long[] outputs = miter.simulate(words);
+        int outputCount = (outputs.length - 1) / 2;
+        List<Integer> differing = new ArrayList<>();
+        for (int k = 0; k < outputCount; k++) {
+            if (((outputs[k] ^ outputs[outputCount + k]) & 1) != 0) {
+                differing.add(k);
+            }
+        }
+        return new EquivalenceResult(false, vector, differing, method, patterns, conflicts);
+    }
+
+    /**
+     * Simulates a share of the random words; returns the first vector found
+     * on which the miter is 1, or null.
+     */
+    private static class RandomSearch extends RecursiveTask<boolean[]> {
+        private final Aig miter;
+        private final SplittableRandom random;
+        private final long words;
+        private final AtomicBoolean found;
+        private final AtomicLong simulated;
+
+        RandomSearch(Aig miter, SplittableRandom random, long words, AtomicBoolean found, AtomicLong simulated) {
+            this.miter = miter;
+            this.random = random;
+            this.words = words;
+            this.found = found;
+            this.simulated = simulated;
+        }
+
+        @Override
+        protected boolean[] compute() {
+            if (words > LEAF_WORDS) {
+                // Split before forking, so each share gets the same stream on every run
+                RandomSearch right = new RandomSearch(miter, random.split(), words / 2, found, simulated);
+                RandomSearch left = new RandomSearch(miter, random, words - words / 2, found, simulated);
+                right.fork();
+                boolean[] result = left.compute();
+                boolean[] other = right.join();
+                return result != null ? result : other;
+            }
+
+            int inputCount = miter.getInputCount();
+            int differ = miter.getOutputCount() - 1;
+            long[] inputs = new long[inputCount];
+            for (long w = 0; w < words && !found.get(); w++) {
+                for (int j = 0; j < inputCount; j++) {
+                    inputs[j] = random.nextLong();
+                }
+                long[] outputs = miter.simulate(inputs);
+                simulated.incrementAndGet();
+                if (outputs[differ] != 0) {
+                    int bit = Long.numberOfTrailingZeros(outputs[differ]);
+                    boolean[] vector = new boolean[inputCount];
+                    for (int j = 0; j < inputCount; j++) {
+                        vector[j] = (inputs[j] >>> bit & 1) != 0;
+                    }
+                    found.set(true);
+                    return vector;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.scd.business.analysis;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Outcome of an {@link EquivalenceChecker} run: either a proof that two
+ * circuits agree on every input combination, or an input vector on which
+ * they differ.
+ */
+public class EquivalenceResult {
+
+    /** What settled the question. */
+    public enum Method {
+        /** The two circuits hashed to the same graph. */
+        STRUCTURAL,
+        /** A random input vector told them apart. */
+        RANDOM_SIMULATION,
+        /** The SAT solver proved equivalence or found the vector. */
+        SAT
+    }
+
+    private final boolean equivalent;
+    private final boolean[] counterexample;
+    private final List<Integer> differingOutputs;
+    private final Method method;
+    private final long randomPatterns;
+    private final long conflicts;
+
+    EquivalenceResult(boolean equivalent, boolean[] counterexample, List<Integer> differingOutputs,
+                      Method method, long randomPatterns, long conflicts) {
+        this.equivalent = equivalent;
+        this.counterexample = counterexample;
+        this.differingOutputs = Collections.unmodifiableList(differingOutputs);
+        this.method = method;
+        this.randomPatterns = randomPatterns;
+        this.conflicts = conflicts;
+    }
+
+    public boolean isEquivalent() {
+        return equivalent;
+    }
+
+    /**
+     * @return switch positions, in switch order, on which the circuits
+     *         differ; null if they are equivalent
+     */
+    public boolean[] getCounterexample() {
+        return counterexample == null ? null : counterexample.clone();
+    }
+
+    /**
+     * @return positions of the LEDs that differ under the counterexample
+     */
+    public List<Integer> getDifferingOutputs() {
+        return differingOutputs;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return random input vectors simulated before the answer was found
+     */
+    public long getRandomPatternCount() {
+        return randomPatterns;
+    }
+
+    /**
+     * @return conflicts the SAT solver needed, 0 if it was not run
+     */
+    public long getConflictCount() {
+        return conflicts;
+    }
+
+    @Override
+    public String toString() {
+        if (equivalent) {
+            return "Equivalent (" + method + ")";
+        }
+        StringBuilder vector = new StringBuilder();
+        for (boolean bit : counterexample) {
+            vector.append(bit ? '1' : '0');
+        }
+        return "Differ on " + vector + " at LEDs " + differingOutputs + " (" + method + ")";
+    }
+}
@@ -0,0 +1,82 @@
+package org.scd.business.analysis;
+
+import org.scd.business.model.Circuit;
+
+
+/**
+ * Outcome of a {@link CircuitOptimizer} pass: the optimized copy of the
+ * circuit and how many gates each rewrite removed.
+ */
+public class OptimizationResult {
+
+    private final Circuit circuit;
+    private final int originalGateCount;
+    private final int foldedConstants;
+    private final int collapsedInversions;
+    private final int mergedDuplicates;
+    private final int deadGates;
+
+    OptimizationResult(Circuit circuit, int originalGateCount, int foldedConstants,
+                       int collapsedInversions, int mergedDuplicates, int deadGates) {
+        this.circuit = circuit;
+        this.originalGateCount = originalGateCount;
+        this.foldedConstants = foldedConstants;
+        this.collapsedInversions = collapsedInversions;
+        this.mergedDuplicates = mergedDuplicates;
+        this.deadGates = deadGates;
+    }
+
+    /**
+     * @return the optimized circuit; a separate object sharing no components
+     *         with the original
+     */
+    public Circuit getCircuit() {
+        return circuit;
+    }
+
+    public int getOriginalGateCount() {
+        return originalGateCount;
+    }
+
+    /**
+     * @return gates removed by all rewrites together
+     */
+    public int getRemovedGateCount() {
+        return originalGateCount - circuit.getGates().size();
+    }
+
+    /**
+     * @return gates replaced by a constant or by one of their inputs
+     */
+    public int getFoldedConstantCount() {
+        return foldedConstants;
+    }
+
+    /**
+     * @return NOT gates removed because they inverted another NOT
+     */
+    public int getCollapsedInversionCount() {
+        return collapsedInversions;
+    }
+
+    /**
+     * @return gates merged into an identical gate on the same inputs
+     */
+    public int getMergedDuplicateCount() {
+        return mergedDuplicates;
+    }
+
+    /**
+     * @return gates removed because their output reaches no LED
+     */
+    public int getDeadGateCount() {
+        return deadGates;
+    }
+
+    @Override
+    public String toString() {
+        return "Removed " + getRemovedGateCount() + " of " + originalGateCount + " gates ("
+                + foldedConstants + " folded, " + collapsedInversions + " double inversions, "
+                + mergedDuplicates + " duplicates, " + deadGates + " dead)";
+    }
+}
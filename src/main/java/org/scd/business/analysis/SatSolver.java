@@ -0,0 +1,450 @@
+package org.scd.business.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Conflict-driven clause-learning SAT solver.
+ *
+ * Clauses are given in DIMACS style: variable {@code v} as {@code v}, its
+ * negation as {@code -v}, variables numbered from 1. Internally literal
+ * {@code 2v} is v and {@code 2v + 1} is not v.
+ *
+ * The search is the usual one: unit propagation over two watched literals
+ * per clause, first-UIP conflict analysis with non-chronological
+ * backtracking, VSIDS branching from a binary heap of variable activities
+ * with saved phases, and restarts on the Luby sequence. Learnt clauses are
+ * kept for the life of the solver, which suits the one-shot miters it is
+ * used for.
+ */
+public final class SatSolver {
+
+    private static final byte FALSE = 0;
+    private static final byte TRUE = 1;
+    private static final byte UNASSIGNED = 2;
+
+    private static final int NO_REASON = -1;
+    private static final int RESTART_BASE = 100;
+    private static final double ACTIVITY_DECAY = 0.95;
+
+    private int variableCount;
+    private final List<int[]> clauses = new ArrayList<>();
+    private int[][] watches = new int[0][];
+    private int[] watchSize = new int[0];
+
+    private byte[] assigns = new byte[1];
+    private int[] level = new int[1];
+    private int[] reason = new int[1];
+    private boolean[] phase = new boolean[1];
+    private boolean[] seen = new boolean[1];
+    private double[] activity = new double[1];
+    private double activityIncrement = 1;
+
+    private int[] trail = new int[1];
+    private int trailSize;
+    private int[] trailLimit = new int[1];
+    private int decisionLevel;
+    private int propagateHead;
+
+    // Max-heap of unassigned variables by activity
+    private int[] heap = new int[1];
+    private int[] heapIndex = new int[1];
+    private int heapSize;
+
+    private boolean unsatisfiable;
+    private boolean[] model;
+    private long conflicts;
+    private long decisions;
+
+    /**
+     * @return a new variable, numbered from 1
+     */
+    public int newVariable() {
+        int v = ++variableCount;
+        if (v >= assigns.length) {
+            int capacity = Math.max(16, assigns.length * 2);
+            assigns = Arrays.copyOf(assigns, capacity);
+            level = Arrays.copyOf(level, capacity);
+            reason = Arrays.copyOf(reason, capacity);
+            phase = Arrays.copyOf(phase, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+            activity = Arrays.copyOf(activity, capacity);
+            trail = Arrays.copyOf(trail, capacity);
+            trailLimit = Arrays.copyOf(trailLimit, capacity);
+            heap = Arrays.copyOf(heap, capacity);
+            heapIndex = Arrays.copyOf(heapIndex, capacity);
+            watches = Arrays.copyOf(watches, capacity * 2);
+            watchSize = Arrays.copyOf(watchSize, capacity * 2);
+        }
+        assigns[v] = UNASSIGNED;
+        reason[v] = NO_REASON;
+        heapIndex[v] = -1;
+        watches[2 * v] = new int[4];
+        watches[2 * v + 1] = new int[4];
+        heapInsert(v);
+        return v;
+    }
+
+    public int getVariableCount() {
+        return variableCount;
+    }
+
+    /**
+     * Adds a clause, the disjunction of the given literals.
+     *
+     * @return false if the clauses are now known to be unsatisfiable
+     */
+    public boolean addClause(int... literals) {
+        if (unsatisfiable) return false;
+        cancelUntil(0);
+
+        int[] clause = new int[literals.length];
+        int size = 0;
+        for (int literal : literals) {
+            int v = Math.abs(literal);
+            if (v == 0 || v > variableCount) {
+                throw new IllegalArgumentException("No variable " + literal + " among " + variableCount);
+            }
+            clause[size++] = literal > 0 ? 2 * v : 2 * v + 1;
+        }
+        Arrays.sort(clause, 0, size);
+
+        // Drop duplicates and literals false at level 0; tautologies and satisfied clauses vanish
+        int kept = 0;
+        for (int k = 0; k < size; k++) {
+            int literal = clause[k];
+            if (kept > 0 && clause[kept - 1] == literal) continue;
+            if (kept > 0 && clause[kept - 1] == (literal ^ 1)) return true;
+            byte value = value(literal);
+            if (value == TRUE) return true;
+            if (value == FALSE) continue;
+            clause[kept++] = literal;
+        }
+
+        if (kept == 0) {
+            unsatisfiable = true;
+            return false;
+        }
+        if (kept == 1) {
+            enqueue(clause[0], NO_REASON);
+            if (propagate() != NO_REASON) {
+                unsatisfiable = true;
+            }
+            return !unsatisfiable;
+        }
+        attach(Arrays.copyOf(clause, kept));
+        return true;
+    }
+
+    private int attach(int[] clause) {
+        int index = clauses.size();
+        clauses.add(clause);
+        watch(clause[0], index);
+        watch(clause[1], index);
+        return index;
+    }
+
+    private void watch(int literal, int clause) {
+        if (watchSize[literal] == watches[literal].length) {
+            watches[literal] = Arrays.copyOf(watches[literal], watchSize[literal] * 2);
+        }
+        watches[literal][watchSize[literal]++] = clause;
+    }
+
+    private byte value(int literal) {
+        byte a = assigns[literal >> 1];
+        return a == UNASSIGNED ? UNASSIGNED : (byte) (a ^ (literal & 1));
+    }
+
+    private void enqueue(int literal, int from) {
+        int v = literal >> 1;
+        assigns[v] = (byte) (1 ^ (literal & 1));
+        level[v] = decisionLevel;
+        reason[v] = from;
+        trail[trailSize++] = literal;
+    }
+
+    /**
+     * Propagates every assignment on the trail not yet propagated.
+     *
+     * @return index of a conflicting clause, or {@link #NO_REASON}
+     */
+    private int propagate() {
+        while (propagateHead < trailSize) {
+            int falseLiteral = trail[propagateHead++] ^ 1;
+            int[] list = watches[falseLiteral];
+            int count = watchSize[falseLiteral];
+            int i = 0;
+            int j = 0;
+            while (i < count) {
+                int index = list[i++];
+                int[] clause = clauses.get(index);
+                if (clause[0] == falseLiteral) {
+                    clause[0] = clause[1];
+                    clause[1] = falseLiteral;
+                }
+                if (value(clause[0]) == TRUE) {
+                    list[j++] = index;
+                    continue;
+                }
+
+                boolean moved = false;
+                for (int k = 2; k < clause.length; k++) {
+                    if (value(clause[k]) != FALSE) {
+                        clause[1] = clause[k];
+                        clause[k] = falseLiteral;
+                        watch(clause[1], index);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) continue;
+
+                list[j++] = index;
+                if (value(clause[0]) == FALSE) {
+                    while (i < count) {
+                        list[j++] = list[i++];
+                    }
+                    watchSize[falseLiteral] = j;
+                    propagateHead = trailSize;
+                    return index;
+                }
+                enqueue(clause[0], index);
+            }
+            watchSize[falseLiteral] = j;
+        }
+        return NO_REASON;
+    }
+
+    /**
+     * Searches for an assignment satisfying every clause.
+     *
+     * @return true if one exists; it can then be read with {@link #getValue(int)}
+     */
+    public boolean solve() {
+        if (unsatisfiable) return false;
+        cancelUntil(0);
+        if (propagate() != NO_REASON) {
+            unsatisfiable = true;
+            return false;
+        }
+
+        for (int restart = 0; ; restart++) {
+            int result = search(luby(restart) * RESTART_BASE);
+            if (result != UNASSIGNED) {
+                if (result == TRUE) {
+                    model = new boolean[variableCount + 1];
+                    for (int v = 1; v <= variableCount; v++) {
+                        model[v] = assigns[v] == TRUE;
+                    }
+                }
+                cancelUntil(0);
+                return result == TRUE;
+            }
+            cancelUntil(0);
+        }
+    }
+
+    /**
+     * Runs until a model is found, unsatisfiability is proven or the
+     * conflict budget is spent.
+     */
+    private byte search(long conflictBudget) {
+        long budget = conflictBudget;
+        while (true) {
+            int conflict = propagate();
+            if (conflict != NO_REASON) {
+                conflicts++;
+                if (decisionLevel == 0) {
+                    unsatisfiable = true;
+                    return FALSE;
+                }
+                learn(conflict);
+                activityIncrement /= ACTIVITY_DECAY;
+                budget--;
+                continue;
+            }
+            if (budget <= 0) {
+                return UNASSIGNED;
+            }
+
+            int v = nextDecision();
+            if (v == 0) {
+                return TRUE;
+            }
+            decisions++;
+            trailLimit[decisionLevel++] = trailSize;
+            enqueue(phase[v] ? 2 * v : 2 * v + 1, NO_REASON);
+        }
+    }
+
+    /**
+     * Derives the first-UIP clause of a conflict, backjumps and asserts it.
+     */
+    private void learn(int conflict) {
+        List<Integer> learnt = new ArrayList<>();
+        learnt.add(0); // the asserting literal goes here
+        int pathCount = 0;
+        int literal = -1;
+        int index = trailSize - 1;
+
+        do {
+            int[] clause = clauses.get(conflict);
+            for (int k = literal == -1 ? 0 : 1; k < clause.length; k++) {
+                int q = clause[k];
+                int v = q >> 1;
+                if (!seen[v] && level[v] > 0) {
+                    bump(v);
+                    seen[v] = true;
+                    if (level[v] >= decisionLevel) pathCount++;
+                    else learnt.add(q);
+                }
+            }
+            while (!seen[trail[index] >> 1]) {
+                index--;
+            }
+            literal = trail[index--];
+            conflict = reason[literal >> 1];
+            seen[literal >> 1] = false;
+            pathCount--;
+        } while (pathCount > 0);
+        learnt.set(0, literal ^ 1);
+
+        int[] clause = new int[learnt.size()];
+        int backjump = 0;
+        for (int k = 0; k < clause.length; k++) {
+            clause[k] = learnt.get(k);
+            if (k > 0) {
+                seen[clause[k] >> 1] = false;
+                // Keep the literal of the highest remaining level second, for watching
+                if (level[clause[k] >> 1] > backjump) {
+                    backjump = level[clause[k] >> 1];
+                    int swap = clause[1];
+                    clause[1] = clause[k];
+                    clause[k] = swap;
+                }
+            }
+        }
+
+        cancelUntil(backjump);
+        if (clause.length == 1) {
+            enqueue(clause[0], NO_REASON);
+        } else {
+            enqueue(clause[0], attach(clause));
+        }
+    }
+
+    private void cancelUntil(int target) {
+        if (decisionLevel <= target) return;
+        for (int c = trailSize - 1; c >= trailLimit[target]; c--) {
+            int v = trail[c] >> 1;
+            assigns[v] = UNASSIGNED;
+            reason[v] = NO_REASON;
+            phase[v] = (trail[c] & 1) == 0;
+            if (heapIndex[v] < 0) heapInsert(v);
+        }
+        trailSize = trailLimit[target];
+        propagateHead = trailSize;
+        decisionLevel = target;
+    }
+
+    private int nextDecision() {
+        while (heapSize > 0) {
+            int v = heapRemoveMax();
+            if (assigns[v] == UNASSIGNED) return v;
+        }
+        return 0;
+    }
+
+    private void bump(int v) {
+        activity[v] += activityIncrement;
+        if (activity[v] > 1e100) {
+            for (int u = 1; u <= variableCount; u++) {
+                activity[u] *= 1e-100;
+            }
+            activityIncrement *= 1e-100;
+        }
+        if (heapIndex[v] >= 0) heapUp(heapIndex[v]);
+    }
+
+    private void heapInsert(int v) {
+        heap[heapSize] = v;
+        heapIndex[v] = heapSize;
+        heapUp(heapSize++);
+    }
+
+    private int heapRemoveMax() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            heapDown(0);
+        }
+        return top;
+    }
+
+    private void heapUp(int i) {
+        int v = heap[i];
+        while (i > 0 && activity[heap[(i - 1) / 2]] < activity[v]) {
+            heap[i] = heap[(i - 1) / 2];
+            heapIndex[heap[i]] = i;
+            i = (i - 1) / 2;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+
+    private void heapDown(int i) {
+        int v = heap[i];
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) child++;
+            if (activity[heap[child]] <= activity[v]) break;
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+
+    /**
+     * @return element {@code i} of the Luby restart sequence 1, 1, 2, 1, 1, 2, 4, ...
+     */
+    static long luby(int i) {
+        int size = 1;
+        int sequence = 0;
+        while (size < i + 1) {
+            sequence++;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != i) {
+            size = (size - 1) >> 1;
+            sequence--;
+            i = i % size;
+        }
+        return 1L << sequence;
+    }
+
+    /**
+     * @return value of a variable in the model found by the last successful {@link #solve()}
+     */
+    public boolean getValue(int v) {
+        if (model == null) {
+            throw new IllegalStateException("No model: solve() has not found one");
+        }
+        return v < model.length && model[v];
+    }
+
+    public long getConflictCount() {
+        return conflicts;
+    }
+
+    public long getDecisionCount() {
+        return decisions;
+    }
+}
@@ -2,8 +2,13 @@ package org.scd.business.model;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
 
 
 public class Circuit implements Serializable {
@@ -17,12 +22,34 @@ public class Circuit implements Serializable {
     private List<Gate> gates;
     private List<LED> leds;
     private List<Switch> switches;
+    private List<Clock> clocks;
+    private List<SubcircuitInstance> subcircuits;
     private List<Connector> connectors;
     
+    // Bumped on every wiring/component change so simulation caches know when to rebuild
+    private transient int structureVersion;
+    
+    // Bumped whenever the value or source of an input is edited through this circuit
+    private transient int inputVersion;
+    
+    // Evaluation state the simulation package keeps while this circuit is placed
+    // as a subcircuit; lives and dies with the circuit, never saved
+    private transient Object definitionState;
+    
+    // Lookup index over the lists above; kept in step by the add/remove methods
+    // and rebuilt on first use after a setter or deserialization. The lists are
+    // only handed out read-only, and the wiring of a connector or input must not
+    // be edited after it is added, so neither can change behind the index.
+    private transient Map<Integer, Component> componentsById;
+    private transient Map<Integer, List<Connector>> faninById;  // target id -> connectors, in circuit order
+    private transient Map<Integer, List<Connector>> fanoutById; // source id -> connectors, in circuit order
+    
     public Circuit() {
         this.gates = new ArrayList<>();
         this.leds = new ArrayList<>();
         this.switches = new ArrayList<>();
+        this.clocks = new ArrayList<>();
+        this.subcircuits = new ArrayList<>();
         this.connectors = new ArrayList<>();
         this.createdDate = new Date();
         this.modifiedDate = new Date();
@@ -37,53 +64,229 @@ public class Circuit implements Serializable {
    
     public void addGate(Gate gate) {
         gates.add(gate);
+        indexComponent(gate);
+        structureVersion++;
         modifiedDate = new Date();
     }
     
     public void addLED(LED led) {
         leds.add(led);
+        indexComponent(led);
+        structureVersion++;
         modifiedDate = new Date();
     }
     
     public void addConnector(Connector connector) {
         connectors.add(connector);
+        indexConnector(connector);
+        structureVersion++;
         modifiedDate = new Date();
     }
     
     public void removeGate(int gateId) {
         gates.removeIf(g -> g.getComponentId() == gateId);
-        connectors.removeIf(c -> c.getSourceComponentId() == gateId || 
-                                  c.getTargetComponentId() == gateId);
+        unindexComponent(gateId);
+        removeConnectorsWhere(c -> c.getSourceComponentId() == gateId || 
+                                   c.getTargetComponentId() == gateId);
+        structureVersion++;
         modifiedDate = new Date();
     }
     
     public void removeLED(int ledId) {
         leds.removeIf(l -> l.getComponentId() == ledId);
-        connectors.removeIf(c -> c.getTargetComponentId() == ledId);
+        unindexComponent(ledId);
+        removeConnectorsWhere(c -> c.getTargetComponentId() == ledId);
+        structureVersion++;
+        modifiedDate = new Date();
+    }
+    
+    /**
+     * Sets one input of a gate, bumping the input version if its value or
+     * source changed.
+     *
+     * @return false if there is no such gate or input
+     */
+    public boolean setGateInput(int gateId, int inputIndex, Integer value, Integer sourceComponentId) {
+        Gate gate = findGateById(gateId);
+        if (gate == null) return false;
+        Input input = (inputIndex == 0) ? gate.getInput1() : gate.getInput2();
+        if (input == null) return false;
+        setInput(input, value, sourceComponentId);
+        return true;
+    }
+    
+    /**
+     * Sets the input of an LED, bumping the input version if its value or
+     * source changed.
+     *
+     * @return false if there is no such LED
+     */
+    public boolean setLEDInput(int ledId, Integer value, Integer sourceComponentId) {
+        LED led = findLEDById(ledId);
+        if (led == null) return false;
+        setInput(led.getInput(), value, sourceComponentId);
+        return true;
+    }
+    
+    private void setInput(Input input, Integer value, Integer sourceComponentId) {
+        if (Objects.equals(input.getValue(), value)
+                && Objects.equals(input.getSourceComponentId(), sourceComponentId)) {
+            return;
+        }
+        input.setValue(value);
+        input.setSourceComponentId(sourceComponentId);
+        inputVersion++;
         modifiedDate = new Date();
     }
     
     public void removeConnector(int connectorId) {
-        connectors.removeIf(c -> c.getConnectorId() == connectorId);
+        removeConnectorsWhere(c -> c.getConnectorId() == connectorId);
+        structureVersion++;
         modifiedDate = new Date();
     }
     
     public Gate findGateById(int gateId) {
-        return gates.stream()
-                   .filter(g -> g.getComponentId() == gateId)
-                   .findFirst()
-                   .orElse(null);
+        Component component = findComponentById(gateId);
+        if (component instanceof Gate) return (Gate) component;
+        return component != null ? scan(gates, gateId) : null;
     }
     
     public LED findLEDById(int ledId) {
-        return leds.stream()
-                  .filter(l -> l.getComponentId() == ledId)
-                  .findFirst()
-                  .orElse(null);
+        Component component = findComponentById(ledId);
+        if (component instanceof LED) return (LED) component;
+        return component != null ? scan(leds, ledId) : null;
+    }
+    
+    /**
+     * Looks up a gate, LED or switch by id in constant time.
+     * 
+     * @return the component, or null if the circuit has none with that id
+     */
+    public Component findComponentById(int componentId) {
+        ensureIndex();
+        return componentsById.get(componentId);
+    }
+    
+    /**
+     * @return connectors targeting the given component, in circuit order
+     */
+    public List<Connector> getFaninConnectors(int componentId) {
+        ensureIndex();
+        List<Connector> fanin = faninById.get(componentId);
+        return fanin != null ? Collections.unmodifiableList(fanin) : Collections.emptyList();
+    }
+    
+    /**
+     * @return connectors driven by the given component, in circuit order
+     */
+    public List<Connector> getFanoutConnectors(int componentId) {
+        ensureIndex();
+        List<Connector> fanout = fanoutById.get(componentId);
+        return fanout != null ? Collections.unmodifiableList(fanout) : Collections.emptyList();
+    }
+    
+    // Only needed when components of different kinds share an id
+    private static <T extends Component> T scan(List<T> list, int componentId) {
+        for (T component : list) {
+            if (component.getComponentId() == componentId) return component;
+        }
+        return null;
+    }
+    
+    private void ensureIndex() {
+        if (componentsById != null) return;
+        
+        componentsById = new HashMap<>();
+        faninById = new HashMap<>();
+        fanoutById = new HashMap<>();
+        gates.forEach(this::indexComponent);
+        leds.forEach(this::indexComponent);
+        switches.forEach(this::indexComponent);
+        clocks.forEach(this::indexComponent);
+        getSubcircuits().forEach(this::indexComponent);
+        connectors.forEach(this::indexConnector);
+    }
+    
+    private void indexComponent(Component component) {
+        if (componentsById == null) return; // built lazily on the next lookup
+        // The first component with an id wins, as with the old linear search
+        componentsById.putIfAbsent(component.getComponentId(), component);
+    }
+    
+    private void unindexComponent(int componentId) {
+        if (componentsById == null) return;
+        componentsById.remove(componentId);
+        // Another component may share the id
+        for (List<? extends Component> list : List.of(gates, leds, switches, clocks, getSubcircuits())) {
+            for (Component component : list) {
+                if (component.getComponentId() == componentId) {
+                    componentsById.put(componentId, component);
+                    return;
+                }
+            }
+        }
+    }
+    
+    private void indexConnector(Connector connector) {
+        if (faninById == null) return;
+        faninById.computeIfAbsent(connector.getTargetComponentId(), k -> new ArrayList<>()).add(connector);
+        fanoutById.computeIfAbsent(connector.getSourceComponentId(), k -> new ArrayList<>()).add(connector);
+    }
+    
+    private void removeConnectorsWhere(Predicate<Connector> filter) {
+        connectors.removeIf(c -> {
+            if (!filter.test(c)) return false;
+            if (faninById != null) {
+                removeFrom(faninById, c.getTargetComponentId(), c);
+                removeFrom(fanoutById, c.getSourceComponentId(), c);
+            }
+            return true;
+        });
+    }
+    
+    private static void removeFrom(Map<Integer, List<Connector>> index, int componentId, Connector connector) {
+        List<Connector> list = index.get(componentId);
+        if (list == null) return;
+        list.remove(connector);
+        if (list.isEmpty()) index.remove(componentId);
+    }
+    
+    /**
+     * Returns a counter that changes whenever components or connectors are
+     * added, removed or replaced. Simulation engines compare it against the
+     * value they were built from to decide when to rebuild.
+     */
+    public int getStructureVersion() {
+        return structureVersion;
+    }
+    
+    /**
+     * Returns a counter that changes whenever an input's value or source is
+     * edited through {@link #setGateInput} or {@link #setLEDInput}, which
+     * leaves the structure version alone. Caches that keep values read from
+     * the circuit, such as a subcircuit definition, compare against both.
+     */
+    public int getInputVersion() {
+        return inputVersion;
+    }
+    
+    /**
+     * @return state stored by {@link #setDefinitionState}, or null
+     */
+    public Object getDefinitionState() {
+        return definitionState;
+    }
+    
+    /**
+     * Stores evaluation state for this circuit's use as a subcircuit
+     * definition. The model does not read it.
+     */
+    public void setDefinitionState(Object definitionState) {
+        this.definitionState = definitionState;
     }
     
     public int getComponentCount() {
-        return gates.size() + leds.size() + switches.size();
+        return gates.size() + leds.size() + switches.size() + clocks.size() + getSubcircuits().size();
     }
     
     // Getters and setters
@@ -129,53 +332,153 @@ public class Circuit implements Serializable {
         this.modifiedDate = modifiedDate;
     }
     
+    /**
+     * @return read-only view; edit through the add and remove methods
+     */
     public List<Gate> getGates() {
-        return gates;
+        return Collections.unmodifiableList(gates);
     }
     
     public void setGates(List<Gate> gates) {
-        this.gates = gates;
+        this.gates = new ArrayList<>(gates);
+        componentsById = null;
+        structureVersion++;
     }
     
+    /**
+     * @return read-only view; edit through the add and remove methods
+     */
     public List<LED> getLeds() {
-        return leds;
+        return Collections.unmodifiableList(leds);
     }
     
     public void setLeds(List<LED> leds) {
-        this.leds = leds;
+        this.leds = new ArrayList<>(leds);
+        componentsById = null;
+        structureVersion++;
     }
     
+    /**
+     * @return read-only view; edit through the add and remove methods
+     */
     public List<Connector> getConnectors() {
-        return connectors;
+        return Collections.unmodifiableList(connectors);
     }
     
     public void setConnectors(List<Connector> connectors) {
-        this.connectors = connectors;
+        this.connectors = new ArrayList<>(connectors);
+        componentsById = null;
+        structureVersion++;
     }
     
+    /**
+     * @return read-only view; edit through the add and remove methods
+     */
     public List<Switch> getSwitches() {
-        return switches;
+        return Collections.unmodifiableList(switches);
     }
     
     public void setSwitches(List<Switch> switches) {
-        this.switches = switches;
+        this.switches = new ArrayList<>(switches);
+        componentsById = null;
+        structureVersion++;
     }
     
     public void addSwitch(Switch switchComponent) {
         switches.add(switchComponent);
+        indexComponent(switchComponent);
+        structureVersion++;
         modifiedDate = new Date();
     }
     
     public void removeSwitch(int switchId) {
         switches.removeIf(s -> s.getComponentId() == switchId);
-        connectors.removeIf(c -> c.getSourceComponentId() == switchId);
+        unindexComponent(switchId);
+        removeConnectorsWhere(c -> c.getSourceComponentId() == switchId);
+        structureVersion++;
         modifiedDate = new Date();
     }
     
     public Switch findSwitchById(int switchId) {
-        return switches.stream()
-                   .filter(s -> s.getComponentId() == switchId)
-                   .findFirst()
-                   .orElse(null);
+        Component component = findComponentById(switchId);
+        if (component instanceof Switch) return (Switch) component;
+        return component != null ? scan(switches, switchId) : null;
+    }
+    
+    /**
+     * @return read-only view; edit through the add and remove methods
+     */
+    public List<Clock> getClocks() {
+        return Collections.unmodifiableList(clocks);
+    }
+    
+    public void setClocks(List<Clock> clocks) {
+        this.clocks = new ArrayList<>(clocks);
+        componentsById = null;
+        structureVersion++;
+    }
+    
+    public void addClock(Clock clock) {
+        clocks.add(clock);
+        indexComponent(clock);
+        structureVersion++;
+        modifiedDate = new Date();
+    }
+    
+    public void removeClock(int clockId) {
+        clocks.removeIf(c -> c.getComponentId() == clockId);
+        unindexComponent(clockId);
+        removeConnectorsWhere(c -> c.getSourceComponentId() == clockId);
+        structureVersion++;
+        modifiedDate = new Date();
+    }
+    
+    public Clock findClockById(int clockId) {
+        Component component = findComponentById(clockId);
+        if (component instanceof Clock) return (Clock) component;
+        return component != null ? scan(clocks, clockId) : null;
+    }
+    
+    /**
+     * @return placed instances of other circuits, as a read-only view; edit
+     *         through the add and remove methods
+     */
+    public List<SubcircuitInstance> getSubcircuits() {
+        return Collections.unmodifiableList(subcircuits());
+    }
+    
+    private List<SubcircuitInstance> subcircuits() {
+        if (subcircuits == null) {
+            subcircuits = new ArrayList<>(); // circuits serialized before instances existed
+        }
+        return subcircuits;
+    }
+    
+    public void setSubcircuits(List<SubcircuitInstance> subcircuits) {
+        this.subcircuits = new ArrayList<>(subcircuits);
+        componentsById = null;
+        structureVersion++;
+    }
+    
+    public void addSubcircuit(SubcircuitInstance instance) {
+        subcircuits().add(instance);
+        indexComponent(instance);
+        structureVersion++;
+        modifiedDate = new Date();
+    }
+    
+    public void removeSubcircuit(int instanceId) {
+        subcircuits().removeIf(s -> s.getComponentId() == instanceId);
+        unindexComponent(instanceId);
+        removeConnectorsWhere(c -> c.getSourceComponentId() == instanceId ||
+                                   c.getTargetComponentId() == instanceId);
+        structureVersion++;
+        modifiedDate = new Date();
+    }
+    
+    public SubcircuitInstance findSubcircuitById(int instanceId) {
+        Component component = findComponentById(instanceId);
+        if (component instanceof SubcircuitInstance) return (SubcircuitInstance) component;
+        return component != null ? scan(getSubcircuits(), instanceId) : null;
     }
 }
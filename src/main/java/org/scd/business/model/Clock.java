@@ -0,0 +1,111 @@
+package org.scd.business.model;
+
+import java.io.Serializable;
+
+/**
+ * Square-wave source. Like a {@link Switch} it has no inputs, but its level
+ * is driven by the simulation: every clock cycle is a rising edge followed by
+ * a falling edge.
+ */
+public class Clock implements Component, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int componentId;
+    private int positionX;
+    private int positionY;
+    private int row;
+    private int column;
+    private boolean isHigh;
+
+    public Clock(int componentId, int positionX, int positionY) {
+        this.componentId = componentId;
+        this.positionX = positionX;
+        this.positionY = positionY;
+        this.isHigh = false;
+    }
+
+    /**
+     * Copy constructor for cloning a Clock with offset position.
+     *
+     * @param source The Clock to copy from
+     * @param newId The new component ID
+     * @param offsetX X-axis offset for position
+     * @param offsetY Y-axis offset for position
+     */
+    public Clock(Clock source, int newId, int offsetX, int offsetY) {
+        this.componentId = newId;
+        this.positionX = source.positionX + offsetX;
+        this.positionY = source.positionY + offsetY;
+        this.isHigh = source.isHigh;
+        this.row = source.row;
+        this.column = source.column;
+    }
+
+    @Override
+    public int getComponentId() {
+        return componentId;
+    }
+
+    @Override
+    public String getComponentType() {
+        return "CLOCK";
+    }
+
+    @Override
+    public int getPositionX() {
+        return positionX;
+    }
+
+    @Override
+    public int getPositionY() {
+        return positionY;
+    }
+
+    @Override
+    public int getRow() {
+        return row;
+    }
+
+    @Override
+    public int getColumn() {
+        return column;
+    }
+
+    @Override
+    public void setRowColumn(int row, int column) {
+        this.row = row;
+        this.column = column;
+    }
+
+    @Override
+    public void calculate() {
+        // Clock level is advanced by the simulation, not computed from inputs
+    }
+
+    public void setPositionX(int positionX) {
+        this.positionX = positionX;
+    }
+
+    public void setPositionY(int positionY) {
+        this.positionY = positionY;
+    }
+
+    public boolean isHigh() {
+        return isHigh;
+    }
+
+    public void setHigh(boolean high) {
+        isHigh = high;
+    }
+
+    /**
+     * Advances the clock by half a cycle.
+     */
+    public void tick() {
+        isHigh = !isHigh;
+    }
+
+    public Integer getOutput() {
+        return isHigh ? 1 : 0;
+    }
+}
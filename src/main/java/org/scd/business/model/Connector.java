@@ -10,6 +10,7 @@ public class Connector implements Serializable {
     private int sourceComponentId;
     private int targetComponentId;
     private int targetInputIndex; // 0 for input1, 1 for input2
+    private int sourceOutputIndex; // output port of a subcircuit instance, 0 otherwise
     private String wireColor; 
     
     public Connector() {}
@@ -36,10 +37,13 @@ public class Connector implements Serializable {
         this.sourceComponentId = newSourceId;
         this.targetComponentId = newTargetId;
         this.targetInputIndex = source.targetInputIndex;
+        this.sourceOutputIndex = source.sourceOutputIndex;
         this.wireColor = source.wireColor;
     }
     
-    // Getters and setters
+    // Getters and setters. Once the connector is added to a circuit its ends
+    // are part of the circuit's index and structure version: to rewire it,
+    // remove it and add a new one instead of calling the setters.
     public int getConnectorId() {
         return connectorId;
     }
@@ -72,6 +76,14 @@ public class Connector implements Serializable {
         this.targetInputIndex = targetInputIndex;
     }
     
+    public int getSourceOutputIndex() {
+        return sourceOutputIndex;
+    }
+    
+    public void setSourceOutputIndex(int sourceOutputIndex) {
+        this.sourceOutputIndex = sourceOutputIndex;
+    }
+    
     public String getWireColor() {
         return wireColor;
     }
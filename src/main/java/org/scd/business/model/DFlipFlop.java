@@ -0,0 +1,72 @@
+package org.scd.business.model;
+
+
+/**
+ * Positive-edge-triggered D flip-flop. Input 1 is D, input 2 is the clock;
+ * the output Q takes the value of D when the clock goes from 0 to 1 and holds
+ * it otherwise. Q starts at 0.
+ */
+public class DFlipFlop extends Gate implements Sequential {
+
+    private Integer lastClock; // clock level at the previous sample, null before the first
+    private Integer next;
+
+    public DFlipFlop() {
+        this(0, 0, 0);
+    }
+
+    public DFlipFlop(int componentId, int positionX, int positionY) {
+        super(componentId, "DFF", 2, positionX, positionY);
+        this.output = 0;
+    }
+
+    /**
+     * Copy constructor for cloning a flip-flop with offset position.
+     * 
+     * @param source The flip-flop to copy from
+     * @param newId The new component ID
+     * @param offsetX X-axis offset for position
+     * @param offsetY Y-axis offset for position
+     */
+    public DFlipFlop(DFlipFlop source, int newId, int offsetX, int offsetY) {
+        super(newId, "DFF", 2, source.positionX + offsetX, source.positionY + offsetY);
+        this.input1 = new Input(source.input1);
+        this.input2 = new Input(source.input2);
+        this.output = source.output;
+        this.lastClock = source.lastClock;
+        this.row = source.row;
+        this.column = source.column;
+    }
+
+    @Override
+    public void sample() {
+        Integer clock = input2 != null ? input2.getValue() : null;
+        boolean risingEdge = lastClock != null && lastClock == 0 && clock != null && clock == 1;
+        next = risingEdge ? input1.getValue() : output;
+        lastClock = clock;
+    }
+
+    @Override
+    public boolean commit() {
+        boolean changed = next == null ? output != null : !next.equals(output);
+        output = next;
+        return changed;
+    }
+
+    /**
+     * Samples and commits at once, for use outside the two-phase engine.
+     */
+    @Override
+    public void calculate() {
+        sample();
+        commit();
+    }
+
+    public Integer getLastClock() {
+        return lastClock;
+    }
+
+    public void setLastClock(Integer lastClock) {
+        this.lastClock = lastClock;
+    }
+}
@@ -7,8 +7,9 @@ public class Input implements Serializable {
     private static final long serialVersionUID = 1L;
     
     private int inputIndex; // 0 for input1, 1 for input2
-    private Integer value; // 0, 1, or null (not set)
-    private Integer sourceComponentId; // ID of the component providing this input
+    private Integer value; // 0, 1, or null (not set); set by hand through Circuit.setGateInput/setLEDInput
+    private Integer sourceComponentId; // ID of the component providing this input; set together with
+                                       // the connector, see Circuit
     
     public Input() {}
 
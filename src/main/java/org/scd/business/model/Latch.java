@@ -0,0 +1,59 @@
+package org.scd.business.model;
+
+
+/**
+ * Level-sensitive D latch. Input 1 is D, input 2 is the enable; while the
+ * enable is 1 the output Q follows D, otherwise it holds. Q starts at 0.
+ */
+public class Latch extends Gate implements Sequential {
+
+    private Integer next;
+
+    public Latch() {
+        this(0, 0, 0);
+    }
+
+    public Latch(int componentId, int positionX, int positionY) {
+        super(componentId, "LATCH", 2, positionX, positionY);
+        this.output = 0;
+    }
+
+    /**
+     * Copy constructor for cloning a latch with offset position.
+     * 
+     * @param source The latch to copy from
+     * @param newId The new component ID
+     * @param offsetX X-axis offset for position
+     * @param offsetY Y-axis offset for position
+     */
+    public Latch(Latch source, int newId, int offsetX, int offsetY) {
+        super(newId, "LATCH", 2, source.positionX + offsetX, source.positionY + offsetY);
+        this.input1 = new Input(source.input1);
+        this.input2 = new Input(source.input2);
+        this.output = source.output;
+        this.row = source.row;
+        this.column = source.column;
+    }
+
+    @Override
+    public void sample() {
+        Integer enable = input2 != null ? input2.getValue() : null;
+        next = (enable != null && enable == 1) ? input1.getValue() : output;
+    }
+
+    @Override
+    public boolean commit() {
+        boolean changed = next == null ? output != null : !next.equals(output);
+        output = next;
+        return changed;
+    }
+
+    /**
+     * Samples and commits at once, for use outside the two-phase engine.
+     */
+    @Override
+    public void calculate() {
+        sample();
+        commit();
+    }
+}
@@ -0,0 +1,25 @@
+package org.scd.business.model;
+
+
+/**
+ * A storage element. Its output is state rather than a function of its
+ * current inputs, so it breaks combinational paths: the simulation first
+ * settles the combinational logic, then lets every storage element
+ * {@link #sample()} its inputs, and only then {@link #commit()}s all of them
+ * together, so no element sees another's new state in the same step.
+ */
+public interface Sequential extends Component {
+
+    /**
+     * Computes the next state from the current input values without changing
+     * the output.
+     */
+    void sample();
+
+    /**
+     * Makes the sampled state the output.
+     *
+     * @return true if the output changed
+     */
+    boolean commit();
+}
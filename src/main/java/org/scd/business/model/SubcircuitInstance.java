@@ -0,0 +1,167 @@
+package org.scd.business.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * A placed use of another circuit. The instance only references its
+ * definition: the switches of the definition are its input ports and the
+ * LEDs its output ports, both in the order they appear in the definition.
+ * Connectors address input ports through their target input index and
+ * output ports through their source output index.
+ *
+ * Per instance only the port values are stored, so placing a circuit many
+ * times costs a few objects per instance rather than a copy of every gate.
+ * Outputs are computed by the simulation engines from the definition;
+ * {@link #calculate()} on its own leaves them unchanged.
+ */
+public class SubcircuitInstance implements Component, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int componentId;
+    private int positionX;
+    private int positionY;
+    private int row;
+    private int column;
+    private Circuit definition;
+    private final List<Input> inputs = new ArrayList<>();
+    private final List<Integer> outputs = new ArrayList<>();
+
+    public SubcircuitInstance(int componentId, Circuit definition, int positionX, int positionY) {
+        this.componentId = componentId;
+        this.definition = definition;
+        this.positionX = positionX;
+        this.positionY = positionY;
+        syncPorts();
+    }
+
+    /**
+     * Copy constructor for cloning an instance with offset position. The
+     * copy shares the definition.
+     *
+     * @param source The instance to copy from
+     * @param newId The new component ID
+     * @param offsetX X-axis offset for position
+     * @param offsetY Y-axis offset for position
+     */
+    public SubcircuitInstance(SubcircuitInstance source, int newId, int offsetX, int offsetY) {
+        this.componentId = newId;
+        this.definition = source.definition;
+        this.positionX = source.positionX + offsetX;
+        this.positionY = source.positionY + offsetY;
+        this.row = source.row;
+        this.column = source.column;
+        for (Input input : source.inputs) {
+            inputs.add(new Input(input));
+        }
+        outputs.addAll(source.outputs);
+        syncPorts();
+    }
+
+    @Override
+    public int getComponentId() {
+        return componentId;
+    }
+
+    @Override
+    public String getComponentType() {
+        return "SUBCIRCUIT";
+    }
+
+    @Override
+    public int getPositionX() {
+        return positionX;
+    }
+
+    @Override
+    public int getPositionY() {
+        return positionY;
+    }
+
+    @Override
+    public int getRow() {
+        return row;
+    }
+
+    @Override
+    public int getColumn() {
+        return column;
+    }
+
+    @Override
+    public void setRowColumn(int row, int column) {
+        this.row = row;
+        this.column = column;
+    }
+
+    @Override
+    public void calculate() {
+        // Outputs are computed by the simulation engines from the definition
+    }
+
+    public void setPositionX(int positionX) {
+        this.positionX = positionX;
+    }
+
+    public void setPositionY(int positionY) {
+        this.positionY = positionY;
+    }
+
+    public Circuit getDefinition() {
+        return definition;
+    }
+
+    public void setDefinition(Circuit definition) {
+        this.definition = definition;
+        syncPorts();
+    }
+
+    /**
+     * Matches the number of ports to the definition's current switches and
+     * LEDs, keeping the values of ports that still exist.
+     */
+    public void syncPorts() {
+        int inputCount = definition != null ? definition.getSwitches().size() : 0;
+        int outputCount = definition != null ? definition.getLeds().size() : 0;
+        while (inputs.size() < inputCount) inputs.add(new Input(inputs.size()));
+        while (inputs.size() > inputCount) inputs.remove(inputs.size() - 1);
+        while (outputs.size() < outputCount) outputs.add(null);
+        while (outputs.size() > outputCount) outputs.remove(outputs.size() - 1);
+    }
+
+    public int getInputCount() {
+        return inputs.size();
+    }
+
+    public int getOutputCount() {
+        return outputs.size();
+    }
+
+    /**
+     * @return the input port, or null if the definition has no such switch
+     */
+    public Input getInput(int port) {
+        return port >= 0 && port < inputs.size() ? inputs.get(port) : null;
+    }
+
+    public List<Input> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * @return value of an output port, or null if undetermined or out of range
+     */
+    public Integer getOutput(int port) {
+        return port >= 0 && port < outputs.size() ? outputs.get(port) : null;
+    }
+
+    /**
+     * @return true if the value changed
+     */
+    public boolean setOutput(int port, Integer value) {
+        Integer old = outputs.set(port, value);
+        return old == null ? value != null : !old.equals(value);
+    }
+}
@@ -1,13 +1,44 @@
 package org.scd.business.service;
 
+import org.scd.business.analysis.CircuitBdd;
+import org.scd.business.analysis.CircuitOptimizer;
+import org.scd.business.analysis.EquivalenceChecker;
+import org.scd.business.analysis.EquivalenceResult;
+import org.scd.business.analysis.OptimizationResult;
 import org.scd.business.model.*;
+import org.scd.business.simulation.CircuitSimulation;
+import org.scd.business.simulation.ClockedSimulator;
+import org.scd.business.simulation.CompiledCircuit;
+import org.scd.business.simulation.ConvergenceReport;
+import org.scd.business.simulation.FaultSimulator;
+import org.scd.business.simulation.LazyTruthTable;
+import org.scd.business.simulation.MonteCarloResult;
+import org.scd.business.simulation.MonteCarloSimulator;
+import org.scd.business.simulation.ParallelTruthTableGenerator;
+import org.scd.business.simulation.SimulationResult;
+import org.scd.business.simulation.TimingSimulator;
+import org.scd.business.simulation.TruthTable;
+import org.scd.business.simulation.TruthTableLayout;
+import org.scd.business.simulation.TruthTablePage;
+import org.scd.business.simulation.VectorPipeline;
+import org.scd.business.simulation.VectorSimulator;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 
 public class CircuitService {
+    
+    /** Most inputs {@link #generateTruthTable()} will materialize: 65536 rows. */
+    public static final int MAX_MATERIALIZED_INPUTS = 16;
+    
     private static CircuitService instance;
     private Circuit currentCircuit;
     private List<Circuit> allCircuits; // Track all circuits in the project
@@ -20,10 +51,14 @@ public class CircuitService {
     // Maps to track UI components linked to business models
     private Map<Integer, Object> uiComponentMap; // componentId -> UI component
     
+    // Simulation state per circuit, created on first use
+    private Map<Circuit, CircuitSimulation> simulations;
+    
     private CircuitService() {
         currentCircuit = new Circuit();
         allCircuits = new ArrayList<>();
         uiComponentMap = new HashMap<>();
+        simulations = new IdentityHashMap<>();
     }
     
     public static CircuitService getInstance() {
@@ -66,6 +101,12 @@ public class CircuitService {
             case "NOT":
                 gate = new Not(id, positionX, positionY);
                 break;
+            case "DFF":
+                gate = new DFlipFlop(id, positionX, positionY);
+                break;
+            case "LATCH":
+                gate = new Latch(id, positionX, positionY);
+                break;
             default:
                 throw new IllegalArgumentException("Unknown gate type: " + gateType);
         }
@@ -87,8 +128,58 @@ public class CircuitService {
         return switchComp;
     }
     
+    public Clock addClock(int positionX, int positionY) {
+        Clock clock = new Clock(generateComponentId(), positionX, positionY);
+        currentCircuit.addClock(clock);
+        return clock;
+    }
+    
+    /**
+     * Places another circuit in the current one as a single component whose
+     * ports are the definition's switches and LEDs. The definition is shared,
+     * not copied, so later edits to it apply to every instance.
+     *
+     * @throws IllegalArgumentException if the placement would nest subcircuits
+     */
+    public SubcircuitInstance addSubcircuit(Circuit definition, int positionX, int positionY) {
+        checkCanPlace(definition);
+        SubcircuitInstance instance = new SubcircuitInstance(generateComponentId(), definition, positionX, positionY);
+        currentCircuit.addSubcircuit(instance);
+        return instance;
+    }
+    
  
+    /**
+     * Definitions are evaluated flat, so a circuit may either contain
+     * instances or be placed as one, never both.
+     */
+    private void checkCanPlace(Circuit definition) {
+        if (definition == currentCircuit) {
+            throw new IllegalArgumentException("A circuit cannot contain an instance of itself");
+        }
+        if (!definition.getSubcircuits().isEmpty()) {
+            throw new IllegalArgumentException("Circuit " + definition.getCircuitName()
+                    + " contains subcircuits and cannot be used as a definition");
+        }
+        for (Circuit circuit : allCircuits) {
+            for (SubcircuitInstance instance : circuit.getSubcircuits()) {
+                if (instance.getDefinition() == currentCircuit) {
+                    throw new IllegalArgumentException("Circuit " + currentCircuit.getCircuitName()
+                            + " is placed in " + circuit.getCircuitName() + " and cannot contain subcircuits");
+                }
+            }
+        }
+    }
+    
     public Connector addConnector(int sourceId, int targetId, int targetInputIndex, String color) {
+        return addConnector(sourceId, 0, targetId, targetInputIndex, color);
+    }
+    
+    /**
+     * Adds a connector from one output port of a source; only subcircuit
+     * instances have ports other than 0.
+     */
+    public Connector addConnector(int sourceId, int sourceOutputIndex, int targetId, int targetInputIndex, String color) {
         Connector connector = new Connector(
             generateConnectorId(), 
             sourceId, 
@@ -96,25 +187,31 @@ public class CircuitService {
             targetInputIndex, 
             color
         );
+        connector.setSourceOutputIndex(sourceOutputIndex);
         currentCircuit.addConnector(connector);
-        
-        // Update target input connection
-        Gate targetGate = findGate(targetId);
-        if (targetGate != null) {
-            Input input = (targetInputIndex == 0) ? targetGate.getInput1() : targetGate.getInput2();
-            if (input != null) {
-                input.setSourceComponentId(sourceId);
-            }
-        } else {
-            LED targetLED = findLED(targetId);
-            if (targetLED != null) {
-                targetLED.getInput().setSourceComponentId(sourceId);
-            }
-        }
-        
+        connectTargetInput(connector);
         return connector;
     }
     
+    /**
+     * Marks the input a connector feeds as driven by the connector's source.
+     */
+    private void connectTargetInput(Connector connector) {
+        Component target = currentCircuit.findComponentById(connector.getTargetComponentId());
+        Input input = null;
+        if (target instanceof Gate) {
+            Gate gate = (Gate) target;
+            input = (connector.getTargetInputIndex() == 0) ? gate.getInput1() : gate.getInput2();
+        } else if (target instanceof LED) {
+            input = ((LED) target).getInput();
+        } else if (target instanceof SubcircuitInstance) {
+            input = ((SubcircuitInstance) target).getInput(connector.getTargetInputIndex());
+        }
+        if (input != null) {
+            input.setSourceComponentId(connector.getSourceComponentId());
+        }
+    }
+    
  
     public void removeGate(int gateId) {
         currentCircuit.removeGate(gateId);
@@ -132,6 +229,16 @@ public class CircuitService {
         uiComponentMap.remove(switchId);
     }
     
+    public void removeClock(int clockId) {
+        currentCircuit.removeClock(clockId);
+        uiComponentMap.remove(clockId);
+    }
+    
+    public void removeSubcircuit(int instanceId) {
+        currentCircuit.removeSubcircuit(instanceId);
+        uiComponentMap.remove(instanceId);
+    }
+    
  
     public void removeConnector(int connectorId) {
         currentCircuit.removeConnector(connectorId);
@@ -151,6 +258,10 @@ public class CircuitService {
         return currentCircuit.findSwitchById(switchId);
     }
     
+    public SubcircuitInstance findSubcircuit(int instanceId) {
+        return currentCircuit.findSubcircuitById(instanceId);
+    }
+    
     /**
      * Update the position of a gate in the model
      */
@@ -173,215 +284,285 @@ public class CircuitService {
         }
     }
 
+    /**
+     * Update the position of a subcircuit instance in the model
+     */
+    public void updateSubcircuitPosition(int instanceId, int x, int y) {
+        SubcircuitInstance instance = findSubcircuit(instanceId);
+        if (instance != null) {
+            instance.setPositionX(x);
+            instance.setPositionY(y);
+        }
+    }
+
     public void setGateInput(int gateId, int inputIndex, Integer value, Integer sourceComponentId) {
-        Gate gate = findGate(gateId);
-        if (gate != null) {
-            Input input = (inputIndex == 0) ? gate.getInput1() : gate.getInput2();
-            if (input != null) {
-                input.setValue(value);
-                input.setSourceComponentId(sourceComponentId);
-                calculateCircuit();
-            }
+        if (currentCircuit.setGateInput(gateId, inputIndex, value, sourceComponentId)) {
+            propagateChange(gateId);
         }
     }
     
   
     public void setLEDInput(int ledId, Integer value, Integer sourceComponentId) {
-        LED led = findLED(ledId);
-        if (led != null) {
-            led.getInput().setValue(value);
-            led.getInput().setSourceComponentId(sourceComponentId);
-            led.calculate();
+        if (currentCircuit.setLEDInput(ledId, value, sourceComponentId)) {
+            findLED(ledId).calculate();
         }
     }
     
-   
-    public void calculateCircuit() {
-        // Propagate signals through wires first
-        boolean changed = true;
-        int maxIterations = 10; // Prevent infinite loops
-        int iterations = 0;
-        
-        while (changed && iterations < maxIterations) {
-            changed = propagateSignals();
-            
-            // Calculate all gates
-            for (Gate gate : currentCircuit.getGates()) {
-                Integer oldOutput = gate.getOutput();
-                gate.calculate();
-                Integer newOutput = gate.getOutput();
-                
-                if (oldOutput != newOutput && (oldOutput == null || !oldOutput.equals(newOutput))) {
-                    changed = true;
-                }
-            }
-            iterations++;
+    /**
+     * Recomputes the whole current circuit.
+     * 
+     * @return which feedback loops settled and which kept oscillating
+     */
+    public ConvergenceReport calculateCircuit() {
+        return simulationOf(currentCircuit).calculate();
+    }
+    
+    /**
+     * Settles every circuit of the project on the common fork/join pool.
+     * 
+     * @return one result per circuit, in project order
+     */
+    public List<SimulationResult> simulateAll() {
+        return simulateAll(ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Settles every circuit of the project independently, one task per
+     * circuit on the given executor. A circuit whose simulation throws gets a
+     * failed result; the others are unaffected.
+     * 
+     * @param executor pool the circuits run on, for example a virtual-thread executor
+     * @return one result per circuit, in project order
+     */
+    public List<SimulationResult> simulateAll(ExecutorService executor) {
+        List<Circuit> circuits = new ArrayList<>(allCircuits);
+        List<Future<SimulationResult>> futures = new ArrayList<>(circuits.size());
+        for (Circuit circuit : circuits) {
+            futures.add(executor.submit(simulationOf(circuit)::simulate));
         }
         
-        // Final calculation for LEDs
-        for (LED led : currentCircuit.getLeds()) {
-            led.calculate();
+        List<SimulationResult> results = new ArrayList<>(circuits.size());
+        for (int i = 0; i < circuits.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                results.add(SimulationResult.failed(circuits.get(i), e.getCause()));
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while simulating the project", e);
+            }
         }
+        return results;
     }
     
-    private boolean propagateSignals() {
-        boolean changed = false;
-        for (Connector connector : currentCircuit.getConnectors()) {
-            Integer sourceOutput = getComponentOutput(connector.getSourceComponentId());
-            
-            // Update target input
-            Gate targetGate = findGate(connector.getTargetComponentId());
-            if (targetGate != null) {
-                Input targetInput = (connector.getTargetInputIndex() == 0) ? 
-                                    targetGate.getInput1() : targetGate.getInput2();
-                
-                if (targetInput != null) {
-                    Integer currentValue = targetInput.getValue();
-                    if (currentValue != sourceOutput && (currentValue == null || !currentValue.equals(sourceOutput))) {
-                        targetInput.setValue(sourceOutput);
-                        changed = true;
-                    }
-                }
-            } else {
-                LED targetLED = findLED(connector.getTargetComponentId());
-                if (targetLED != null) {
-                    Integer currentValue = targetLED.getInput().getValue();
-                    if (currentValue != sourceOutput && (currentValue == null || !currentValue.equals(sourceOutput))) {
-                        targetLED.getInput().setValue(sourceOutput);
-                        changed = true;
-                    }
-                }
-            }
-        }
-        return changed;
+    /**
+     * Starts a timing simulation of the current circuit from its present
+     * steady state. Set per-type delays and schedule switch changes on the
+     * returned simulator, then run it.
+     * 
+     * @return a simulator with the default gate delays
+     */
+    public TimingSimulator openTimingSimulation() {
+        return new TimingSimulator(getCompiledCircuit());
+    }
+    
+    /**
+     * Runs the current circuit for a number of clock cycles without any UI
+     * involvement, starting from the state in the model and writing the final
+     * state back to it. Only logic that changes on a clock edge is recomputed.
+     * 
+     * @param cycles number of full clock cycles to run
+     * @return the simulator, whose counters give the accumulated throughput
+     */
+    public ClockedSimulator runCycles(long cycles) {
+        return simulationOf(currentCircuit).runCycles(cycles);
+    }
+    
+    /**
+     * Re-evaluates only the logic driven by a component whose value changed,
+     * instead of the whole circuit.
+     * 
+     * @param componentId id of the toggled switch or edited gate
+     * @return ids of the components whose inputs or output changed
+     */
+    public Set<Integer> propagateChange(int componentId) {
+        return simulationOf(currentCircuit).propagateChange(componentId);
+    }
+    
+    /**
+     * Returns the components of the current circuit that a change of the
+     * given component can affect, so only they need to be redrawn. Cached
+     * until the wiring changes.
+     * 
+     * @param componentId id of a switch or any other component
+     * @return ids of the component and its transitive fanout
+     */
+    public Set<Integer> getFanoutCone(int componentId) {
+        return simulationOf(currentCircuit).getFanoutCone(componentId);
+    }
+    
+    /**
+     * Returns the compiled form of the current circuit, recompiling it only
+     * after a structural change.
+     */
+    public CompiledCircuit getCompiledCircuit() {
+        return simulationOf(currentCircuit).getCompiledCircuit();
+    }
+    
+    /**
+     * Returns the simulation state of a circuit, creating it on first use.
+     */
+    private CircuitSimulation simulationOf(Circuit circuit) {
+        return simulations.computeIfAbsent(circuit, CircuitSimulation::new);
     }
     
   
+    /**
+     * Builds the complete truth table of the current circuit in memory: a
+     * header row followed by one row of "0"/"1" strings per input combination.
+     * Large circuits should use {@link #openTruthTable()} instead.
+     * 
+     * @throws IllegalStateException if the circuit has more than
+     *                               {@link #MAX_MATERIALIZED_INPUTS} inputs
+     */
     public List<String[]> generateTruthTable() {
-        List<String[]> table = new ArrayList<>();
+        LazyTruthTable truthTable = openTruthTable();
+        TruthTableLayout layout = truthTable.getLayout();
+        int numInputs = layout.getInputCount();
+        int numOutputs = layout.getOutputCount();
         
-        // 1. Identify Circuit Inputs (Unconnected inputs)
-        List<Input> circuitInputs = new ArrayList<>();
-        List<String> inputLabels = new ArrayList<>();
-        
-        for (Gate gate : currentCircuit.getGates()) {
-            // Check Input 1
-            if (gate.getInput1() != null && !gate.getInput1().isConnected()) {
-                circuitInputs.add(gate.getInput1());
-                inputLabels.add(gate.getGateType() + " " + gate.getComponentId() + " In 1");
-            }
-            // Check Input 2
-            if (gate.getInput2() != null && !gate.getInput2().isConnected()) {
-                circuitInputs.add(gate.getInput2());
-                inputLabels.add(gate.getGateType() + " " + gate.getComponentId() + " In 2");
-            }
-        }
-        
-        // Add Switches as inputs
-        List<Switch> circuitSwitches = currentCircuit.getSwitches();
-        for (Switch switchComp : circuitSwitches) {
-            inputLabels.add("Switch " + switchComp.getComponentId());
-        }
-        
-        // 2. Identify Circuit Outputs (LEDs + Gates not acting as sources)
-        List<Object> circuitOutputs = new ArrayList<>(); // Gate or LED
-        List<String> outputLabels = new ArrayList<>();
-        
-        // Find all components that are acting as sources
-        java.util.Set<Integer> sourceComponentIds = new java.util.HashSet<>();
-        for (Connector connector : currentCircuit.getConnectors()) {
-            sourceComponentIds.add(connector.getSourceComponentId());
+        if (numInputs > MAX_MATERIALIZED_INPUTS) {
+            throw new IllegalStateException("Truth table with " + numInputs + " inputs is too large to"
+                + " materialize (at most " + MAX_MATERIALIZED_INPUTS + "); use openTruthTable()");
         }
         
-        // Add Gates that are NOT sources as outputs
-        for (Gate gate : currentCircuit.getGates()) {
-            if (!sourceComponentIds.contains(gate.getComponentId())) {
-                circuitOutputs.add(gate);
-                outputLabels.add(gate.getGateType() + " " + gate.getComponentId() + " Out");
-            }
-        }
+        List<String[]> table = new ArrayList<>((int) truthTable.getRowCount() + 1);
+        table.add(layout.getHeader());
         
-        // Add all LEDs as outputs
-        for (LED led : currentCircuit.getLeds()) {
-            circuitOutputs.add(led);
-            outputLabels.add("LED " + led.getComponentId());
-        }
-        
-        // 3. Build Header
-        List<String> header = new ArrayList<>();
-        header.addAll(inputLabels);
-        header.addAll(outputLabels);
-        table.add(header.toArray(new String[0]));
-        
-        // 4. Save Current State
-        Map<Input, Integer> savedState = new HashMap<>();
-        for (Input input : circuitInputs) {
-            savedState.put(input, input.getValue());
-        }
-        
-        Map<Switch, Boolean> savedSwitchState = new HashMap<>();
-        for (Switch switchComp : circuitSwitches) {
-            savedSwitchState.put(switchComp, switchComp.isOn());
-        }
-        
-        // 5. Run Simulation
-        int numInputs = circuitInputs.size() + circuitSwitches.size();
-        int numRows = 1 << numInputs; // 2^n
-        
-        // Limit max rows to prevent hanging on large circuits (e.g., max 10 inputs = 1024 rows)
-        if (numInputs > 10) {
-            numRows = 1024; 
-        }
-        
-        for (int i = 0; i < numRows; i++) {
-            List<String> row = new ArrayList<>();
-            
-            // Set Inputs
-            for (int j = 0; j < numInputs; j++) {
-                // Use MSB first for standard truth table order
-                int bit = (i >> (numInputs - 1 - j)) & 1;
-                
-                if (j < circuitInputs.size()) {
-                    circuitInputs.get(j).setValue(bit);
-                } else {
-                    int switchIndex = j - circuitInputs.size();
-                    circuitSwitches.get(switchIndex).setOn(bit == 1);
+        java.util.Iterator<TruthTablePage> pages = truthTable.pages();
+        while (pages.hasNext()) {
+            TruthTablePage page = pages.next();
+            for (int lane = 0; lane < page.getRowCount(); lane++) {
+                String[] row = new String[numInputs + numOutputs];
+                for (int j = 0; j < numInputs; j++) {
+                    row[j] = page.getInput(lane, j) ? "1" : "0";
                 }
-                row.add(String.valueOf(bit));
-            }
-            
-            // Calculate Circuit
-            calculateCircuit();
-            
-            // Read Outputs
-            for (Object outputComponent : circuitOutputs) {
-                if (outputComponent instanceof Gate) {
-                    Integer val = ((Gate) outputComponent).getOutput();
-                    row.add(val != null ? val.toString() : "0");
-                } else if (outputComponent instanceof LED) {
-                    row.add(((LED) outputComponent).isOn() ? "1" : "0");
+                // An undetermined gate output is shown as 0
+                for (int k = 0; k < numOutputs; k++) {
+                    row[numInputs + k] = page.getOutput(lane, k) ? "1" : "0";
                 }
+                table.add(row);
             }
-            
-            table.add(row.toArray(new String[0]));
         }
         
-        // 6. Restore State
-        for (Map.Entry<Input, Integer> entry : savedState.entrySet()) {
-            entry.getKey().setValue(entry.getValue());
-        }
-        for (Map.Entry<Switch, Boolean> entry : savedSwitchState.entrySet()) {
-            entry.getKey().setOn(entry.getValue());
-        }
-        calculateCircuit(); // Recalculate to restore original state
-        
         return table;
     }
     
+    /**
+     * Opens the truth table of the current circuit without computing it.
+     * Inputs are the unconnected gate inputs followed by the switches; outputs
+     * are the gates not acting as sources followed by the LEDs. Rows are
+     * evaluated 64 at a time on a compiled copy when they are first read, so
+     * the object model (and what the canvas shows) is left untouched.
+     * 
+     * @return a lazily evaluated view of every row, without any row cap
+     */
+    public LazyTruthTable openTruthTable() {
+        return new LazyTruthTable(TruthTableLayout.of(getCompiledCircuit()));
+    }
+    
+    /**
+     * Prepares the current circuit for batch runs over input vectors. Columns
+     * are in the same order as in {@link #openTruthTable()}; the object model
+     * is left untouched.
+     * 
+     * @return a simulator starting every vector from the current state
+     */
+    public VectorSimulator openVectorSimulation() {
+        return new VectorSimulator(TruthTableLayout.of(getCompiledCircuit()));
+    }
+    
+    /**
+     * Prepares the current circuit for streaming very long vector runs in
+     * bounded memory, with back-pressure from the result sink.
+     * 
+     * @return a pipeline with the default batch size and buffering
+     */
+    public VectorPipeline openVectorPipeline() {
+        return new VectorPipeline(openVectorSimulation());
+    }
+    
+    /**
+     * Samples random assignments of the truth table inputs of the current
+     * circuit instead of enumerating them. The object model is left untouched.
+     * 
+     * @param vectors number of random vectors
+     * @param seed seed of the random vectors
+     * @return output signal probabilities, gate toggle rates and throughput
+     */
+    public MonteCarloResult runMonteCarlo(long vectors, long seed) {
+        return new MonteCarloSimulator(TruthTableLayout.of(getCompiledCircuit())).run(vectors, seed);
+    }
+    
+    /**
+     * Prepares single stuck-at fault simulation of the current circuit, with
+     * the columns of {@link #openTruthTable()}. The object model is left
+     * untouched.
+     * 
+     * @return a simulator with every gate pin fault still undetected
+     */
+    public FaultSimulator openFaultSimulation() {
+        return new FaultSimulator(TruthTableLayout.of(getCompiledCircuit()));
+    }
+    
+    /**
+     * Runs the structural optimizer over the current circuit. The circuit
+     * itself is not changed; the result holds an optimized copy whose LEDs
+     * behave the same, for headless simulation.
+     */
+    public OptimizationResult optimizeCircuit() {
+        return new CircuitOptimizer().optimize(currentCircuit);
+    }
+    
+    /**
+     * Checks whether two circuits light their LEDs the same way for every
+     * combination of their switches, pairing switches and LEDs by order.
+     * 
+     * @return a proof of equivalence or a counterexample vector
+     */
+    public EquivalenceResult checkEquivalence(Circuit original, Circuit revised) {
+        return new EquivalenceChecker().check(original, revised);
+    }
+    
+    /**
+     * Builds binary decision diagrams for the outputs of the current circuit,
+     * so tautology, satisfiability, equality and minterm counts can be
+     * answered without enumerating rows. Inputs and outputs are those of
+     * {@link #openTruthTable()}.
+     * 
+     * @throws IllegalArgumentException if the circuit is not combinational
+     */
+    public CircuitBdd buildBdd() {
+        return CircuitBdd.build(TruthTableLayout.of(getCompiledCircuit()));
+    }
+    
+    /**
+     * Computes every row of the current circuit's truth table, splitting the
+     * rows across all cores. Columns are in the same order as in
+     * {@link #openTruthTable()}.
+     * 
+     * @return the complete table, one bit per output cell
+     */
+    public TruthTable generateTruthTableParallel() {
+        return new ParallelTruthTableGenerator().generate(TruthTableLayout.of(getCompiledCircuit()));
+    }
+    
    
     public void clearCircuit() {
         currentCircuit = new Circuit();
         allCircuits.clear();
+        simulations.clear();
         componentIdCounter = 0;
         connectorIdCounter = 0;
         uiComponentMap.clear();
@@ -436,7 +617,11 @@ public class CircuitService {
             return led.isOn() ? 1 : 0;
         }
         Switch switchComp = findSwitch(componentId);
-        return switchComp != null ? switchComp.getOutput() : 0;
+        if (switchComp != null) {
+            return switchComp.getOutput();
+        }
+        Clock clock = currentCircuit.findClockById(componentId);
+        return clock != null ? clock.getOutput() : 0;
     }
     
    
@@ -569,6 +754,8 @@ public class CircuitService {
         public List<Gate> gates;
         public List<LED> leds;
         public List<Switch> switches;
+        public List<Clock> clocks;
+        public List<SubcircuitInstance> subcircuits;
         public List<Connector> connectors;
         public Map<Integer, Integer> idMapping; // old ID -> new ID
         
@@ -576,6 +763,8 @@ public class CircuitService {
             gates = new ArrayList<>();
             leds = new ArrayList<>();
             switches = new ArrayList<>();
+            clocks = new ArrayList<>();
+            subcircuits = new ArrayList<>();
             connectors = new ArrayList<>();
             idMapping = new HashMap<>();
         }
@@ -625,6 +814,10 @@ public class CircuitService {
                 clonedGate = new Or((Or)sourceGate, newId, offsetX, offsetY);
             } else if (gateType.equals("NOT")) {
                 clonedGate = new Not((Not)sourceGate, newId, offsetX, offsetY);
+            } else if (gateType.equals("DFF")) {
+                clonedGate = new DFlipFlop((DFlipFlop)sourceGate, newId, offsetX, offsetY);
+            } else if (gateType.equals("LATCH")) {
+                clonedGate = new Latch((Latch)sourceGate, newId, offsetX, offsetY);
             }
             
             if (clonedGate != null) {
@@ -651,11 +844,32 @@ public class CircuitService {
             cloned.switches.add(clonedSwitch);
         }
         
-        // Clone connectors with remapped IDs
+        // Clone clocks with new IDs
+        for (Clock sourceClock : sourceCircuit.getClocks()) {
+            int newId = generateComponentId();
+            cloned.idMapping.put(sourceClock.getComponentId(), newId);
+            
+            Clock clonedClock = new Clock(sourceClock, newId, offsetX, offsetY);
+            cloned.clocks.add(clonedClock);
+        }
+        
+        // Clone subcircuit instances; the copies share their definitions
+        for (SubcircuitInstance sourceInstance : sourceCircuit.getSubcircuits()) {
+            int newId = generateComponentId();
+            cloned.idMapping.put(sourceInstance.getComponentId(), newId);
+            
+            SubcircuitInstance clonedInstance = new SubcircuitInstance(sourceInstance, newId, offsetX, offsetY);
+            cloned.subcircuits.add(clonedInstance);
+        }
+        
+        // Clone connectors with remapped IDs; wires to components outside the circuit are dropped
         for (Connector sourceConnector : sourceCircuit.getConnectors()) {
+            Integer newSourceId = cloned.idMapping.get(sourceConnector.getSourceComponentId());
+            Integer newTargetId = cloned.idMapping.get(sourceConnector.getTargetComponentId());
+            if (newSourceId == null || newTargetId == null) {
+                continue;
+            }
             int newConnectorId = generateConnectorId();
-            int newSourceId = cloned.idMapping.get(sourceConnector.getSourceComponentId());
-            int newTargetId = cloned.idMapping.get(sourceConnector.getTargetComponentId());
             
             Connector clonedConnector = new Connector(sourceConnector, newConnectorId, newSourceId, newTargetId);
             cloned.connectors.add(clonedConnector);
@@ -672,6 +886,31 @@ public class CircuitService {
      * @param connectors List of connectors to merge
      */
     public void mergeComponentsIntoCurrentCircuit(List<Gate> gates, List<LED> leds, List<Switch> switches, List<Connector> connectors) {
+        mergeComponentsIntoCurrentCircuit(gates, leds, switches, new ArrayList<>(), connectors);
+    }
+    
+    /**
+     * Merges cloned components, including clocks, into the current circuit.
+     */
+    public void mergeComponentsIntoCurrentCircuit(List<Gate> gates, List<LED> leds, List<Switch> switches,
+                                                  List<Clock> clocks, List<Connector> connectors) {
+        mergeComponentsIntoCurrentCircuit(gates, leds, switches, clocks, new ArrayList<>(), connectors);
+    }
+    
+    /**
+     * Merges cloned components, including clocks and subcircuit instances,
+     * into the current circuit.
+     *
+     * @throws IllegalArgumentException if an instance would nest subcircuits;
+     *         nothing is merged then
+     */
+    public void mergeComponentsIntoCurrentCircuit(List<Gate> gates, List<LED> leds, List<Switch> switches,
+                                                  List<Clock> clocks, List<SubcircuitInstance> subcircuits,
+                                                  List<Connector> connectors) {
+        for (SubcircuitInstance instance : subcircuits) {
+            checkCanPlace(instance.getDefinition());
+        }
+        
         // Add all gates
         for (Gate gate : gates) {
             currentCircuit.addGate(gate);
@@ -687,24 +926,20 @@ public class CircuitService {
             currentCircuit.addSwitch(switchComp);
         }
         
+        // Add all clocks
+        for (Clock clock : clocks) {
+            currentCircuit.addClock(clock);
+        }
+        
+        // Add all subcircuit instances
+        for (SubcircuitInstance instance : subcircuits) {
+            currentCircuit.addSubcircuit(instance);
+        }
+        
         // Add all connectors and establish connections
         for (Connector connector : connectors) {
             currentCircuit.addConnector(connector);
-            
-            // Update target input connection
-            Gate targetGate = currentCircuit.findGateById(connector.getTargetComponentId());
-            if (targetGate != null) {
-                Input input = (connector.getTargetInputIndex() == 0) ? 
-                              targetGate.getInput1() : targetGate.getInput2();
-                if (input != null) {
-                    input.setSourceComponentId(connector.getSourceComponentId());
-                }
-            } else {
-                LED targetLED = currentCircuit.findLEDById(connector.getTargetComponentId());
-                if (targetLED != null) {
-                    targetLED.getInput().setSourceComponentId(connector.getSourceComponentId());
-                }
-            }
+            connectTargetInput(connector);
         }
     }
   
@@ -730,6 +965,7 @@ public class CircuitService {
         
         // Find and remove the circuit
         boolean removed = allCircuits.removeIf(c -> c.getCircuitId() == circuitId);
+        simulations.keySet().removeIf(c -> c.getCircuitId() == circuitId);
         
         if (removed) {
             // If we deleted the current circuit, switch to the main circuit
@@ -753,6 +989,7 @@ public class CircuitService {
         }
         
         this.allCircuits = new ArrayList<>(circuits);
+        simulations.clear();
         
         // Set current circuit to the first one (Main Circuit)
         if (!this.allCircuits.isEmpty()) {
@@ -797,6 +1034,16 @@ public class CircuitService {
                     maxComponentId = switchComp.getComponentId();
                 }
             }
+            for (Clock clock : circuit.getClocks()) {
+                if (clock.getComponentId() > maxComponentId) {
+                    maxComponentId = clock.getComponentId();
+                }
+            }
+            for (SubcircuitInstance instance : circuit.getSubcircuits()) {
+                if (instance.getComponentId() > maxComponentId) {
+                    maxComponentId = instance.getComponentId();
+                }
+            }
             
             // Check connector IDs
             for (Connector connector : circuit.getConnectors()) {
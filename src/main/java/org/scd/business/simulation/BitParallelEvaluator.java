@@ -0,0 +1,243 @@
+package org.scd.business.simulation;
+
+import org.scd.business.model.*;
+
+import static org.scd.business.simulation.CompiledCircuit.*;
+
+
+/**
+ * Bit-sliced evaluator for a {@link CompiledCircuit}: every signal is a
+ * {@code long} carrying 64 independent input patterns, one per bit lane, so an
+ * AND, OR or NOT is a single word operation for all 64 patterns.
+ *
+ * Signals are dual-rail to keep the three-valued semantics of the object
+ * model: {@code known} has a lane set when the value is 0 or 1, and
+ * {@code value} has it set when the value is 1. As in {@link Gate#calculate()}
+ * an unknown input makes a gate output unknown, and an LED lights only for a
+ * known 1.
+ */
+public class BitParallelEvaluator {
+
+    /** Number of patterns evaluated at once. */
+    public static final int LANES = 64;
+
+    // Lane patterns for the six lowest row bits: lane l holds bit b of row l
+    private static final long[] LOW_BIT_PATTERNS = {
+        0xAAAAAAAAAAAAAAAAL,
+        0xCCCCCCCCCCCCCCCCL,
+        0xF0F0F0F0F0F0F0F0L,
+        0xFF00FF00FF00FF00L,
+        0xFFFF0000FFFF0000L,
+        0xFFFFFFFF00000000L
+    };
+
+    private final CompiledCircuit netlist;
+    private final long[] value;
+    private final long[] known;
+    private final long[] directValue;
+    private final long[] directKnown;
+    private boolean converged = true;
+
+    public BitParallelEvaluator(CompiledCircuit netlist) {
+        this.netlist = netlist;
+        this.value = new long[netlist.nodeCount];
+        this.known = new long[netlist.nodeCount];
+        this.directValue = new long[netlist.nodeCount * 2];
+        this.directKnown = new long[netlist.nodeCount * 2];
+    }
+
+    private BitParallelEvaluator(BitParallelEvaluator source) {
+        this.netlist = source.netlist;
+        this.value = source.value.clone();
+        this.known = source.known.clone();
+        this.directValue = source.directValue.clone();
+        this.directKnown = source.directKnown.clone();
+    }
+
+    /**
+     * @return an independent evaluator starting from the same state, for use
+     *         on another thread
+     */
+    public BitParallelEvaluator copy() {
+        return new BitParallelEvaluator(this);
+    }
+
+    /**
+     * Overwrites this evaluator's state with another one's without allocating.
+     * Both must be built on the same netlist.
+     */
+    public void copyStateFrom(BitParallelEvaluator other) {
+        System.arraycopy(other.value, 0, value, 0, value.length);
+        System.arraycopy(other.known, 0, known, 0, known.length);
+        System.arraycopy(other.directValue, 0, directValue, 0, directValue.length);
+        System.arraycopy(other.directKnown, 0, directKnown, 0, directKnown.length);
+    }
+
+    public CompiledCircuit getNetlist() {
+        return netlist;
+    }
+
+    /**
+     * Loads the current object model state into all 64 lanes.
+     */
+    public void load() {
+        CompiledEvaluator scalar = new CompiledEvaluator(netlist);
+        scalar.load();
+        for (int i = 0; i < netlist.nodeCount; i++) {
+            setValue(i, scalar.getValue(i));
+            for (int slot = 0; slot < 2; slot++) {
+                if (netlist.source[2 * i + slot] == UNDRIVEN) {
+                    setDirectInput(i, slot, scalar.input(i, slot));
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates all 64 lanes once in topological order, then iterates each
+     * feedback loop until no lane changes or the pass limit is reached.
+     */
+    public void evaluate() {
+        int feedbackStart = netlist.feedbackStart;
+        for (int i = 0; i < feedbackStart; i++) {
+            compute(i);
+        }
+
+        converged = true;
+        for (int b = 0; b < netlist.cyclic.length; b++) {
+            int from = netlist.blockStart[b];
+            int to = netlist.blockStart[b + 1];
+            if (!netlist.cyclic[b]) {
+                compute(from);
+                continue;
+            }
+
+            boolean changed = true;
+            for (int pass = 0; changed && pass < LevelizedEvaluator.MAX_FEEDBACK_PASSES; pass++) {
+                changed = false;
+                for (int i = from; i < to; i++) {
+                    long oldValue = value[i];
+                    long oldKnown = known[i];
+                    compute(i);
+                    changed |= oldValue != value[i] || oldKnown != known[i];
+                }
+            }
+            converged &= !changed;
+        }
+    }
+
+    /**
+     * @return false if a feedback loop hit the pass limit in any lane during
+     *         the last {@link #evaluate()}
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    /**
+     * Computes one node for all lanes from the current values of its inputs.
+     */
+    void compute(int node) {
+        int s0 = 2 * node;
+        int s1 = s0 + 1;
+        switch (netlist.type[node]) {
+            case AND: {
+                long k = knownOf(s0) & knownOf(s1);
+                known[node] = k;
+                value[node] = valueOf(s0) & valueOf(s1) & k;
+                break;
+            }
+            case OR: {
+                long k = knownOf(s0) & knownOf(s1);
+                known[node] = k;
+                value[node] = (valueOf(s0) | valueOf(s1)) & k;
+                break;
+            }
+            case NOT: {
+                long k = knownOf(s0);
+                known[node] = k;
+                value[node] = ~valueOf(s0) & k;
+                break;
+            }
+            case LED:
+                known[node] = -1L;
+                value[node] = valueOf(s0) & knownOf(s0);
+                break;
+            default:
+                break; // switches hold their value
+        }
+    }
+
+    long valueOf(int slot) {
+        int s = netlist.source[slot];
+        if (s >= 0) return value[s];
+        if (s == MISSING) return 0L;
+        return directValue[slot];
+    }
+
+    long knownOf(int slot) {
+        int s = netlist.source[slot];
+        if (s >= 0) return known[s];
+        if (s == MISSING) return -1L;
+        return directKnown[slot];
+    }
+
+    /**
+     * @return lanes in which the node is a known 1
+     */
+    public long getValue(int node) {
+        return value[node];
+    }
+
+    /**
+     * @return lanes in which the node is 0 or 1 rather than unknown
+     */
+    public long getKnown(int node) {
+        return known[node];
+    }
+
+    /**
+     * Drives a switch (or overrides any node) with a known pattern.
+     */
+    public void setValue(int node, long pattern) {
+        value[node] = pattern;
+        known[node] = -1L;
+    }
+
+    /**
+     * Sets one scalar value in every lane of a node.
+     */
+    public void setValue(int node, byte v) {
+        value[node] = (v == HIGH) ? -1L : 0L;
+        known[node] = (v == UNKNOWN) ? 0L : -1L;
+    }
+
+    /**
+     * Sets a known pattern on an input slot that is not driven by a connector.
+     */
+    public void setDirectInput(int node, int slot, long pattern) {
+        directValue[2 * node + slot] = pattern;
+        directKnown[2 * node + slot] = -1L;
+    }
+
+    /**
+     * Sets one scalar value in every lane of an undriven input slot.
+     */
+    public void setDirectInput(int node, int slot, byte v) {
+        directValue[2 * node + slot] = (v == HIGH) ? -1L : 0L;
+        directKnown[2 * node + slot] = (v == UNKNOWN) ? 0L : -1L;
+    }
+
+    /**
+     * Lane pattern of one bit of the row number for the block of 64 rows
+     * starting at {@code baseRow} (a multiple of 64).
+     *
+     * @param bit bit position within the row number, 0 = least significant
+     */
+    public static long rowPattern(int bit, long baseRow) {
+        if (bit < 6) {
+            return LOW_BIT_PATTERNS[bit];
+        }
+        return ((baseRow >>> bit) & 1L) != 0 ? -1L : 0L;
+    }
+}
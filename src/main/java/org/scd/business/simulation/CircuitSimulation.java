@@ -0,0 +1,137 @@
+package org.scd.business.simulation;
+
+import org.scd.business.model.Circuit;
+import org.scd.business.model.Connector;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Simulation state of one circuit: its compiled netlist, the event-driven
+ * and clocked simulators built for it and the fanout cones asked for so far,
+ * each rebuilt only after a structural change.
+ *
+ * Every circuit has its own instance, so different circuits can be simulated
+ * on different threads. Calls on one instance are serialized, since they all
+ * write to the same object model.
+ */
+public class CircuitSimulation {
+
+    private final Circuit circuit;
+    private EventDrivenSimulator simulator;
+    private CompiledCircuit compiledCircuit;
+    private ClockedSimulator clockedSimulator;
+    private Map<Integer, Set<Integer>> cones = new HashMap<>();
+    private int conesVersion = -1;
+
+    public CircuitSimulation(Circuit circuit) {
+        this.circuit = circuit;
+    }
+
+    public Circuit getCircuit() {
+        return circuit;
+    }
+
+    /**
+     * Recomputes the whole circuit.
+     *
+     * @return which feedback loops settled and which kept oscillating
+     */
+    public synchronized ConvergenceReport calculate() {
+        return getSimulator().settle();
+    }
+
+    /**
+     * Recomputes the whole circuit and records the outcome.
+     *
+     * @return LED states and loop convergence of the settled circuit
+     */
+    public synchronized SimulationResult simulate() {
+        long start = System.nanoTime();
+        ConvergenceReport report = calculate();
+        return SimulationResult.of(circuit, report, System.nanoTime() - start);
+    }
+
+    /**
+     * Re-evaluates only the logic driven by a component whose value changed.
+     *
+     * @return ids of the components whose inputs or output changed
+     */
+    public synchronized Set<Integer> propagateChange(int componentId) {
+        return getSimulator().propagateFrom(componentId);
+    }
+
+    /**
+     * Returns every component a change of the given component can reach
+     * through the wiring, including storage elements and what they drive.
+     * The cone is computed once and cached until the wiring changes.
+     *
+     * @return ids of the component and its transitive fanout, in breadth-first order
+     */
+    public synchronized Set<Integer> getFanoutCone(int componentId) {
+        if (conesVersion != circuit.getStructureVersion()) {
+            cones = new HashMap<>();
+            conesVersion = circuit.getStructureVersion();
+        }
+        Set<Integer> cone = cones.get(componentId);
+        if (cone == null) {
+            cone = new LinkedHashSet<>();
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            cone.add(componentId);
+            queue.add(componentId);
+            while (!queue.isEmpty()) {
+                for (Connector connector : circuit.getFanoutConnectors(queue.poll())) {
+                    int targetId = connector.getTargetComponentId();
+                    if (circuit.findComponentById(targetId) != null && cone.add(targetId)) {
+                        queue.add(targetId);
+                    }
+                }
+            }
+            cone = Collections.unmodifiableSet(cone);
+            cones.put(componentId, cone);
+        }
+        return cone;
+    }
+
+    /**
+     * Runs the circuit for a number of clock cycles, starting from the state
+     * in the model and writing the final state back to it.
+     *
+     * @return the simulator, whose counters give the accumulated throughput
+     */
+    public synchronized ClockedSimulator runCycles(long cycles) {
+        CompiledCircuit netlist = getCompiledCircuit();
+        if (clockedSimulator == null || clockedSimulator.getNetlist() != netlist) {
+            clockedSimulator = new ClockedSimulator(netlist);
+        } else {
+            clockedSimulator.load();
+        }
+        clockedSimulator.runCycles(cycles);
+        clockedSimulator.writeBack();
+        return clockedSimulator;
+    }
+
+    /**
+     * Returns the compiled form of the circuit, recompiling it only after a
+     * structural change.
+     */
+    public synchronized CompiledCircuit getCompiledCircuit() {
+        if (compiledCircuit == null || !compiledCircuit.isCurrent()) {
+            compiledCircuit = CompiledCircuit.compile(circuit);
+        }
+        return compiledCircuit;
+    }
+
+    private EventDrivenSimulator getSimulator() {
+        if (simulator == null) {
+            // Only circuits past the wavefront threshold split their levels across cores
+            simulator = new EventDrivenSimulator(new WavefrontEvaluator(circuit));
+        }
+        return simulator;
+    }
+}
@@ -0,0 +1,256 @@
+package org.scd.business.simulation;
+
+import org.scd.business.model.Component;
+import org.scd.business.model.DFlipFlop;
+
+import static org.scd.business.simulation.CompiledCircuit.*;
+
+
+/**
+ * Headless clocked run over a {@link CompiledCircuit}.
+ *
+ * Each cycle drives every {@link org.scd.business.model.Clock} high and then
+ * low. After each edge only the nodes whose inputs changed are recomputed:
+ * changed nodes put their fanout into per-level buckets, and the buckets are
+ * drained in level order, so every affected node is computed once per edge
+ * after all of its drivers. Nodes on or behind a feedback loop are settled
+ * with the evaluator's block-wise loop iteration whenever one of them is hit.
+ *
+ * Flip-flops and latches are evaluated in two phases after the logic has
+ * settled: all of them sample their D and clock/enable inputs, then all
+ * commit, and the fanout of those that changed is propagated like an edge.
+ * Sampling repeats only while a commit changes another element's inputs, so
+ * a synchronous design takes one sample and commit per edge.
+ *
+ * The simulator counts cycles, node evaluations and the wall-clock time spent
+ * in {@link #runCycles(long)} so batch runs can be sized from the measured
+ * throughput.
+ */
+public class ClockedSimulator {
+
+    private final CompiledCircuit netlist;
+    private final CompiledEvaluator state;
+    private final int[] clockNodes;
+    private final int[] stateNodes;    // flip-flops and latches
+    private final byte[] lastClock;    // per state node: clock level at the previous sample
+    private final byte[] next;         // per state node: sampled value
+
+    private final int[] level;         // level of each levelized node
+    private final int[][] bucket;      // dirty nodes per level
+    private final int[] bucketSize;
+    private final boolean[] dirty;
+    private int dirtyCount;
+    private boolean feedbackDirty;
+
+    private long cycleCount;
+    private long evaluationCount;
+    private long runNanos;
+
+    public ClockedSimulator(CompiledCircuit netlist) {
+        this.netlist = netlist;
+        this.state = new CompiledEvaluator(netlist);
+
+        clockNodes = nodesOfType(netlist, CLOCK, CLOCK);
+        stateNodes = nodesOfType(netlist, DFF, LATCH);
+        lastClock = new byte[stateNodes.length];
+        next = new byte[stateNodes.length];
+
+        int levelCount = netlist.getLevelCount();
+        level = new int[netlist.feedbackStart];
+        bucket = new int[levelCount][];
+        bucketSize = new int[levelCount];
+        for (int l = 0; l < levelCount; l++) {
+            bucket[l] = new int[netlist.levelStart[l + 1] - netlist.levelStart[l]];
+            for (int i = netlist.levelStart[l]; i < netlist.levelStart[l + 1]; i++) {
+                level[i] = l;
+            }
+        }
+        dirty = new boolean[netlist.nodeCount];
+
+        load();
+    }
+
+    private static int[] nodesOfType(CompiledCircuit netlist, byte from, byte to) {
+        int count = 0;
+        for (int i = 0; i < netlist.nodeCount; i++) {
+            if (netlist.type[i] >= from && netlist.type[i] <= to) count++;
+        }
+        int[] nodes = new int[count];
+        for (int i = 0, n = 0; i < netlist.nodeCount; i++) {
+            if (netlist.type[i] >= from && netlist.type[i] <= to) nodes[n++] = i;
+        }
+        return nodes;
+    }
+
+    public CompiledCircuit getNetlist() {
+        return netlist;
+    }
+
+    /**
+     * Reads the object model state and settles it. Counters are kept.
+     */
+    public void load() {
+        state.load();
+        state.evaluate();
+        for (int s = 0; s < stateNodes.length; s++) {
+            // A flip-flop that has never sampled takes the current clock level as its first sample
+            Component component = netlist.components[stateNodes[s]];
+            Integer last = component instanceof DFlipFlop ? ((DFlipFlop) component).getLastClock() : null;
+            lastClock[s] = last != null ? CompiledEvaluator.encode(last) : state.input(stateNodes[s], 1);
+        }
+    }
+
+    /**
+     * Runs the given number of clock cycles, each a rising and a falling edge
+     * of every clock (or falling then rising if the clocks start high).
+     */
+    public void runCycles(long cycles) {
+        long start = System.nanoTime();
+        for (long c = 0; c < cycles; c++) {
+            edge();
+            edge();
+        }
+        runNanos += System.nanoTime() - start;
+        cycleCount += cycles;
+    }
+
+    /**
+     * Toggles every clock and propagates the change.
+     */
+    private void edge() {
+        for (int node : clockNodes) {
+            state.setValue(node, state.getValue(node) == HIGH ? LOW : HIGH);
+            markFanout(node);
+        }
+
+        propagate();
+        for (int round = 0; round <= stateNodes.length && sampleAndCommit(); round++) {
+            propagate();
+        }
+    }
+
+    /**
+     * Recomputes the dirty nodes level by level, then any hit feedback part.
+     */
+    private void propagate() {
+        int levelCount = bucket.length;
+        for (int l = 0; dirtyCount > 0 && l < levelCount; l++) {
+            int[] nodes = bucket[l];
+            for (int j = 0; j < bucketSize[l]; j++) {
+                int node = nodes[j];
+                dirty[node] = false;
+                dirtyCount--;
+                byte out = state.compute(node);
+                evaluationCount++;
+                if (out != state.getValue(node)) {
+                    state.setValue(node, out);
+                    markFanout(node);
+                }
+            }
+            bucketSize[l] = 0;
+        }
+
+        if (feedbackDirty) {
+            feedbackDirty = false;
+            state.evaluateFeedback();
+            evaluationCount += netlist.nodeCount - netlist.feedbackStart;
+        }
+    }
+
+    /**
+     * Samples every flip-flop and latch, then commits them all.
+     *
+     * @return true if any output changed
+     */
+    private boolean sampleAndCommit() {
+        for (int s = 0; s < stateNodes.length; s++) {
+            int node = stateNodes[s];
+            byte d = state.input(node, 0);
+            byte clock = state.input(node, 1);
+            if (netlist.type[node] == DFF) {
+                next[s] = (lastClock[s] == LOW && clock == HIGH) ? d : state.getValue(node);
+                lastClock[s] = clock;
+            } else {
+                next[s] = clock == HIGH ? d : state.getValue(node);
+            }
+        }
+        boolean changed = false;
+        for (int s = 0; s < stateNodes.length; s++) {
+            int node = stateNodes[s];
+            evaluationCount++;
+            if (next[s] != state.getValue(node)) {
+                state.setValue(node, next[s]);
+                markFanout(node);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private void markFanout(int node) {
+        for (int f = netlist.fanoutStart[node]; f < netlist.fanoutStart[node + 1]; f++) {
+            int target = netlist.fanout[f];
+            if (netlist.type[target] >= DFF) {
+                continue; // state nodes only change when sampled
+            }
+            if (target >= netlist.feedbackStart) {
+                feedbackDirty = true;
+            } else if (!dirty[target]) {
+                dirty[target] = true;
+                dirtyCount++;
+                int l = level[target];
+                bucket[l][bucketSize[l]++] = target;
+            }
+        }
+    }
+
+    /**
+     * @return current value of a node: {@link CompiledCircuit#LOW},
+     *         {@link CompiledCircuit#HIGH} or {@link CompiledCircuit#UNKNOWN}
+     */
+    public byte getValue(int node) {
+        return state.getValue(node);
+    }
+
+    /**
+     * Copies the current values, including clock levels and flip-flop state,
+     * into the object model.
+     */
+    public void writeBack() {
+        state.writeBack();
+        for (int s = 0; s < stateNodes.length; s++) {
+            Component component = netlist.components[stateNodes[s]];
+            if (component instanceof DFlipFlop) {
+                ((DFlipFlop) component).setLastClock(CompiledEvaluator.decode(lastClock[s]));
+            }
+        }
+    }
+
+    /**
+     * @return cycles run since this simulator was created
+     */
+    public long getCycleCount() {
+        return cycleCount;
+    }
+
+    /**
+     * @return node computations performed by all runs
+     */
+    public long getEvaluationCount() {
+        return evaluationCount;
+    }
+
+    /**
+     * @return wall-clock nanoseconds spent in {@link #runCycles(long)}
+     */
+    public long getRunNanos() {
+        return runNanos;
+    }
+
+    /**
+     * @return measured throughput over all runs, or 0 before the first run
+     */
+    public double getCyclesPerSecond() {
+        return runNanos == 0 ? 0 : cycleCount * 1e9 / runNanos;
+    }
+}
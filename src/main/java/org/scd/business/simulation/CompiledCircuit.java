@@ -0,0 +1,250 @@
+package org.scd.business.simulation;
+
+import org.scd.business.model.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Flat, read-only netlist compiled from a {@link Circuit}.
+ *
+ * Every switch, gate and LED becomes a node numbered in topological order.
+ * The structure is kept in primitive arrays: a {@code byte} type per node and
+ * two {@code int} input slots per node holding the index of the driving node.
+ * Simulation state lives outside this class (see {@link CompiledEvaluator}),
+ * so one compiled netlist can back any number of independent evaluators.
+ *
+ * The object model remains the editing view; a compiled netlist describes the
+ * circuit as it was at {@link #compile(Circuit)} time and should be rebuilt
+ * once {@link #isCurrent()} returns false.
+ */
+public final class CompiledCircuit {
+
+    // Node types
+    public static final byte SWITCH = 0;
+    public static final byte AND = 1;
+    public static final byte OR = 2;
+    public static final byte NOT = 3;
+    public static final byte LED = 4;
+    public static final byte CLOCK = 5;
+    public static final byte DFF = 6;   // state nodes: evaluators hold their value,
+    public static final byte LATCH = 7; // ClockedSimulator samples and commits them
+
+    // Signal values
+    public static final byte LOW = 0;
+    public static final byte HIGH = 1;
+    public static final byte UNKNOWN = 2;
+
+    // Input slot sources that are not a node index
+    public static final int UNDRIVEN = -1; // takes the value set directly on the input
+    public static final int MISSING = -2;  // wired to a component outside the circuit, reads LOW
+
+    final Circuit circuit;
+    final int version;
+    final int nodeCount;
+
+    final byte[] type;
+    final int[] componentId;
+    final int[] source;        // 2 slots per node
+    final int feedbackStart;   // nodes from here on sit on or behind a feedback loop
+    final int[] blockStart;    // feedback block b is blockStart[b] .. blockStart[b + 1] - 1
+    final boolean[] cyclic;    // whether feedback block b is a loop, iterated until it settles
+    final int[] levelStart;    // nodes of level l are levelStart[l] .. levelStart[l + 1] - 1
+    final int[] fanoutStart;   // fanout of node i is fanout[fanoutStart[i] .. fanoutStart[i + 1] - 1]
+    final int[] fanout;
+    final Component[] components;
+
+    private final Map<Integer, Integer> indexById;
+
+    private CompiledCircuit(Circuit circuit, int version, List<Component> nodes, int feedbackStart,
+                            int[] levelStart, int[] blockStart, boolean[] cyclic, LevelizedEvaluator levelized) {
+        this.circuit = circuit;
+        this.version = version;
+        this.nodeCount = nodes.size();
+        this.feedbackStart = feedbackStart;
+        this.levelStart = levelStart;
+        this.blockStart = blockStart;
+        this.cyclic = cyclic;
+
+        type = new byte[nodeCount];
+        componentId = new int[nodeCount];
+        source = new int[nodeCount * 2];
+        components = nodes.toArray(new Component[0]);
+        indexById = new HashMap<>();
+
+        for (int i = 0; i < nodeCount; i++) {
+            componentId[i] = components[i].getComponentId();
+            type[i] = typeOf(components[i]);
+            indexById.put(componentId[i], i);
+        }
+
+        // Resolve input slots; when several connectors feed one input the last one wins
+        int[] fanoutCount = new int[nodeCount + 1];
+        for (int i = 0; i < nodeCount; i++) {
+            source[2 * i] = UNDRIVEN;
+            source[2 * i + 1] = UNDRIVEN;
+            for (Connector connector : levelized.getFanin(componentId[i])) {
+                // Same mapping as the object model: LEDs have one input, gates use input2 for any index but 0
+                int slot = (type[i] == LED || connector.getTargetInputIndex() == 0) ? 0 : 1;
+                Integer driver = indexById.get(connector.getSourceComponentId());
+                source[2 * i + slot] = (driver != null) ? driver : MISSING;
+            }
+            for (int slot = 0; slot < 2; slot++) {
+                if (source[2 * i + slot] >= 0) fanoutCount[source[2 * i + slot]]++;
+            }
+        }
+
+        // Fanout lists in compressed sparse row form
+        fanoutStart = new int[nodeCount + 1];
+        for (int i = 0; i < nodeCount; i++) {
+            fanoutStart[i + 1] = fanoutStart[i] + fanoutCount[i];
+        }
+        fanout = new int[fanoutStart[nodeCount]];
+        int[] fill = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            for (int slot = 0; slot < 2; slot++) {
+                int driver = source[2 * i + slot];
+                if (driver >= 0) {
+                    fanout[fanoutStart[driver] + fill[driver]++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compiles the current structure of a circuit.
+     */
+    public static CompiledCircuit compile(Circuit circuit) {
+        LevelizedEvaluator levelized = new LevelizedEvaluator(circuit);
+        List<List<Component>> levels = levelized.getLevels();
+
+        List<Component> nodes = new ArrayList<>();
+        int[] levelStart = new int[levels.size() + 1];
+        for (int l = 0; l < levels.size(); l++) {
+            levelStart[l] = nodes.size();
+            nodes.addAll(levels.get(l));
+        }
+        levelStart[levels.size()] = nodes.size();
+        int feedbackStart = nodes.size();
+        List<List<Component>> blocks = levelized.getFeedbackBlocks();
+        int[] blockStart = new int[blocks.size() + 1];
+        boolean[] cyclic = new boolean[blocks.size()];
+        for (int b = 0; b < blocks.size(); b++) {
+            blockStart[b] = nodes.size();
+            cyclic[b] = levelized.isCyclicBlock(b);
+            nodes.addAll(blocks.get(b));
+        }
+        blockStart[blocks.size()] = nodes.size();
+
+        return new CompiledCircuit(circuit, circuit.getStructureVersion(), nodes, feedbackStart,
+                levelStart, blockStart, cyclic, levelized);
+    }
+
+    private static byte typeOf(Component component) {
+        if (component instanceof Switch) return SWITCH;
+        if (component instanceof Clock) return CLOCK;
+        if (component instanceof org.scd.business.model.LED) return LED;
+        if (component instanceof SubcircuitInstance) {
+            throw new IllegalArgumentException("Subcircuit instances cannot be compiled into a flat netlist: "
+                    + component.getComponentId());
+        }
+        switch (component.getComponentType()) {
+            case "AND": return AND;
+            case "OR": return OR;
+            case "NOT": return NOT;
+            case "DFF": return DFF;
+            case "LATCH": return LATCH;
+            default:
+                throw new IllegalArgumentException("Unknown component type: " + component.getComponentType());
+        }
+    }
+
+    /**
+     * @return true while the source circuit has not been structurally edited
+     *         since compilation
+     */
+    public boolean isCurrent() {
+        return circuit.getStructureVersion() == version;
+    }
+
+    public Circuit getCircuit() {
+        return circuit;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return node index of a component, or -1 if it is not part of the netlist
+     */
+    public int indexOf(int componentId) {
+        Integer index = indexById.get(componentId);
+        return index != null ? index : -1;
+    }
+
+    public int getComponentId(int node) {
+        return componentId[node];
+    }
+
+    public Component getComponent(int node) {
+        return components[node];
+    }
+
+    public byte getType(int node) {
+        return type[node];
+    }
+
+    /**
+     * @return driving node of an input slot, or {@link #UNDRIVEN} / {@link #MISSING}
+     */
+    public int getSource(int node, int slot) {
+        return source[2 * node + slot];
+    }
+
+    public int getLevelCount() {
+        return levelStart.length - 1;
+    }
+
+    public int getLevelStart(int level) {
+        return levelStart[level];
+    }
+
+    /**
+     * @return index of the first node that could not be levelized; equals
+     *         {@link #getNodeCount()} for acyclic circuits
+     */
+    public int getFeedbackStart() {
+        return feedbackStart;
+    }
+
+    /**
+     * @return number of strongly connected blocks after {@link #getFeedbackStart()}
+     */
+    public int getBlockCount() {
+        return cyclic.length;
+    }
+
+    public int getBlockStart(int block) {
+        return blockStart[block];
+    }
+
+    /**
+     * @return true if the block is a feedback loop rather than a single node
+     *         behind one
+     */
+    public boolean isCyclic(int block) {
+        return cyclic[block];
+    }
+
+    public int getFanoutCount(int node) {
+        return fanoutStart[node + 1] - fanoutStart[node];
+    }
+
+    public int getFanout(int node, int i) {
+        return fanout[fanoutStart[node] + i];
+    }
+}
@@ -0,0 +1,224 @@
+package org.scd.business.simulation;
+
+import org.scd.business.model.*;
+
+import java.util.Arrays;
+
+import static org.scd.business.simulation.CompiledCircuit.*;
+
+
+/**
+ * Simulation state for a {@link CompiledCircuit} and the evaluator that runs
+ * over it.
+ *
+ * State is one {@code byte} per node plus one per directly set input slot.
+ * {@link #evaluate()} walks the nodes in topological order and performs no
+ * allocations, so it can be called once per truth-table row or test vector.
+ * Nothing is written to the object model until {@link #writeBack()} is called.
+ */
+public class CompiledEvaluator {
+
+    private final CompiledCircuit netlist;
+    private final byte[] value;   // output value per node
+    private final byte[] direct;  // directly set value per input slot
+    private boolean converged = true;
+
+    public CompiledEvaluator(CompiledCircuit netlist) {
+        this.netlist = netlist;
+        this.value = new byte[netlist.nodeCount];
+        this.direct = new byte[netlist.nodeCount * 2];
+        Arrays.fill(value, UNKNOWN);
+        Arrays.fill(direct, UNKNOWN);
+    }
+
+    private CompiledEvaluator(CompiledEvaluator source) {
+        this.netlist = source.netlist;
+        this.value = source.value.clone();
+        this.direct = source.direct.clone();
+    }
+
+    /**
+     * @return an independent evaluator starting from the same state, for use
+     *         on another thread
+     */
+    public CompiledEvaluator copy() {
+        return new CompiledEvaluator(this);
+    }
+
+    /**
+     * Overwrites this state with another evaluator's state for the same netlist.
+     */
+    void copyStateFrom(CompiledEvaluator source) {
+        System.arraycopy(source.value, 0, value, 0, value.length);
+        System.arraycopy(source.direct, 0, direct, 0, direct.length);
+    }
+
+    public CompiledCircuit getNetlist() {
+        return netlist;
+    }
+
+    /**
+     * Reads switch positions, directly set input values and the current gate
+     * outputs from the object model.
+     */
+    public void load() {
+        for (int i = 0; i < netlist.nodeCount; i++) {
+            Component component = netlist.components[i];
+            if (component instanceof Switch) {
+                value[i] = ((Switch) component).isOn() ? HIGH : LOW;
+            } else if (component instanceof Clock) {
+                value[i] = ((Clock) component).isHigh() ? HIGH : LOW;
+            } else if (component instanceof Gate) {
+                Gate gate = (Gate) component;
+                value[i] = encode(gate.getOutput());
+                direct[2 * i] = gate.getInput1() != null ? encode(gate.getInput1().getValue()) : UNKNOWN;
+                direct[2 * i + 1] = gate.getInput2() != null ? encode(gate.getInput2().getValue()) : UNKNOWN;
+            } else if (component instanceof org.scd.business.model.LED) {
+                org.scd.business.model.LED led = (org.scd.business.model.LED) component;
+                value[i] = led.isOn() ? HIGH : LOW;
+                direct[2 * i] = encode(led.getInput().getValue());
+            }
+        }
+    }
+
+    /**
+     * Evaluates every node once in topological order, then iterates each
+     * feedback loop until it settles or the pass limit is reached.
+     */
+    public void evaluate() {
+        int feedbackStart = netlist.feedbackStart;
+        for (int i = 0; i < feedbackStart; i++) {
+            value[i] = compute(i);
+        }
+        evaluateFeedback();
+    }
+
+    /**
+     * Evaluates only the part after {@link CompiledCircuit#getFeedbackStart()},
+     * block by block, iterating each loop.
+     */
+    void evaluateFeedback() {
+        converged = true;
+        for (int b = 0; b < netlist.cyclic.length; b++) {
+            int from = netlist.blockStart[b];
+            int to = netlist.blockStart[b + 1];
+            if (!netlist.cyclic[b]) {
+                value[from] = compute(from);
+                continue;
+            }
+
+            boolean changed = true;
+            for (int pass = 0; changed && pass < LevelizedEvaluator.MAX_FEEDBACK_PASSES; pass++) {
+                changed = false;
+                for (int i = from; i < to; i++) {
+                    byte next = compute(i);
+                    if (next != value[i]) {
+                        value[i] = next;
+                        changed = true;
+                    }
+                }
+            }
+            converged &= !changed;
+        }
+    }
+
+    /**
+     * @return false if a feedback loop hit the pass limit in the last
+     *         {@link #evaluate()}
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    /**
+     * Computes the output of one node from the current values of its inputs.
+     */
+    byte compute(int node) {
+        switch (netlist.type[node]) {
+            case AND: {
+                byte a = input(node, 0);
+                byte b = input(node, 1);
+                return (a == UNKNOWN || b == UNKNOWN) ? UNKNOWN : (byte) (a & b);
+            }
+            case OR: {
+                byte a = input(node, 0);
+                byte b = input(node, 1);
+                return (a == UNKNOWN || b == UNKNOWN) ? UNKNOWN : (byte) (a | b);
+            }
+            case NOT: {
+                byte a = input(node, 0);
+                return a == UNKNOWN ? UNKNOWN : (byte) (1 - a);
+            }
+            case LED:
+                return input(node, 0) == HIGH ? HIGH : LOW;
+            default:
+                return value[node]; // switches hold their value
+        }
+    }
+
+    /**
+     * @return the value seen on an input slot of a node
+     */
+    public byte input(int node, int slot) {
+        int s = netlist.source[2 * node + slot];
+        if (s >= 0) return value[s];
+        if (s == MISSING) return LOW;
+        return direct[2 * node + slot];
+    }
+
+    public byte getValue(int node) {
+        return value[node];
+    }
+
+    public void setValue(int node, byte v) {
+        value[node] = v;
+    }
+
+    public void setSwitch(int node, boolean on) {
+        value[node] = on ? HIGH : LOW;
+    }
+
+    /**
+     * Sets the value of an input slot that is not driven by a connector.
+     */
+    public void setDirectInput(int node, int slot, byte v) {
+        direct[2 * node + slot] = v;
+    }
+
+    /**
+     * Copies outputs, LED states and wired input values back into the object
+     * model, so the UI can display them.
+     */
+    public void writeBack() {
+        for (int i = 0; i < netlist.nodeCount; i++) {
+            Component component = netlist.components[i];
+            if (component instanceof Gate) {
+                Gate gate = (Gate) component;
+                gate.setOutput(decode(value[i]));
+                writeInput(gate.getInput1(), i, 0);
+                writeInput(gate.getInput2(), i, 1);
+            } else if (component instanceof org.scd.business.model.LED) {
+                org.scd.business.model.LED led = (org.scd.business.model.LED) component;
+                writeInput(led.getInput(), i, 0);
+                led.setOn(value[i] == HIGH);
+            } else if (component instanceof Clock) {
+                ((Clock) component).setHigh(value[i] == HIGH);
+            }
+        }
+    }
+
+    private void writeInput(Input input, int node, int slot) {
+        if (input != null && netlist.source[2 * node + slot] != UNDRIVEN) {
+            input.setValue(decode(input(node, slot)));
+        }
+    }
+
+    public static byte encode(Integer v) {
+        if (v == null) return UNKNOWN;
+        return v == 1 ? HIGH : LOW;
+    }
+
+    public static Integer decode(byte v) {
+        return v == UNKNOWN ? null : Integer.valueOf(v);
+    }
+}
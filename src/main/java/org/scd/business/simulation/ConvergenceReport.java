@@ -0,0 +1,119 @@
+package org.scd.business.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Outcome of evaluating the feedback loops of a circuit: one entry per
+ * strongly connected component that contains a cycle, with the number of
+ * passes it took and whether it settled before the pass limit.
+ *
+ * A loop that did not settle (for example a NOT gate feeding itself) is
+ * reported as oscillating; its components hold whatever values the last
+ * pass left behind.
+ */
+public class ConvergenceReport {
+
+    /** Report for a circuit without feedback loops. */
+    public static final ConvergenceReport ACYCLIC = new ConvergenceReport(Collections.emptyList());
+
+    private final List<Loop> loops;
+
+    public ConvergenceReport(List<Loop> loops) {
+        this.loops = Collections.unmodifiableList(new ArrayList<>(loops));
+    }
+
+    /**
+     * @return every feedback loop, in evaluation order
+     */
+    public List<Loop> getLoops() {
+        return loops;
+    }
+
+    /**
+     * @return true if every loop settled
+     */
+    public boolean isConverged() {
+        for (Loop loop : loops) {
+            if (!loop.isConverged()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the loops that hit the pass limit without settling
+     */
+    public List<Loop> getOscillatingLoops() {
+        List<Loop> oscillating = new ArrayList<>();
+        for (Loop loop : loops) {
+            if (!loop.isConverged()) oscillating.add(loop);
+        }
+        return oscillating;
+    }
+
+    /**
+     * @return ids of all components on an oscillating loop
+     */
+    public List<Integer> getOscillatingComponentIds() {
+        List<Integer> ids = new ArrayList<>();
+        for (Loop loop : loops) {
+            if (!loop.isConverged()) ids.addAll(loop.getComponentIds());
+        }
+        return ids;
+    }
+
+    /**
+     * @return passes summed over all loops
+     */
+    public int getTotalIterations() {
+        int total = 0;
+        for (Loop loop : loops) {
+            total += loop.getIterations();
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "ConvergenceReport{loops=" + loops.size() + ", oscillating=" + getOscillatingComponentIds() + "}";
+    }
+
+    /**
+     * One strongly connected component of the netlist that contains a cycle.
+     */
+    public static class Loop {
+        private final List<Integer> componentIds;
+        private final int iterations;
+        private final boolean converged;
+
+        public Loop(List<Integer> componentIds, int iterations, boolean converged) {
+            this.componentIds = Collections.unmodifiableList(new ArrayList<>(componentIds));
+            this.iterations = iterations;
+            this.converged = converged;
+        }
+
+        public List<Integer> getComponentIds() {
+            return componentIds;
+        }
+
+        /**
+         * @return passes over the loop, including the final pass that found
+         *         no change when it converged
+         */
+        public int getIterations() {
+            return iterations;
+        }
+
+        public boolean isConverged() {
+            return converged;
+        }
+
+        @Override
+        public String toString() {
+            return "Loop{components=" + componentIds + ", iterations=" + iterations
+                    + ", converged=" + converged + "}";
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.scd.business.simulation;
+
+import org.scd.business.model.*;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+
+/**
+ * Event-driven counterpart of {@link LevelizedEvaluator}.
+ *
+ * After the circuit has been settled once, a change at one component only
+ * re-evaluates the components whose inputs actually change: the changed
+ * component's fanout is pushed onto a work queue, each queued component pulls
+ * its inputs and recalculates, and its own fanout is queued only if its output
+ * moved. Propagation ends when the queue drains.
+ *
+ * Storage elements reached by a change are set aside until the queue drains;
+ * they then sample their inputs and commit together, as in the full
+ * evaluation, and the fanout of those whose output changed is propagated in
+ * the next round.
+ */
+public class EventDrivenSimulator {
+
+    private final LevelizedEvaluator evaluator;
+    private int settledVersion = -1;
+
+    private final ArrayDeque<Integer> queue = new ArrayDeque<>();
+    private final Set<Integer> queued = new HashSet<>();
+    private final Set<Integer> touched = new LinkedHashSet<>(); // storage elements waiting to sample
+    private int lastEvaluationCount;
+
+    public EventDrivenSimulator(LevelizedEvaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    public Circuit getCircuit() {
+        return evaluator.getCircuit();
+    }
+
+    /**
+     * Fully re-evaluates the circuit. Later calls to {@link #propagateFrom(int)}
+     * work incrementally from this state until the wiring changes.
+     *
+     * @return the outcome of every feedback loop
+     */
+    public ConvergenceReport settle() {
+        ConvergenceReport report = evaluator.evaluate();
+        settledVersion = getCircuit().getStructureVersion();
+        lastEvaluationCount = getCircuit().getComponentCount();
+        return report;
+    }
+
+    /**
+     * Propagates a change at the given component (a toggled switch or a gate
+     * whose direct input was edited) through its fanout.
+     *
+     * @param componentId id of the component whose value changed
+     * @return ids of the components whose inputs or output changed, including
+     *         the given component; every component if a full settle was needed
+     */
+    public Set<Integer> propagateFrom(int componentId) {
+        Circuit circuit = getCircuit();
+        Set<Integer> changed = new LinkedHashSet<>();
+
+        if (settledVersion != circuit.getStructureVersion()) {
+            settle();
+            circuit.getSwitches().forEach(s -> changed.add(s.getComponentId()));
+            circuit.getClocks().forEach(c -> changed.add(c.getComponentId()));
+            circuit.getGates().forEach(g -> changed.add(g.getComponentId()));
+            circuit.getLeds().forEach(l -> changed.add(l.getComponentId()));
+            circuit.getSubcircuits().forEach(i -> changed.add(i.getComponentId()));
+            return changed;
+        }
+
+        // Feedback loops may never drain; stop after as many evaluations as the
+        // pass limit would allow for the whole circuit
+        int limit = LevelizedEvaluator.MAX_FEEDBACK_PASSES * (circuit.getComponentCount() + 1);
+        int evaluations = 0;
+
+        queue.clear();
+        queued.clear();
+        touched.clear();
+        queue.add(componentId);
+        queued.add(componentId);
+        boolean seed = true;
+        int rounds = 0;
+
+        while (true) {
+            while (!queue.isEmpty() && evaluations < limit) {
+                int id = queue.poll();
+                queued.remove(id);
+                Component component = evaluator.getComponent(id);
+                if (component == null) continue;
+                if (component instanceof Sequential) {
+                    touched.add(id);
+                    if (seed) changed.add(id);
+                    seed = false;
+                    continue;
+                }
+
+                boolean inputsChanged = evaluator.pullInputs(component);
+                boolean outputChanged = LevelizedEvaluator.calculate(component);
+                evaluations++;
+
+                if (seed || inputsChanged || outputChanged) {
+                    changed.add(id);
+                }
+                // The seed's new value was set before the call, so always push it
+                if (seed || outputChanged) {
+                    pushFanout(id);
+                }
+                seed = false;
+            }
+
+            if (touched.isEmpty() || evaluations >= limit
+                    || rounds++ > evaluator.getSequentialElements().size()) {
+                break;
+            }
+
+            // Two-phase step: every touched element samples before any commits
+            for (int id : touched) {
+                Component component = evaluator.getComponent(id);
+                if (evaluator.pullInputs(component)) {
+                    changed.add(id);
+                }
+                ((Sequential) component).sample();
+            }
+            for (int id : touched) {
+                evaluations++;
+                if (((Sequential) evaluator.getComponent(id)).commit()) {
+                    changed.add(id);
+                    pushFanout(id);
+                }
+            }
+            touched.clear();
+        }
+
+        lastEvaluationCount = evaluations;
+        return changed;
+    }
+
+    private void pushFanout(int componentId) {
+        for (Connector connector : evaluator.getFanout(componentId)) {
+            int targetId = connector.getTargetComponentId();
+            if (queued.add(targetId)) {
+                queue.add(targetId);
+            }
+        }
+    }
+
+    /**
+     * @return number of component evaluations performed by the last
+     *         propagation or settle
+     */
+    public int getLastEvaluationCount() {
+        return lastEvaluationCount;
+    }
+}
@@ -0,0 +1,59 @@
+package org.scd.business.simulation;
+
+
+/**
+ * Fault coverage reached by one set of vectors in a {@link FaultSimulator}.
+ * Faults detected by earlier sets stay detected, so the total only grows.
+ */
+public class FaultCoverage {
+
+    private final int faultCount;
+    private final int detectedCount;
+    private final int newlyDetectedCount;
+    private final long vectorCount;
+
+    FaultCoverage(int faultCount, int detectedCount, int newlyDetectedCount, long vectorCount) {
+        this.faultCount = faultCount;
+        this.detectedCount = detectedCount;
+        this.newlyDetectedCount = newlyDetectedCount;
+        this.vectorCount = vectorCount;
+    }
+
+    public int getFaultCount() {
+        return faultCount;
+    }
+
+    /**
+     * @return faults detected by this set or any earlier one
+     */
+    public int getDetectedCount() {
+        return detectedCount;
+    }
+
+    /**
+     * @return faults first detected by this set
+     */
+    public int getNewlyDetectedCount() {
+        return newlyDetectedCount;
+    }
+
+    /**
+     * @return vectors in this set
+     */
+    public long getVectorCount() {
+        return vectorCount;
+    }
+
+    /**
+     * @return detected share of all faults, from 0 to 1; 1 for a circuit without faults
+     */
+    public double getCoverage() {
+        return faultCount == 0 ? 1.0 : (double) detectedCount / faultCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Fault coverage %.2f%% (%d of %d faults, %d new from %d vectors)",
+                getCoverage() * 100, detectedCount, faultCount, newlyDetectedCount, vectorCount);
+    }
+}
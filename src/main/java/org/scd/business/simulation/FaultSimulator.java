@@ -0,0 +1,441 @@
+package org.scd.business.simulation;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static org.scd.business.simulation.CompiledCircuit.*;
+
+
+/**
+ * Single stuck-at fault simulation of a combinational circuit.
+ *
+ * The fault list holds a stuck-at-0 and a stuck-at-1 fault on the output and
+ * on every input pin of every gate, so it has two faults per pin. Columns are
+ * those of the circuit's {@link TruthTableLayout}: a fault is detected by a
+ * vector when some output column is a known 0 in one machine and a known 1 in
+ * the other.
+ *
+ * Vectors are simulated 64 at a time, one per bit lane. For each word the
+ * fault-free machine is evaluated once with a {@link BitParallelEvaluator};
+ * each fault is then injected on its own and only the nodes its effect reaches
+ * are recomputed, level by level from the fault site. A fault is dropped as
+ * soon as a vector detects it. The undetected faults are split into chunks on
+ * a {@link ForkJoinPool}; workers share the fault-free values of a block of
+ * words and each keeps its faulty values in private arrays.
+ *
+ * An instance must not simulate on two threads at once.
+ */
+public class FaultSimulator {
+
+    /** Default number of faults below which a chunk is not split further. */
+    public static final int DEFAULT_CHUNK_FAULTS = 2048;
+
+    /** Fault site slot of a gate output. */
+    public static final int OUTPUT = -1;
+
+    /** Words of fault-free values shared by the workers at a time. */
+    private static final int BLOCK_WORDS = 16;
+
+    private final TruthTableLayout layout;
+    private final CompiledCircuit netlist;
+    private final ForkJoinPool pool;
+    private final int chunkFaults;
+    private final BitParallelEvaluator initial;
+    private final BitParallelEvaluator[] good;
+
+    private final int[] level;
+    private final boolean[] observed;
+
+    // Fault list
+    private final int faultCount;
+    private final int[] faultNode;
+    private final byte[] faultSlot;
+    private final boolean[] stuckAt;
+    private final long[] detectingVector;   // -1 while undetected
+
+    private final int[] undetected;         // undetected faults, compacted after every block
+    private int undetectedCount;
+    private long vectorCount;
+
+    public FaultSimulator(TruthTableLayout layout) {
+        this(layout, ForkJoinPool.commonPool(), DEFAULT_CHUNK_FAULTS);
+    }
+
+    /**
+     * @param pool pool the fault chunks run on
+     * @param chunkFaults faults below which a chunk is simulated directly
+     * @throws IllegalArgumentException if the circuit has feedback, clocks or
+     *                                  storage elements
+     */
+    public FaultSimulator(TruthTableLayout layout, ForkJoinPool pool, int chunkFaults) {
+        this.layout = layout;
+        this.netlist = layout.getNetlist();
+        this.pool = pool;
+        this.chunkFaults = Math.max(1, chunkFaults);
+
+        String name = netlist.circuit.getCircuitName();
+        if (netlist.feedbackStart < netlist.nodeCount) {
+            throw new IllegalArgumentException("Circuit " + name + " has feedback loops and is not combinational");
+        }
+        int pins = 0;
+        for (int i = 0; i < netlist.nodeCount; i++) {
+            byte type = netlist.type[i];
+            if (type == CLOCK || type >= DFF) {
+                throw new IllegalArgumentException("Circuit " + name + " is sequential and not combinational");
+            }
+            if (type == AND || type == OR) pins += 3;
+            else if (type == NOT) pins += 2;
+        }
+
+        level = new int[netlist.nodeCount];
+        for (int l = 0; l < netlist.getLevelCount(); l++) {
+            for (int i = netlist.levelStart[l]; i < netlist.levelStart[l + 1]; i++) {
+                level[i] = l;
+            }
+        }
+        observed = new boolean[netlist.nodeCount];
+        for (int k = 0; k < layout.getOutputCount(); k++) {
+            observed[layout.getOutputNode(k)] = true;
+        }
+
+        faultCount = 2 * pins;
+        faultNode = new int[faultCount];
+        faultSlot = new byte[faultCount];
+        stuckAt = new boolean[faultCount];
+        detectingVector = new long[faultCount];
+        undetected = new int[faultCount];
+        int f = 0;
+        for (int i = 0; i < netlist.nodeCount; i++) {
+            byte type = netlist.type[i];
+            int inputs = type == NOT ? 1 : 2;
+            if (type != AND && type != OR && type != NOT) continue;
+            for (int slot = OUTPUT; slot < inputs; slot++) {
+                for (int stuck = 0; stuck < 2; stuck++) {
+                    faultNode[f] = i;
+                    faultSlot[f] = (byte) slot;
+                    stuckAt[f] = stuck == 1;
+                    detectingVector[f] = -1;
+                    undetected[f] = f;
+                    f++;
+                }
+            }
+        }
+        undetectedCount = faultCount;
+
+        initial = new BitParallelEvaluator(netlist);
+        initial.load();
+        good = new BitParallelEvaluator[BLOCK_WORDS];
+        for (int b = 0; b < BLOCK_WORDS; b++) {
+            good[b] = initial.copy();
+        }
+    }
+
+    public TruthTableLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Simulates every vector read until the end of the input as one set.
+     *
+     * @return coverage after the set
+     * @throws IllegalArgumentException if a line is not a valid vector
+     */
+    public FaultCoverage run(VectorReader reader, int batchWords) throws IOException {
+        int before = getDetectedCount();
+        long vectors = 0;
+        VectorBatch batch;
+        while ((batch = reader.next(batchWords)) != null) {
+            simulate(batch);
+            vectors += batch.getCount();
+        }
+        int detected = getDetectedCount();
+        return new FaultCoverage(faultCount, detected, detected - before, vectors);
+    }
+
+    /**
+     * Simulates one set of vectors against every fault not yet detected.
+     *
+     * @return coverage after the set
+     */
+    public FaultCoverage simulate(VectorBatch batch) {
+        int before = getDetectedCount();
+        int words = batch.getWordCount();
+        long[] laneMask = new long[BLOCK_WORDS];
+
+        for (int w0 = 0; w0 < words && undetectedCount > 0; w0 += BLOCK_WORDS) {
+            int block = Math.min(BLOCK_WORDS, words - w0);
+            for (int b = 0; b < block; b++) {
+                int w = w0 + b;
+                good[b].copyStateFrom(initial);
+                for (int j = 0; j < layout.getInputCount(); j++) {
+                    int node = layout.getInputNode(j);
+                    int slot = layout.getInputSlot(j);
+                    if (slot < 0) {
+                        good[b].setValue(node, batch.getInputWord(j, w));
+                    } else {
+                        good[b].setDirectInput(node, slot, batch.getInputWord(j, w));
+                    }
+                }
+                good[b].evaluate();
+                int lanes = batch.getCount() - w * BitParallelEvaluator.LANES;
+                laneMask[b] = lanes >= BitParallelEvaluator.LANES ? -1L : (1L << lanes) - 1;
+            }
+
+            long firstVector = vectorCount + (long) w0 * BitParallelEvaluator.LANES;
+            pool.invoke(new Chunk(block, laneMask, firstVector, 0, undetectedCount));
+
+            // Drop the faults this block detected
+            int kept = 0;
+            for (int u = 0; u < undetectedCount; u++) {
+                if (detectingVector[undetected[u]] < 0) {
+                    undetected[kept++] = undetected[u];
+                }
+            }
+            undetectedCount = kept;
+        }
+
+        vectorCount += batch.getCount();
+        int detected = getDetectedCount();
+        return new FaultCoverage(faultCount, detected, detected - before, batch.getCount());
+    }
+
+    /**
+     * Injects the undetected faults {@code undetected[from .. to - 1]}.
+     */
+    private class Chunk extends RecursiveAction {
+        private final int block;
+        private final long[] laneMask;
+        private final long firstVector;
+        private final int from;
+        private final int to;
+
+        // Worker-private faulty machine; a node's faulty value is valid when its stamp is current
+        private long[] value;
+        private long[] known;
+        private int[] stamp;
+        private int epoch;
+        private int[][] bucket;
+        private int[] bucketSize;
+        private boolean[] dirty;
+        private int dirtyCount;
+
+        Chunk(int block, long[] laneMask, long firstVector, int from, int to) {
+            this.block = block;
+            this.laneMask = laneMask;
+            this.firstVector = firstVector;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > chunkFaults) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Chunk(block, laneMask, firstVector, from, mid),
+                          new Chunk(block, laneMask, firstVector, mid, to));
+                return;
+            }
+
+            int nodeCount = netlist.nodeCount;
+            value = new long[nodeCount];
+            known = new long[nodeCount];
+            stamp = new int[nodeCount];
+            dirty = new boolean[nodeCount];
+            int levelCount = netlist.getLevelCount();
+            bucket = new int[levelCount][];
+            bucketSize = new int[levelCount];
+            for (int l = 0; l < levelCount; l++) {
+                bucket[l] = new int[netlist.levelStart[l + 1] - netlist.levelStart[l]];
+            }
+
+            for (int u = from; u < to; u++) {
+                int f = undetected[u];
+                for (int b = 0; b < block; b++) {
+                    long lanes = inject(f, good[b], laneMask[b]);
+                    if (lanes != 0) {
+                        detectingVector[f] = firstVector + (long) b * BitParallelEvaluator.LANES
+                                + Long.numberOfTrailingZeros(lanes);
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Propagates one fault through one word.
+         *
+         * @return lanes in which an output differs
+         */
+        private long inject(int f, BitParallelEvaluator machine, long mask) {
+            epoch++;
+            int site = faultNode[f];
+            long stuck = stuckAt[f] ? -1L : 0L;
+            long siteValue;
+            long siteKnown;
+            if (faultSlot[f] == OUTPUT) {
+                siteValue = stuck;
+                siteKnown = -1L;
+            } else {
+                int s0 = 2 * site;
+                long v0 = faultSlot[f] == 0 ? stuck : machine.valueOf(s0);
+                long k0 = faultSlot[f] == 0 ? -1L : machine.knownOf(s0);
+                long v1 = faultSlot[f] == 1 ? stuck : machine.valueOf(s0 + 1);
+                long k1 = faultSlot[f] == 1 ? -1L : machine.knownOf(s0 + 1);
+                siteKnown = knownOut(netlist.type[site], k0, k1);
+                siteValue = valueOut(netlist.type[site], v0, k0, v1, k1) & siteKnown;
+            }
+
+            long detected = set(site, siteValue, siteKnown, machine, mask);
+            int levelCount = bucket.length;
+            for (int l = level[site] + 1; dirtyCount > 0 && l < levelCount; l++) {
+                int[] nodes = bucket[l];
+                for (int j = 0; j < bucketSize[l]; j++) {
+                    int node = nodes[j];
+                    dirty[node] = false;
+                    dirtyCount--;
+                    if (detected != 0) continue; // already detected, only clearing the buckets
+                    int s0 = 2 * node;
+                    long k0 = knownOf(machine, s0);
+                    long k1 = knownOf(machine, s0 + 1);
+                    byte type = netlist.type[node];
+                    long k = knownOut(type, k0, k1);
+                    long v = valueOut(type, valueOf(machine, s0), k0, valueOf(machine, s0 + 1), k1) & k;
+                    detected = set(node, v, k, machine, mask);
+                }
+                bucketSize[l] = 0;
+            }
+            return detected;
+        }
+
+        /**
+         * Records a faulty node value if it differs from the fault-free one
+         * and schedules the fanout.
+         *
+         * @return lanes in which the node is an output that the fault flips
+         */
+        private long set(int node, long v, long k, BitParallelEvaluator machine, long mask) {
+            long goodValue = machine.getValue(node);
+            long goodKnown = machine.getKnown(node);
+            if (((v ^ goodValue) | (k ^ goodKnown)) == 0) {
+                return 0;
+            }
+            value[node] = v;
+            known[node] = k;
+            stamp[node] = epoch;
+            for (int i = netlist.fanoutStart[node]; i < netlist.fanoutStart[node + 1]; i++) {
+                int target = netlist.fanout[i];
+                if (!dirty[target]) {
+                    dirty[target] = true;
+                    dirtyCount++;
+                    int l = level[target];
+                    bucket[l][bucketSize[l]++] = target;
+                }
+            }
+            return observed[node] ? (v ^ goodValue) & k & goodKnown & mask : 0;
+        }
+
+        private long valueOf(BitParallelEvaluator machine, int slot) {
+            int s = netlist.source[slot];
+            return s >= 0 && stamp[s] == epoch ? value[s] : machine.valueOf(slot);
+        }
+
+        private long knownOf(BitParallelEvaluator machine, int slot) {
+            int s = netlist.source[slot];
+            return s >= 0 && stamp[s] == epoch ? known[s] : machine.knownOf(slot);
+        }
+    }
+
+    // Same three-valued rules as BitParallelEvaluator.compute
+
+    private static long knownOut(byte type, long k0, long k1) {
+        switch (type) {
+            case AND:
+            case OR: return k0 & k1;
+            case NOT: return k0;
+            default: return -1L; // LED
+        }
+    }
+
+    private static long valueOut(byte type, long v0, long k0, long v1, long k1) {
+        switch (type) {
+            case AND: return v0 & v1;
+            case OR: return v0 | v1;
+            case NOT: return ~v0;
+            default: return v0 & k0; // LED
+        }
+    }
+
+    public int getFaultCount() {
+        return faultCount;
+    }
+
+    /**
+     * @return node of the gate a fault sits on
+     */
+    public int getFaultNode(int fault) {
+        return faultNode[fault];
+    }
+
+    /**
+     * @return input slot of the faulty pin, or {@link #OUTPUT}
+     */
+    public int getFaultSlot(int fault) {
+        return faultSlot[fault];
+    }
+
+    /**
+     * @return true for stuck-at-1, false for stuck-at-0
+     */
+    public boolean isStuckAtOne(int fault) {
+        return stuckAt[fault];
+    }
+
+    /**
+     * @return a description such as "AND 12 In 2 stuck-at-0"
+     */
+    public String getFaultLabel(int fault) {
+        int node = faultNode[fault];
+        String pin = faultSlot[fault] == OUTPUT ? "Out" : "In " + (faultSlot[fault] + 1);
+        return netlist.components[node].getComponentType() + " " + netlist.componentId[node] + " " + pin
+                + " stuck-at-" + (stuckAt[fault] ? 1 : 0);
+    }
+
+    public boolean isDetected(int fault) {
+        return detectingVector[fault] >= 0;
+    }
+
+    /**
+     * @return index of the first vector that detected a fault, counting all
+     *         sets simulated so far, or -1 if it is undetected
+     */
+    public long getDetectingVector(int fault) {
+        return detectingVector[fault];
+    }
+
+    public int getDetectedCount() {
+        return faultCount - undetectedCount;
+    }
+
+    /**
+     * @return the faults no vector has detected yet
+     */
+    public int[] getUndetectedFaults() {
+        return Arrays.copyOf(undetected, undetectedCount);
+    }
+
+    /**
+     * @return coverage over all sets simulated so far
+     */
+    public FaultCoverage getCoverage() {
+        return new FaultCoverage(faultCount, getDetectedCount(), getDetectedCount(), vectorCount);
+    }
+
+    /**
+     * @return vectors simulated since this simulator was created
+     */
+    public long getVectorCount() {
+        return vectorCount;
+    }
+}
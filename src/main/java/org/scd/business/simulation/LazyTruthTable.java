@@ -0,0 +1,134 @@
+package org.scd.business.simulation;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Truth table whose rows are computed on demand, 64 at a time.
+ *
+ * Nothing is precomputed: {@link #pages()} streams the full table page by
+ * page in constant memory, and the random-access getters evaluate only the
+ * page a row falls into, keeping a small LRU cache of recent pages for
+ * scrolling views. There is no row limit other than the row number fitting
+ * in a {@code long}.
+ */
+public class LazyTruthTable {
+
+    /** Largest number of inputs whose rows can be numbered with a long. */
+    public static final int MAX_INPUTS = 62;
+
+    private static final int CACHED_PAGES = 256;
+
+    private final TruthTableLayout layout;
+    private final long rowCount;
+    private final BitParallelEvaluator initial;
+    private final BitParallelEvaluator evaluator;
+    private final boolean cyclic;
+    private final Map<Long, TruthTablePage> cache;
+
+    public LazyTruthTable(TruthTableLayout layout) {
+        if (layout.getInputCount() > MAX_INPUTS) {
+            throw new IllegalArgumentException("Truth table has " + layout.getInputCount()
+                    + " inputs; at most " + MAX_INPUTS + " are supported");
+        }
+        this.layout = layout;
+        this.rowCount = 1L << layout.getInputCount();
+
+        // Feedback loops start every page from the same state, so a page
+        // does not depend on which pages were computed before it
+        CompiledCircuit netlist = layout.getNetlist();
+        this.initial = new BitParallelEvaluator(netlist);
+        this.initial.load();
+        this.evaluator = initial.copy();
+        this.cyclic = netlist.getFeedbackStart() < netlist.getNodeCount();
+
+        this.cache = new LinkedHashMap<>(CACHED_PAGES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, TruthTablePage> eldest) {
+                return size() > CACHED_PAGES;
+            }
+        };
+    }
+
+    public TruthTableLayout getLayout() {
+        return layout;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getInputCount() {
+        return layout.getInputCount();
+    }
+
+    public int getOutputCount() {
+        return layout.getOutputCount();
+    }
+
+    public boolean getInput(long row, int input) {
+        return layout.inputBit(row, input) == 1;
+    }
+
+    public boolean getOutput(long row, int output) {
+        long baseRow = row & ~(BitParallelEvaluator.LANES - 1L);
+        TruthTablePage page = cache.get(baseRow);
+        if (page == null) {
+            page = computePage(baseRow);
+            cache.put(baseRow, page);
+        }
+        return page.getOutput((int) (row - baseRow), output);
+    }
+
+    /**
+     * Evaluates the page starting at {@code baseRow}, a multiple of 64.
+     */
+    public TruthTablePage computePage(long baseRow) {
+        if (cyclic) {
+            evaluator.copyStateFrom(initial);
+        }
+        layout.applyBlock(evaluator, baseRow);
+        evaluator.evaluate();
+
+        long[] words = new long[layout.getOutputCount()];
+        for (int k = 0; k < words.length; k++) {
+            words[k] = evaluator.getValue(layout.getOutputNode(k));
+        }
+        int rows = (int) Math.min(BitParallelEvaluator.LANES, rowCount - baseRow);
+        if (rows < BitParallelEvaluator.LANES) {
+            long mask = (1L << rows) - 1;
+            for (int k = 0; k < words.length; k++) {
+                words[k] &= mask;
+            }
+        }
+        return new TruthTablePage(layout, baseRow, rows, words);
+    }
+
+    /**
+     * @return an iterator computing each page of the table as it is reached;
+     *         pages are not cached
+     */
+    public Iterator<TruthTablePage> pages() {
+        return new Iterator<>() {
+            private long next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < rowCount;
+            }
+
+            @Override
+            public TruthTablePage next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                TruthTablePage page = computePage(next);
+                next += BitParallelEvaluator.LANES;
+                return page;
+            }
+        };
+    }
+}
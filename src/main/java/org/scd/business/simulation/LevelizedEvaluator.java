@@ -0,0 +1,469 @@
+package org.scd.business.simulation;
+
+import org.scd.business.model.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Evaluates a circuit by visiting its components in topological order.
+ *
+ * The netlist is levelized once from {@link Circuit#getConnectors()} and the
+ * order is cached until {@link Circuit#getStructureVersion()} changes, so a
+ * normal recalculation pulls every input from its driver and calls
+ * {@code calculate()} on every component exactly once.
+ *
+ * Components that sit on a feedback loop (or behind one) cannot be levelized.
+ * They are split into strongly connected components with Tarjan's algorithm
+ * and visited in topological order of those components: a component that is
+ * only behind a loop is still calculated once, and only the components of a
+ * loop itself are iterated until they settle or the pass limit is reached.
+ * Each loop's outcome is returned as a {@link ConvergenceReport}.
+ *
+ * {@link Sequential} elements (flip-flops and latches) cut the graph: their
+ * outputs are state, so wires into them create no ordering edge. After the
+ * combinational logic has settled, every storage element samples its inputs,
+ * then all of them commit together, and the logic is settled again. For a
+ * synchronous design that is one sample and commit per clock; the rounds only
+ * repeat while a commit changes what another element sees, as in a ripple
+ * counter or through an open latch.
+ *
+ * A {@link SubcircuitInstance} is one node here; its outputs are computed
+ * from its definition's shared netlist (see {@link SubcircuitDefinition}),
+ * and connectors read the output port given by their source output index.
+ */
+public class LevelizedEvaluator {
+
+    /** Upper bound on passes over one feedback loop, matching the old engine. */
+    public static final int MAX_FEEDBACK_PASSES = 10;
+
+    private final Circuit circuit;
+    private int builtVersion = -1;
+
+    private List<List<Component>> levels;           // level 0 = components without fanin
+    private List<Component> order;                  // levels flattened
+    private List<Component> feedback;               // components that could not be levelized
+    private List<List<Component>> feedbackBlocks;   // feedback split into SCCs, in topological order
+    private List<Boolean> cyclicBlocks;             // whether each block contains a cycle
+    private List<Sequential> sequential;            // storage elements, in circuit order
+
+    public LevelizedEvaluator(Circuit circuit) {
+        this.circuit = circuit;
+    }
+
+    public Circuit getCircuit() {
+        return circuit;
+    }
+
+    /**
+     * Recomputes every gate and LED of the circuit from its switches and
+     * directly set gate inputs.
+     *
+     * @return the outcome of every feedback loop; {@link ConvergenceReport#ACYCLIC}
+     *         if the circuit has none
+     */
+    public ConvergenceReport evaluate() {
+        levelize();
+        ConvergenceReport report = evaluateCombinational();
+
+        for (int round = 0; round <= sequential.size() && sampleAndCommit(); round++) {
+            report = evaluateCombinational();
+        }
+        return report;
+    }
+
+    /**
+     * Settles the logic between storage elements, which keep their outputs.
+     */
+    private ConvergenceReport evaluateCombinational() {
+        evaluateLevels();
+        if (feedback.isEmpty()) {
+            return ConvergenceReport.ACYCLIC;
+        }
+
+        List<ConvergenceReport.Loop> loops = new ArrayList<>();
+        for (int b = 0; b < feedbackBlocks.size(); b++) {
+            List<Component> block = feedbackBlocks.get(b);
+            if (!cyclicBlocks.get(b)) {
+                Component component = block.get(0);
+                pullInputs(component);
+                calculate(component);
+                continue;
+            }
+
+            boolean changed = true;
+            int passes = 0;
+            while (changed && passes < MAX_FEEDBACK_PASSES) {
+                changed = false;
+                for (Component component : block) {
+                    changed |= pullInputs(component);
+                    changed |= calculate(component);
+                }
+                passes++;
+            }
+
+            List<Integer> ids = new ArrayList<>();
+            for (Component component : block) {
+                ids.add(component.getComponentId());
+            }
+            loops.add(new ConvergenceReport.Loop(ids, passes, !changed));
+        }
+        return new ConvergenceReport(loops);
+    }
+
+    /**
+     * Pulls the inputs of and calculates every levelized component except the
+     * storage elements, level by level.
+     */
+    void evaluateLevels() {
+        for (Component component : order) {
+            if (component instanceof Sequential) continue;
+            pullInputs(component);
+            calculate(component);
+        }
+    }
+
+    /**
+     * Lets every storage element sample its inputs, then commits them all.
+     *
+     * @return true if any output changed
+     */
+    boolean sampleAndCommit() {
+        for (Sequential element : sequential) {
+            pullInputs(element);
+            element.sample();
+        }
+        boolean changed = false;
+        for (Sequential element : sequential) {
+            changed |= element.commit();
+        }
+        return changed;
+    }
+
+    /**
+     * Rebuilds the cached topological order if the circuit structure changed
+     * since the last call.
+     */
+    public void levelize() {
+        if (builtVersion == circuit.getStructureVersion() && order != null) {
+            return;
+        }
+
+        List<Component> all = new ArrayList<>();
+        all.addAll(circuit.getSwitches());
+        all.addAll(circuit.getClocks());
+        all.addAll(circuit.getGates());
+        all.addAll(circuit.getLeds());
+        all.addAll(circuit.getSubcircuits());
+
+        // Fanin and fanout come from the circuit's index; connectors from unknown
+        // sources still feed a constant 0 but do not create an ordering edge
+        Map<Integer, Integer> inDegree = new HashMap<>();
+        for (Connector connector : circuit.getConnectors()) {
+            int targetId = connector.getTargetComponentId();
+            if (getComponent(targetId) == null || getComponent(connector.getSourceComponentId()) == null) continue;
+            if (!isStateElement(targetId)) {
+                inDegree.merge(targetId, 1, Integer::sum);
+            }
+        }
+
+        // Kahn's algorithm, one level at a time
+        levels = new ArrayList<>();
+        order = new ArrayList<>();
+        List<Component> current = new ArrayList<>();
+        for (Component component : all) {
+            if (inDegree.getOrDefault(component.getComponentId(), 0) == 0) {
+                current.add(component);
+            }
+        }
+        while (!current.isEmpty()) {
+            levels.add(current);
+            order.addAll(current);
+            List<Component> next = new ArrayList<>();
+            for (Component component : current) {
+                for (Connector connector : getFanout(component.getComponentId())) {
+                    int targetId = connector.getTargetComponentId();
+                    if (getComponent(targetId) == null || isStateElement(targetId)) continue;
+                    if (inDegree.merge(targetId, -1, Integer::sum) == 0) {
+                        next.add(getComponent(targetId));
+                    }
+                }
+            }
+            current = next;
+        }
+
+        List<Component> remaining = new ArrayList<>();
+        if (order.size() < all.size()) {
+            for (Component component : all) {
+                if (inDegree.getOrDefault(component.getComponentId(), 0) > 0) {
+                    remaining.add(component);
+                }
+            }
+        }
+
+        feedback = new ArrayList<>();
+        feedbackBlocks = stronglyConnectedComponents(remaining);
+        cyclicBlocks = new ArrayList<>();
+        for (List<Component> block : feedbackBlocks) {
+            feedback.addAll(block);
+            int id = block.get(0).getComponentId();
+            cyclicBlocks.add(block.size() > 1 || feedsItself(id));
+        }
+
+        sequential = new ArrayList<>();
+        for (Component component : all) {
+            if (component instanceof Sequential) {
+                sequential.add((Sequential) component);
+            }
+        }
+
+        builtVersion = circuit.getStructureVersion();
+    }
+
+    /**
+     * @return true if wires into the component do not order it after their source
+     */
+    private boolean isStateElement(int componentId) {
+        return getComponent(componentId) instanceof Sequential;
+    }
+
+    private boolean feedsItself(int componentId) {
+        for (Connector connector : getFanout(componentId)) {
+            if (connector.getTargetComponentId() == componentId) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Tarjan's algorithm over the fanout edges between the given components,
+     * written with an explicit stack so long chains cannot overflow the call
+     * stack. Apart from storage elements, which are skipped, every fanout
+     * target of a component that could not be levelized is itself in that
+     * set, so no other edge leaves it.
+     *
+     * @return the strongly connected components in topological order, each
+     *         listed in circuit order
+     */
+    private List<List<Component>> stronglyConnectedComponents(List<Component> nodes) {
+        Map<Integer, Integer> position = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            position.put(nodes.get(i).getComponentId(), i);
+        }
+
+        Map<Integer, Integer> index = new HashMap<>();
+        Map<Integer, Integer> lowLink = new HashMap<>();
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        Set<Integer> onStack = new HashSet<>();
+        List<List<Component>> sccs = new ArrayList<>();
+
+        for (Component root : nodes) {
+            if (index.containsKey(root.getComponentId())) continue;
+
+            // Each frame is {component id, next fanout position}
+            ArrayDeque<int[]> frames = new ArrayDeque<>();
+            frames.push(new int[] {root.getComponentId(), 0});
+            index.put(root.getComponentId(), index.size());
+            lowLink.put(root.getComponentId(), index.get(root.getComponentId()));
+            stack.push(root.getComponentId());
+            onStack.add(root.getComponentId());
+
+            while (!frames.isEmpty()) {
+                int[] frame = frames.peek();
+                int id = frame[0];
+                List<Connector> targets = getFanout(id);
+
+                if (frame[1] < targets.size()) {
+                    int targetId = targets.get(frame[1]++).getTargetComponentId();
+                    if (getComponent(targetId) == null || isStateElement(targetId)) continue;
+                    if (!index.containsKey(targetId)) {
+                        index.put(targetId, index.size());
+                        lowLink.put(targetId, index.get(targetId));
+                        stack.push(targetId);
+                        onStack.add(targetId);
+                        frames.push(new int[] {targetId, 0});
+                    } else if (onStack.contains(targetId)) {
+                        lowLink.put(id, Math.min(lowLink.get(id), index.get(targetId)));
+                    }
+                    continue;
+                }
+
+                frames.pop();
+                if (!frames.isEmpty()) {
+                    int parentId = frames.peek()[0];
+                    lowLink.put(parentId, Math.min(lowLink.get(parentId), lowLink.get(id)));
+                }
+                if (lowLink.get(id).equals(index.get(id))) {
+                    List<Component> scc = new ArrayList<>();
+                    int memberId;
+                    do {
+                        memberId = stack.pop();
+                        onStack.remove(memberId);
+                        scc.add(getComponent(memberId));
+                    } while (memberId != id);
+                    scc.sort((a, b) -> position.get(a.getComponentId()) - position.get(b.getComponentId()));
+                    sccs.add(scc);
+                }
+            }
+        }
+
+        // Tarjan finishes a component after everything it feeds
+        Collections.reverse(sccs);
+        return sccs;
+    }
+
+    /**
+     * @return the levelized components, level 0 first; each level only
+     *         depends on earlier levels
+     */
+    public List<List<Component>> getLevels() {
+        levelize();
+        return Collections.unmodifiableList(levels);
+    }
+
+    /**
+     * @return components on or downstream of a feedback loop, in the order
+     *         they are evaluated
+     */
+    public List<Component> getFeedbackComponents() {
+        levelize();
+        return Collections.unmodifiableList(feedback);
+    }
+
+    /**
+     * @return the feedback components split into strongly connected
+     *         components, in topological order
+     */
+    public List<List<Component>> getFeedbackBlocks() {
+        levelize();
+        return Collections.unmodifiableList(feedbackBlocks);
+    }
+
+    /**
+     * @return true if the given feedback block is a loop rather than a single
+     *         component behind one
+     */
+    public boolean isCyclicBlock(int block) {
+        levelize();
+        return cyclicBlocks.get(block);
+    }
+
+    /**
+     * @return storage elements in circuit order
+     */
+    List<Sequential> getSequentialElements() {
+        levelize();
+        return sequential;
+    }
+
+    Component getComponent(int componentId) {
+        return circuit.findComponentById(componentId);
+    }
+
+    /**
+     * @return connectors driving the given component in circuit order, empty if none
+     */
+    List<Connector> getFanin(int componentId) {
+        return circuit.getFaninConnectors(componentId);
+    }
+
+    /**
+     * @return connectors driven by the given component in circuit order, empty
+     *         if none; their targets may be missing from the circuit
+     */
+    List<Connector> getFanout(int componentId) {
+        return circuit.getFanoutConnectors(componentId);
+    }
+
+    /**
+     * Copies the current driver values into the inputs of a component.
+     *
+     * @return true if any input value changed
+     */
+    boolean pullInputs(Component component) {
+        List<Connector> fanin = getFanin(component.getComponentId());
+        boolean changed = false;
+        for (Connector connector : fanin) {
+            Input input = inputOf(component, connector.getTargetInputIndex());
+            if (input == null) continue;
+
+            Integer value = outputOf(getComponent(connector.getSourceComponentId()),
+                                     connector.getSourceOutputIndex());
+            if (!sameValue(input.getValue(), value)) {
+                input.setValue(value);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    static Input inputOf(Component component, int inputIndex) {
+        if (component instanceof Gate) {
+            Gate gate = (Gate) component;
+            return (inputIndex == 0) ? gate.getInput1() : gate.getInput2();
+        }
+        if (component instanceof LED) {
+            return ((LED) component).getInput();
+        }
+        if (component instanceof SubcircuitInstance) {
+            return ((SubcircuitInstance) component).getInput(inputIndex);
+        }
+        return null;
+    }
+
+    /**
+     * Calculates one component; subcircuit instances are evaluated through
+     * their definition.
+     *
+     * @return true if an output changed
+     */
+    static boolean calculate(Component component) {
+        if (component instanceof SubcircuitInstance) {
+            return SubcircuitDefinition.evaluate((SubcircuitInstance) component);
+        }
+        Integer oldOutput = outputOf(component);
+        component.calculate();
+        return !sameValue(oldOutput, outputOf(component));
+    }
+
+    /**
+     * Output value a connector carries from the given port of a source; only
+     * subcircuit instances have more than one.
+     */
+    static Integer outputOf(Component component, int outputIndex) {
+        if (component instanceof SubcircuitInstance) {
+            return ((SubcircuitInstance) component).getOutput(outputIndex);
+        }
+        return outputOf(component);
+    }
+
+    /**
+     * Output value a connector carries from the given source; missing sources
+     * drive 0, as in {@code CircuitService.getComponentOutput}.
+     */
+    static Integer outputOf(Component component) {
+        if (component instanceof Gate) {
+            return ((Gate) component).getOutput();
+        }
+        if (component instanceof LED) {
+            return ((LED) component).isOn() ? 1 : 0;
+        }
+        if (component instanceof Switch) {
+            return ((Switch) component).getOutput();
+        }
+        if (component instanceof Clock) {
+            return ((Clock) component).getOutput();
+        }
+        return 0;
+    }
+
+    static boolean sameValue(Integer a, Integer b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
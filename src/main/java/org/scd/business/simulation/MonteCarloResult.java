@@ -0,0 +1,88 @@
+package org.scd.business.simulation;
+
+
+/**
+ * Statistics of a {@link MonteCarloSimulator} run: how often each output
+ * column was 1, how often each gate changed between consecutive vectors, and
+ * the throughput reached.
+ */
+public class MonteCarloResult {
+
+    private final TruthTableLayout layout;
+    private final long vectorCount;
+    private final long[] outputOnes;
+    private final int[] gateIds;
+    private final long[] gateToggles;
+    private final long transitionCount;
+    private final long elapsedNanos;
+
+    MonteCarloResult(TruthTableLayout layout, long vectorCount, long[] outputOnes, int[] gateIds,
+                     long[] gateToggles, long transitionCount, long elapsedNanos) {
+        this.layout = layout;
+        this.vectorCount = vectorCount;
+        this.outputOnes = outputOnes;
+        this.gateIds = gateIds;
+        this.gateToggles = gateToggles;
+        this.transitionCount = transitionCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getVectorCount() {
+        return vectorCount;
+    }
+
+    public int getOutputCount() {
+        return outputOnes.length;
+    }
+
+    public String getOutputLabel(int output) {
+        return layout.getOutputLabel(output);
+    }
+
+    /**
+     * @return share of the vectors for which an output column was a known 1
+     */
+    public double getSignalProbability(int output) {
+        return vectorCount == 0 ? 0 : (double) outputOnes[output] / vectorCount;
+    }
+
+    public int getGateCount() {
+        return gateIds.length;
+    }
+
+    public int getGateComponentId(int gate) {
+        return gateIds[gate];
+    }
+
+    /**
+     * @return share of consecutive vector pairs across which a gate output
+     *         changed between 1 and not 1
+     */
+    public double getToggleRate(int gate) {
+        return transitionCount == 0 ? 0 : (double) gateToggles[gate] / transitionCount;
+    }
+
+    /**
+     * @return toggle rate of the gate with the given id, or -1 if it is not a gate of the circuit
+     */
+    public double getToggleRateById(int componentId) {
+        for (int g = 0; g < gateIds.length; g++) {
+            if (gateIds[g] == componentId) return getToggleRate(g);
+        }
+        return -1;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getVectorsPerSecond() {
+        return elapsedNanos == 0 ? 0 : vectorCount * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d random vectors in %.1f ms (%.3g vectors/s)",
+                vectorCount, elapsedNanos / 1e6, getVectorsPerSecond());
+    }
+}
@@ -0,0 +1,185 @@
+package org.scd.business.simulation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static org.scd.business.simulation.CompiledCircuit.*;
+
+
+/**
+ * Monte-Carlo simulation over random input vectors, for circuits whose input
+ * space is too large to enumerate.
+ *
+ * Inputs and outputs are the columns of a {@link TruthTableLayout}: the
+ * unconnected gate inputs and the switches get uniformly random values, and
+ * the output columns are observed. Vectors are evaluated 64 at a time in the
+ * lanes of a {@link BitParallelEvaluator}, so no value is ever boxed.
+ *
+ * The run is split recursively into chunks of words on a {@link ForkJoinPool}.
+ * Each chunk draws from its own {@link SplittableRandom}, split off its
+ * parent's before the parent's half is forked, so a given seed and chunk size
+ * produce the same vectors whatever the number of workers. Chunks count the
+ * 1s of every output column and the toggles of every gate output between
+ * consecutive vectors, and their counts are summed on the way back up.
+ */
+public class MonteCarloSimulator {
+
+    /** Default number of 64-vector words below which a chunk is not split further. */
+    public static final int DEFAULT_CHUNK_WORDS = 1 << 12;
+
+    private final TruthTableLayout layout;
+    private final ForkJoinPool pool;
+    private final int chunkWords;
+    private final BitParallelEvaluator initial;
+    private final int[] gateNodes;
+
+    public MonteCarloSimulator(TruthTableLayout layout) {
+        this(layout, ForkJoinPool.commonPool(), DEFAULT_CHUNK_WORDS);
+    }
+
+    /**
+     * @param pool pool the chunks run on
+     * @param chunkWords words below which a chunk is evaluated directly
+     */
+    public MonteCarloSimulator(TruthTableLayout layout, ForkJoinPool pool, int chunkWords) {
+        this.layout = layout;
+        this.pool = pool;
+        this.chunkWords = Math.max(1, chunkWords);
+        this.initial = new BitParallelEvaluator(layout.getNetlist());
+        initial.load();
+
+        CompiledCircuit netlist = layout.getNetlist();
+        int count = 0;
+        for (int i = 0; i < netlist.nodeCount; i++) {
+            if (isGate(netlist.type[i])) count++;
+        }
+        gateNodes = new int[count];
+        for (int i = 0, g = 0; i < netlist.nodeCount; i++) {
+            if (isGate(netlist.type[i])) gateNodes[g++] = i;
+        }
+    }
+
+    private static boolean isGate(byte type) {
+        return type == AND || type == OR || type == NOT || type >= DFF;
+    }
+
+    public TruthTableLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Simulates {@code vectors} random input vectors.
+     *
+     * @param seed seed of the random vectors; equal seeds give equal statistics
+     * @return signal probabilities, toggle rates and throughput of the run
+     */
+    public MonteCarloResult run(long vectors, long seed) {
+        if (vectors < 0) {
+            throw new IllegalArgumentException("Vector count must not be negative, got " + vectors);
+        }
+        long start = System.nanoTime();
+        long words = (vectors + BitParallelEvaluator.LANES - 1) / BitParallelEvaluator.LANES;
+        Tally tally = words == 0 ? new Tally(layout.getOutputCount(), gateNodes.length)
+                : pool.invoke(new Chunk(new SplittableRandom(seed), vectors, 0, words));
+        long elapsed = System.nanoTime() - start;
+
+        int[] gateIds = new int[gateNodes.length];
+        for (int g = 0; g < gateNodes.length; g++) {
+            gateIds[g] = layout.getNetlist().componentId[gateNodes[g]];
+        }
+        return new MonteCarloResult(layout, vectors, tally.outputOnes, gateIds, tally.gateToggles,
+                tally.transitions, elapsed);
+    }
+
+    /** Counts of one chunk. */
+    private static class Tally {
+        final long[] outputOnes;
+        final long[] gateToggles;
+        long transitions;   // consecutive vector pairs within the chunk
+
+        Tally(int outputs, int gates) {
+            outputOnes = new long[outputs];
+            gateToggles = new long[gates];
+        }
+
+        Tally add(Tally other) {
+            for (int k = 0; k < outputOnes.length; k++) outputOnes[k] += other.outputOnes[k];
+            for (int g = 0; g < gateToggles.length; g++) gateToggles[g] += other.gateToggles[g];
+            transitions += other.transitions;
+            return this;
+        }
+    }
+
+    /**
+     * Evaluates words {@code fromWord} to {@code toWord - 1}.
+     */
+    private class Chunk extends RecursiveTask<Tally> {
+        private final SplittableRandom random;
+        private final long vectors;
+        private final long fromWord;
+        private final long toWord;
+
+        Chunk(SplittableRandom random, long vectors, long fromWord, long toWord) {
+            this.random = random;
+            this.vectors = vectors;
+            this.fromWord = fromWord;
+            this.toWord = toWord;
+        }
+
+        @Override
+        protected Tally compute() {
+            long words = toWord - fromWord;
+            if (words > chunkWords) {
+                long mid = fromWord + words / 2;
+                Chunk right = new Chunk(random.split(), vectors, mid, toWord);
+                Chunk left = new Chunk(random, vectors, fromWord, mid);
+                right.fork();
+                Tally tally = left.compute();
+                return tally.add(right.join());
+            }
+
+            // Worker-private state; feedback loops restart from the loaded state on each word
+            BitParallelEvaluator evaluator = initial.copy();
+            CompiledCircuit netlist = layout.getNetlist();
+            boolean cyclic = netlist.getFeedbackStart() < netlist.getNodeCount();
+            int inputCount = layout.getInputCount();
+            int outputCount = layout.getOutputCount();
+            Tally tally = new Tally(outputCount, gateNodes.length);
+            long[] previous = new long[gateNodes.length];
+
+            for (long word = fromWord; word < toWord; word++) {
+                if (cyclic && word > fromWord) {
+                    evaluator.copyStateFrom(initial);
+                }
+                for (int j = 0; j < inputCount; j++) {
+                    int node = layout.getInputNode(j);
+                    int slot = layout.getInputSlot(j);
+                    if (slot < 0) {
+                        evaluator.setValue(node, random.nextLong());
+                    } else {
+                        evaluator.setDirectInput(node, slot, random.nextLong());
+                    }
+                }
+                evaluator.evaluate();
+
+                long lanes = Math.min(BitParallelEvaluator.LANES, vectors - word * BitParallelEvaluator.LANES);
+                long mask = lanes == BitParallelEvaluator.LANES ? -1L : (1L << lanes) - 1;
+                for (int k = 0; k < outputCount; k++) {
+                    tally.outputOnes[k] += Long.bitCount(evaluator.getValue(layout.getOutputNode(k)) & mask);
+                }
+
+                // Lane l is compared with lane l - 1, lane 0 with the last lane of the previous word
+                long pairs = word == fromWord ? mask & ~1L : mask;
+                tally.transitions += Long.bitCount(pairs);
+                for (int g = 0; g < gateNodes.length; g++) {
+                    long v = evaluator.getValue(gateNodes[g]);
+                    long before = v << 1 | previous[g] >>> 63;
+                    tally.gateToggles[g] += Long.bitCount((v ^ before) & pairs);
+                    previous[g] = v;
+                }
+            }
+            return tally;
+        }
+    }
+}
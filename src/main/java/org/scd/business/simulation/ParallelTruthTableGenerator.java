@@ -0,0 +1,119 @@
+package org.scd.business.simulation;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Generates complete truth tables on a {@link ForkJoinPool}.
+ *
+ * The 2^n row space is split recursively into chunks of whole 64-row pages.
+ * Each chunk is evaluated on its own copy of the bit-parallel evaluator state,
+ * so workers share only the read-only compiled netlist, and each writes a
+ * disjoint range of words of the per-output result. The words are turned
+ * into one {@link BitSet} per output column of a {@link TruthTable} at the end.
+ */
+public class ParallelTruthTableGenerator {
+
+    /** Largest number of inputs whose rows fit in a BitSet. */
+    public static final int MAX_INPUTS = 30;
+
+    /** Default number of rows below which a chunk is not split further. */
+    public static final int DEFAULT_CHUNK_ROWS = 1 << 14;
+
+    private final ForkJoinPool pool;
+    private final int chunkRows;
+
+    public ParallelTruthTableGenerator() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_ROWS);
+    }
+
+    /**
+     * @param pool pool the chunks run on
+     * @param chunkRows rows below which a chunk is evaluated directly
+     */
+    public ParallelTruthTableGenerator(ForkJoinPool pool, int chunkRows) {
+        this.pool = pool;
+        this.chunkRows = Math.max(BitParallelEvaluator.LANES, chunkRows);
+    }
+
+    /**
+     * Evaluates every row of the table described by a layout.
+     *
+     * @return the complete table
+     */
+    public TruthTable generate(TruthTableLayout layout) {
+        if (layout.getInputCount() > MAX_INPUTS) {
+            throw new IllegalArgumentException("Truth table has " + layout.getInputCount()
+                    + " inputs; at most " + MAX_INPUTS + " are supported");
+        }
+        long rowCount = 1L << layout.getInputCount();
+        int wordCount = (int) ((rowCount + BitParallelEvaluator.LANES - 1) / BitParallelEvaluator.LANES);
+
+        BitParallelEvaluator initial = new BitParallelEvaluator(layout.getNetlist());
+        initial.load();
+
+        long[][] words = new long[layout.getOutputCount()][wordCount];
+        pool.invoke(new Chunk(layout, initial, words, rowCount, 0, wordCount));
+
+        BitSet[] outputs = new BitSet[words.length];
+        for (int k = 0; k < words.length; k++) {
+            outputs[k] = BitSet.valueOf(words[k]);
+        }
+        return TruthTable.of(layout, outputs);
+    }
+
+    /**
+     * Evaluates pages {@code fromWord} to {@code toWord - 1}.
+     */
+    private class Chunk extends RecursiveAction {
+        private final TruthTableLayout layout;
+        private final BitParallelEvaluator initial;
+        private final long[][] words;
+        private final long rowCount;
+        private final int fromWord;
+        private final int toWord;
+
+        Chunk(TruthTableLayout layout, BitParallelEvaluator initial, long[][] words, long rowCount,
+              int fromWord, int toWord) {
+            this.layout = layout;
+            this.initial = initial;
+            this.words = words;
+            this.rowCount = rowCount;
+            this.fromWord = fromWord;
+            this.toWord = toWord;
+        }
+
+        @Override
+        protected void compute() {
+            int pages = toWord - fromWord;
+            if ((long) pages * BitParallelEvaluator.LANES > chunkRows && pages > 1) {
+                int mid = fromWord + pages / 2;
+                invokeAll(new Chunk(layout, initial, words, rowCount, fromWord, mid),
+                          new Chunk(layout, initial, words, rowCount, mid, toWord));
+                return;
+            }
+
+            // Worker-private state; feedback loops restart from the loaded state on each page
+            BitParallelEvaluator evaluator = initial.copy();
+            boolean cyclic = layout.getNetlist().getFeedbackStart() < layout.getNetlist().getNodeCount();
+            int outputCount = layout.getOutputCount();
+
+            for (int word = fromWord; word < toWord; word++) {
+                long baseRow = (long) word * BitParallelEvaluator.LANES;
+                if (cyclic && word > fromWord) {
+                    evaluator.copyStateFrom(initial);
+                }
+                layout.applyBlock(evaluator, baseRow);
+                evaluator.evaluate();
+
+                long mask = rowCount - baseRow >= BitParallelEvaluator.LANES
+                        ? -1L : (1L << (rowCount - baseRow)) - 1;
+                for (int k = 0; k < outputCount; k++) {
+                    words[k][word] = evaluator.getValue(layout.getOutputNode(k)) & mask;
+                }
+            }
+        }
+    }
+}
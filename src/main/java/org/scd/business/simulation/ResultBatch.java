@@ -0,0 +1,71 @@
+package org.scd.business.simulation;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import static org.scd.business.simulation.CompiledCircuit.*;
+
+
+/**
+ * Outputs computed for one {@link VectorBatch}, in the same bit-parallel
+ * form: per output column one value word and one known word per 64 vectors.
+ */
+public final class ResultBatch {
+
+    private final VectorBatch vectors;
+    private final long[][] value; // [output][word]
+    private final long[][] known;
+
+    ResultBatch(VectorBatch vectors, long[][] value, long[][] known) {
+        this.vectors = vectors;
+        this.value = value;
+        this.known = known;
+    }
+
+    /**
+     * @return the input vectors these results belong to
+     */
+    public VectorBatch getVectors() {
+        return vectors;
+    }
+
+    public int getCount() {
+        return vectors.getCount();
+    }
+
+    public int getOutputCount() {
+        return value.length;
+    }
+
+    /**
+     * @return {@link CompiledCircuit#LOW}, {@link CompiledCircuit#HIGH} or
+     *         {@link CompiledCircuit#UNKNOWN}
+     */
+    public byte getOutput(int vector, int output) {
+        int word = vector >>> 6;
+        long bit = 1L << (vector & 63);
+        if ((known[output][word] & bit) == 0) return UNKNOWN;
+        return (value[output][word] & bit) != 0 ? HIGH : LOW;
+    }
+
+    /**
+     * Writes one line per vector: the input bits, a space and the output
+     * bits, with {@code X} for an undetermined output.
+     */
+    public void write(Writer out) throws IOException {
+        int inputs = vectors.getInputCount();
+        char[] line = new char[inputs + 1 + value.length + 1];
+        line[inputs] = ' ';
+        line[line.length - 1] = '\n';
+        for (int v = 0; v < vectors.getCount(); v++) {
+            for (int j = 0; j < inputs; j++) {
+                line[j] = vectors.getInput(v, j) ? '1' : '0';
+            }
+            for (int k = 0; k < value.length; k++) {
+                byte bit = getOutput(v, k);
+                line[inputs + 1 + k] = bit == UNKNOWN ? 'X' : bit == HIGH ? '1' : '0';
+            }
+            out.write(line);
+        }
+    }
+}
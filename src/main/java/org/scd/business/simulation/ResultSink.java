@@ -0,0 +1,92 @@
+package org.scd.business.simulation;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+
+/**
+ * End of a {@link VectorPipeline}: receives {@link ResultBatch}es one at a
+ * time and requests the next only after {@link #accept(ResultBatch)} has
+ * returned, so a slow sink holds back the stages before it instead of
+ * letting results pile up.
+ */
+public abstract class ResultSink implements Flow.Subscriber<ResultBatch> {
+
+    private final CompletableFuture<Long> completion = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+    private long vectorCount;
+
+    /**
+     * Writes every result as text lines, in the format of
+     * {@link ResultBatch#write(Writer)}. The writer is flushed at the end but
+     * not closed.
+     */
+    public static ResultSink writingTo(Writer out) {
+        return new ResultSink() {
+            @Override
+            protected void accept(ResultBatch batch) throws IOException {
+                batch.write(out);
+            }
+
+            @Override
+            protected void finish() throws IOException {
+                out.flush();
+            }
+        };
+    }
+
+    /**
+     * Handles one batch; batches arrive in vector order.
+     */
+    protected abstract void accept(ResultBatch batch) throws IOException;
+
+    /**
+     * Called once after the last batch.
+     */
+    protected void finish() throws IOException {
+    }
+
+    /**
+     * @return completes with the number of vectors received, or with the
+     *         failure of any stage
+     */
+    public CompletableFuture<Long> getCompletion() {
+        return completion;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(ResultBatch batch) {
+        try {
+            accept(batch);
+        } catch (IOException | RuntimeException e) {
+            subscription.cancel();
+            completion.completeExceptionally(e);
+            return;
+        }
+        vectorCount += batch.getCount();
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        try {
+            finish();
+            completion.complete(vectorCount);
+        } catch (IOException | RuntimeException e) {
+            completion.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.scd.business.simulation;
+
+import org.scd.business.model.Circuit;
+import org.scd.business.model.LED;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Outcome of simulating one circuit of a project: the LED states it settled
+ * to, the convergence of its feedback loops and the time it took, or the
+ * exception that stopped it.
+ */
+public class SimulationResult {
+
+    private final int circuitId;
+    private final String circuitName;
+    private final ConvergenceReport report;
+    private final Map<Integer, Boolean> ledStates;
+    private final long elapsedNanos;
+    private final Throwable failure;
+
+    private SimulationResult(int circuitId, String circuitName, ConvergenceReport report,
+                             Map<Integer, Boolean> ledStates, long elapsedNanos, Throwable failure) {
+        this.circuitId = circuitId;
+        this.circuitName = circuitName;
+        this.report = report;
+        this.ledStates = Collections.unmodifiableMap(ledStates);
+        this.elapsedNanos = elapsedNanos;
+        this.failure = failure;
+    }
+
+    /**
+     * Records a settled circuit, reading its LED states.
+     */
+    public static SimulationResult of(Circuit circuit, ConvergenceReport report, long elapsedNanos) {
+        Map<Integer, Boolean> leds = new LinkedHashMap<>();
+        for (LED led : circuit.getLeds()) {
+            leds.put(led.getComponentId(), led.isOn());
+        }
+        return new SimulationResult(circuit.getCircuitId(), circuit.getCircuitName(), report, leds,
+                elapsedNanos, null);
+    }
+
+    /**
+     * Records a circuit whose simulation threw.
+     */
+    public static SimulationResult failed(Circuit circuit, Throwable failure) {
+        return new SimulationResult(circuit.getCircuitId(), circuit.getCircuitName(), null,
+                new LinkedHashMap<>(), 0, failure);
+    }
+
+    public int getCircuitId() {
+        return circuitId;
+    }
+
+    public String getCircuitName() {
+        return circuitName;
+    }
+
+    /**
+     * @return the loop report, or null if the simulation failed
+     */
+    public ConvergenceReport getReport() {
+        return report;
+    }
+
+    /**
+     * @return LED id to on/off, in circuit order
+     */
+    public Map<Integer, Boolean> getLedStates() {
+        return ledStates;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the exception that stopped the simulation, or null
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return true if the circuit settled without error and without oscillating loops
+     */
+    public boolean isConverged() {
+        return failure == null && report.isConverged();
+    }
+}
@@ -0,0 +1,221 @@
+package org.scd.business.simulation;
+
+import org.scd.business.model.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.scd.business.simulation.CompiledCircuit.*;
+
+
+/**
+ * Shared evaluation of one circuit used as a subcircuit definition.
+ *
+ * The definition is compiled once and every {@link SubcircuitInstance} of it
+ * is evaluated by loading the instance's port values into the switch nodes
+ * of one scratch {@link CompiledEvaluator}, running it and reading the values
+ * that reach the LED nodes. The definition's own object model is never
+ * written, and instances keep nothing but their port values, so a design
+ * that places a block many times holds one netlist for it rather than a
+ * flattened copy per placement.
+ *
+ * Definitions are evaluated combinationally: any feedback inside one starts
+ * from the definition's saved state on every evaluation rather than from the
+ * instance's previous one. Definitions may not contain instances themselves.
+ * The netlist is recompiled when the definition is edited, including a
+ * direct input value set through {@link Circuit#setGateInput}.
+ *
+ * Because a definition is combinational, its outputs depend only on the
+ * input ports, so results are memoized: the input values are packed two bits
+ * per port into a {@code long} key and the outputs likewise into the value,
+ * kept in a bounded least-recently-used map. A repeated input pattern skips
+ * the gate-level evaluation entirely. The cache is dropped whenever the
+ * definition is recompiled, and definitions with more than
+ * {@link #MAX_CACHED_PORTS} inputs or outputs are always evaluated.
+ */
+public final class SubcircuitDefinition {
+
+    /** Default number of input patterns remembered per definition. */
+    public static final int DEFAULT_CACHE_CAPACITY = 4096;
+
+    /** Ports that fit in one packed pattern, two bits each. */
+    public static final int MAX_CACHED_PORTS = 32;
+
+    private final Circuit circuit;
+    private CompiledCircuit netlist;
+    private int inputVersion;           // circuit's input version the netlist was compiled from
+    private CompiledEvaluator scratch;
+    private CompiledEvaluator initial;  // state loaded from the definition, restored for feedback
+    private int[] inputNodes;           // per input port: switch node
+    private int[] outputNodes;          // per output port: LED node
+
+    private int cacheCapacity = DEFAULT_CACHE_CAPACITY;
+    private final LinkedHashMap<Long, Long> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > cacheCapacity;
+        }
+    };
+    private long hits;
+    private long misses;
+
+    private SubcircuitDefinition(Circuit circuit) {
+        this.circuit = circuit;
+    }
+
+    /**
+     * @return the shared evaluation of a definition circuit, kept on the
+     *         circuit itself so it is dropped together with it
+     */
+    public static synchronized SubcircuitDefinition of(Circuit circuit) {
+        if (circuit.getDefinitionState() instanceof SubcircuitDefinition) {
+            return (SubcircuitDefinition) circuit.getDefinitionState();
+        }
+        SubcircuitDefinition definition = new SubcircuitDefinition(circuit);
+        circuit.setDefinitionState(definition);
+        return definition;
+    }
+
+    /**
+     * Computes the output ports of an instance from its input ports.
+     *
+     * @return true if any output port changed
+     */
+    static boolean evaluate(SubcircuitInstance instance) {
+        Circuit definition = instance.getDefinition();
+        if (definition == null) return false;
+        return of(definition).evaluateInstance(instance);
+    }
+
+    private synchronized boolean evaluateInstance(SubcircuitInstance instance) {
+        compileIfNeeded();
+        if (instance.getInputCount() != inputNodes.length || instance.getOutputCount() != outputNodes.length) {
+            instance.syncPorts();
+        }
+
+        boolean changed = false;
+        if (cacheCapacity == 0 || inputNodes.length > MAX_CACHED_PORTS || outputNodes.length > MAX_CACHED_PORTS) {
+            misses++;
+            run(instance);
+            for (int port = 0; port < outputNodes.length; port++) {
+                changed |= instance.setOutput(port, CompiledEvaluator.decode(output(port)));
+            }
+            return changed;
+        }
+
+        long key = 0;
+        for (int port = 0; port < inputNodes.length; port++) {
+            key |= (long) CompiledEvaluator.encode(instance.getInput(port).getValue()) << (2 * port);
+        }
+        Long packed = cache.get(key);
+        if (packed != null) {
+            hits++;
+        } else {
+            misses++;
+            run(instance);
+            long outputs = 0;
+            for (int port = 0; port < outputNodes.length; port++) {
+                outputs |= (long) output(port) << (2 * port);
+            }
+            packed = outputs;
+            cache.put(key, packed);
+        }
+
+        for (int port = 0; port < outputNodes.length; port++) {
+            changed |= instance.setOutput(port, CompiledEvaluator.decode((byte) (packed >>> (2 * port) & 3)));
+        }
+        return changed;
+    }
+
+    /**
+     * Evaluates the definition's netlist for the instance's input ports.
+     */
+    private void run(SubcircuitInstance instance) {
+        if (netlist.feedbackStart < netlist.nodeCount) {
+            scratch.copyStateFrom(initial);
+        }
+        for (int port = 0; port < inputNodes.length; port++) {
+            scratch.setValue(inputNodes[port], CompiledEvaluator.encode(instance.getInput(port).getValue()));
+        }
+        scratch.evaluate();
+    }
+
+    /**
+     * @return the value reaching an output LED after {@link #run}, so an
+     *         undetermined signal stays undetermined
+     */
+    private byte output(int port) {
+        return scratch.input(outputNodes[port], 0);
+    }
+
+    private void compileIfNeeded() {
+        if (netlist != null && netlist.isCurrent() && inputVersion == circuit.getInputVersion()) return;
+
+        if (!circuit.getSubcircuits().isEmpty()) {
+            throw new IllegalArgumentException("Circuit " + circuit.getCircuitName()
+                    + " contains subcircuits and cannot be used as a definition");
+        }
+        inputVersion = circuit.getInputVersion();
+        netlist = CompiledCircuit.compile(circuit);
+        cache.clear();
+        initial = new CompiledEvaluator(netlist);
+        initial.load();
+        scratch = initial.copy();
+
+        inputNodes = new int[circuit.getSwitches().size()];
+        for (int port = 0; port < inputNodes.length; port++) {
+            inputNodes[port] = netlist.indexOf(circuit.getSwitches().get(port).getComponentId());
+        }
+        outputNodes = new int[circuit.getLeds().size()];
+        for (int port = 0; port < outputNodes.length; port++) {
+            outputNodes[port] = netlist.indexOf(circuit.getLeds().get(port).getComponentId());
+        }
+    }
+
+    /**
+     * Sets how many input patterns are remembered; 0 disables the cache.
+     */
+    public synchronized void setCacheCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Cache capacity must not be negative, got " + capacity);
+        }
+        cacheCapacity = capacity;
+        while (cache.size() > capacity) {
+            cache.remove(cache.keySet().iterator().next());
+        }
+    }
+
+    public synchronized int getCacheCapacity() {
+        return cacheCapacity;
+    }
+
+    /**
+     * @return number of input patterns currently remembered
+     */
+    public synchronized int getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * @return evaluations answered from the cache
+     */
+    public synchronized long getCacheHits() {
+        return hits;
+    }
+
+    /**
+     * @return evaluations that ran the definition's netlist
+     */
+    public synchronized long getCacheMisses() {
+        return misses;
+    }
+
+    /**
+     * Forgets every remembered pattern and resets the counters.
+     */
+    public synchronized void clearCache() {
+        cache.clear();
+        hits = 0;
+        misses = 0;
+    }
+}
@@ -0,0 +1,312 @@
+package org.scd.business.simulation;
+
+import java.util.Arrays;
+
+import static org.scd.business.simulation.CompiledCircuit.*;
+
+
+/**
+ * Event-driven simulation with propagation delays, so hazards and glitches
+ * that the zero-delay engines hide become visible.
+ *
+ * Every node type has a delay in ticks. When an input of a node changes at
+ * time {@code t}, the node is recomputed and its new output is scheduled for
+ * {@code t + delay} (transport delay: short pulses are not filtered out).
+ * Pending events live on a hashed timing wheel: an event for time {@code t}
+ * goes into slot {@code t mod wheelSize}, and advancing the clock by one tick
+ * visits one slot, so both are O(1). Events further ahead than one turn of
+ * the wheel simply stay in their slot until their time comes round.
+ *
+ * Events are rows of preallocated primitive arrays linked through a free
+ * list, so a run does not allocate per event; the pool only grows when more
+ * events are pending at once than ever before.
+ *
+ * The simulation starts from the zero-delay steady state of the circuit as it
+ * is in the object model; switches are the stimuli.
+ */
+public class TimingSimulator {
+
+    /** Receives every value change as it happens. */
+    public interface Listener {
+        void valueChanged(long time, int node, byte value);
+    }
+
+    private static final int NONE = -1;
+
+    private final CompiledCircuit netlist;
+    private final CompiledEvaluator state;
+    private final int[] delayByType = {0, 2, 2, 1, 1, 0, 0, 0}; // by node type; state nodes hold
+    private final byte[] projected;                               // last value scheduled per node
+
+    // Timing wheel; slot lists are kept in FIFO order
+    private final int wheelMask;
+    private final int[] slotHead;
+    private final int[] slotTail;
+
+    // Event pool
+    private long[] eventTime;
+    private int[] eventNode;
+    private byte[] eventValue;
+    private int[] eventNext;
+    private int freeHead = NONE;
+    private int pending;
+
+    // Nodes whose inputs changed in the current tick
+    private final int[] dirty;
+    private final boolean[] isDirty;
+    private int dirtyCount;
+
+    private long now;
+    private long eventCount;
+    private Listener listener;
+
+    public TimingSimulator(CompiledCircuit netlist) {
+        this(netlist, 256);
+    }
+
+    /**
+     * @param wheelSize number of slots, rounded up to a power of two; best a
+     *                  little larger than the longest delay
+     */
+    public TimingSimulator(CompiledCircuit netlist, int wheelSize) {
+        this.netlist = netlist;
+        this.state = new CompiledEvaluator(netlist);
+        this.projected = new byte[netlist.nodeCount];
+
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.wheelMask = size - 1;
+        this.slotHead = new int[size];
+        this.slotTail = new int[size];
+        Arrays.fill(slotHead, NONE);
+        Arrays.fill(slotTail, NONE);
+
+        growPool(Math.max(64, netlist.nodeCount * 2));
+
+        this.dirty = new int[netlist.nodeCount];
+        this.isDirty = new boolean[netlist.nodeCount];
+
+        reset();
+    }
+
+    /**
+     * Sets the propagation delay of every node of one component type.
+     *
+     * @param componentType "AND", "OR", "NOT" or "LED"
+     * @param ticks delay, at least 1
+     */
+    public void setDelay(String componentType, int ticks) {
+        if (ticks < 1) {
+            throw new IllegalArgumentException("Delay must be at least 1 tick, got " + ticks);
+        }
+        switch (componentType) {
+            case "AND": delayByType[AND] = ticks; break;
+            case "OR": delayByType[OR] = ticks; break;
+            case "NOT": delayByType[NOT] = ticks; break;
+            case "LED": delayByType[LED] = ticks; break;
+            default:
+                throw new IllegalArgumentException("No delay for component type: " + componentType);
+        }
+    }
+
+    public int getDelay(byte type) {
+        return delayByType[type];
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Drops all pending events, reloads the object model state, settles it
+     * with zero delay and sets the time back to 0.
+     */
+    public void reset() {
+        for (int slot = 0; slot <= wheelMask; slot++) {
+            int event = slotHead[slot];
+            while (event != NONE) {
+                int next = eventNext[event];
+                free(event);
+                event = next;
+            }
+            slotHead[slot] = NONE;
+            slotTail[slot] = NONE;
+        }
+        pending = 0;
+        now = 0;
+        eventCount = 0;
+
+        state.load();
+        state.evaluate();
+        for (int i = 0; i < netlist.nodeCount; i++) {
+            projected[i] = state.getValue(i);
+        }
+    }
+
+    /**
+     * Schedules a switch to change at the given time.
+     *
+     * @param componentId id of the switch
+     * @param time tick at which the switch output changes, after the current time
+     */
+    public void setSwitch(int componentId, boolean on, long time) {
+        int node = netlist.indexOf(componentId);
+        if (node < 0 || netlist.type[node] != SWITCH) {
+            throw new IllegalArgumentException("Not a switch in this circuit: " + componentId);
+        }
+        if (time <= now) {
+            throw new IllegalArgumentException("Stimulus at " + time + " is not after the current time " + now);
+        }
+        byte value = on ? HIGH : LOW;
+        projected[node] = value;
+        schedule(node, value, time);
+    }
+
+    /**
+     * Advances the clock to {@code endTime}, processing every event due up to
+     * and including it.
+     */
+    public void runUntil(long endTime) {
+        while (now < endTime) {
+            if (pending == 0) {
+                now = endTime;
+                break;
+            }
+            now++;
+            tick();
+        }
+    }
+
+    /**
+     * Runs until no events are pending or {@code maxTime} is reached.
+     *
+     * @return true if the circuit became quiet, false if it was still busy
+     *         (for example oscillating) at {@code maxTime}
+     */
+    public boolean runUntilQuiet(long maxTime) {
+        while (pending > 0 && now < maxTime) {
+            now++;
+            tick();
+        }
+        return pending == 0;
+    }
+
+    private void tick() {
+        int slot = (int) (now & wheelMask);
+
+        // Apply the events due now; later-round events stay in the slot
+        int previous = NONE;
+        int event = slotHead[slot];
+        while (event != NONE) {
+            int next = eventNext[event];
+            if (eventTime[event] == now) {
+                if (previous == NONE) slotHead[slot] = next;
+                else eventNext[previous] = next;
+                if (slotTail[slot] == event) slotTail[slot] = previous;
+                apply(eventNode[event], eventValue[event]);
+                free(event);
+                pending--;
+            } else {
+                previous = event;
+            }
+            event = next;
+        }
+
+        // Recompute each affected node once and schedule its new output
+        for (int d = 0; d < dirtyCount; d++) {
+            int node = dirty[d];
+            isDirty[node] = false;
+            byte out = state.compute(node);
+            if (out != projected[node]) {
+                projected[node] = out;
+                schedule(node, out, now + delayByType[netlist.type[node]]);
+            }
+        }
+        dirtyCount = 0;
+    }
+
+    private void apply(int node, byte value) {
+        if (state.getValue(node) == value) return;
+        state.setValue(node, value);
+        eventCount++;
+        if (listener != null) {
+            listener.valueChanged(now, node, value);
+        }
+        for (int f = netlist.fanoutStart[node]; f < netlist.fanoutStart[node + 1]; f++) {
+            int target = netlist.fanout[f];
+            if (!isDirty[target]) {
+                isDirty[target] = true;
+                dirty[dirtyCount++] = target;
+            }
+        }
+    }
+
+    private void schedule(int node, byte value, long time) {
+        if (freeHead == NONE) {
+            growPool(eventNode.length * 2);
+        }
+        int event = freeHead;
+        freeHead = eventNext[event];
+
+        eventTime[event] = time;
+        eventNode[event] = node;
+        eventValue[event] = value;
+        eventNext[event] = NONE;
+
+        int slot = (int) (time & wheelMask);
+        if (slotTail[slot] == NONE) slotHead[slot] = event;
+        else eventNext[slotTail[slot]] = event;
+        slotTail[slot] = event;
+        pending++;
+    }
+
+    private void free(int event) {
+        eventNext[event] = freeHead;
+        freeHead = event;
+    }
+
+    private void growPool(int capacity) {
+        int old = eventNode == null ? 0 : eventNode.length;
+        eventTime = eventTime == null ? new long[capacity] : Arrays.copyOf(eventTime, capacity);
+        eventNode = eventNode == null ? new int[capacity] : Arrays.copyOf(eventNode, capacity);
+        eventValue = eventValue == null ? new byte[capacity] : Arrays.copyOf(eventValue, capacity);
+        eventNext = eventNext == null ? new int[capacity] : Arrays.copyOf(eventNext, capacity);
+        for (int i = capacity - 1; i >= old; i--) {
+            eventNext[i] = freeHead;
+            freeHead = i;
+        }
+    }
+
+    public long getTime() {
+        return now;
+    }
+
+    /**
+     * @return number of value changes applied since the last reset
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    public int getPendingEventCount() {
+        return pending;
+    }
+
+    public CompiledCircuit getNetlist() {
+        return netlist;
+    }
+
+    /**
+     * @return current value of a node: {@link CompiledCircuit#LOW},
+     *         {@link CompiledCircuit#HIGH} or {@link CompiledCircuit#UNKNOWN}
+     */
+    public byte getValue(int node) {
+        return state.getValue(node);
+    }
+
+    /**
+     * Copies the current values into the object model for display.
+     */
+    public void writeBack() {
+        state.writeBack();
+    }
+}
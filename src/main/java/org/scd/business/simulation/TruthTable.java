@@ -0,0 +1,80 @@
+package org.scd.business.simulation;
+
+import java.util.BitSet;
+
+
+/**
+ * Complete truth table stored one bit per cell: a {@link BitSet} per output
+ * column, bit {@code r} set when the output is 1 in row {@code r}. Input
+ * columns are not stored; input {@code j} of row {@code r} is bit
+ * {@code inputCount - 1 - j} of {@code r}, so the first input is the most
+ * significant.
+ */
+public class TruthTable {
+
+    private final String[] inputLabels;
+    private final String[] outputLabels;
+    private final long rowCount;
+    private final BitSet[] outputs;
+
+    public TruthTable(String[] inputLabels, String[] outputLabels, BitSet[] outputs) {
+        if (outputLabels.length != outputs.length) {
+            throw new IllegalArgumentException("Expected " + outputLabels.length + " output columns, got "
+                    + outputs.length);
+        }
+        this.inputLabels = inputLabels.clone();
+        this.outputLabels = outputLabels.clone();
+        this.rowCount = 1L << inputLabels.length;
+        this.outputs = outputs;
+    }
+
+    /**
+     * Creates a table with the labels of a layout.
+     */
+    public static TruthTable of(TruthTableLayout layout, BitSet[] outputs) {
+        String[] inputLabels = new String[layout.getInputCount()];
+        for (int j = 0; j < inputLabels.length; j++) {
+            inputLabels[j] = layout.getInputLabel(j);
+        }
+        String[] outputLabels = new String[layout.getOutputCount()];
+        for (int k = 0; k < outputLabels.length; k++) {
+            outputLabels[k] = layout.getOutputLabel(k);
+        }
+        return new TruthTable(inputLabels, outputLabels, outputs);
+    }
+
+    public int getInputCount() {
+        return inputLabels.length;
+    }
+
+    public int getOutputCount() {
+        return outputLabels.length;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public String getInputLabel(int input) {
+        return inputLabels[input];
+    }
+
+    public String getOutputLabel(int output) {
+        return outputLabels[output];
+    }
+
+    public boolean getInput(long row, int input) {
+        return ((row >>> (inputLabels.length - 1 - input)) & 1L) != 0;
+    }
+
+    public boolean getOutput(long row, int output) {
+        return outputs[output].get((int) row);
+    }
+
+    /**
+     * @return the backing bitset of an output column; not a copy
+     */
+    public BitSet getOutputColumn(int output) {
+        return outputs[output];
+    }
+}
@@ -0,0 +1,187 @@
+package org.scd.business.simulation;
+
+import org.scd.business.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Inputs and outputs of a compiled circuit as they appear in its truth table.
+ *
+ * Inputs are every gate input that is not connected, followed by every
+ * switch. Outputs are every gate whose output feeds nothing, followed by every
+ * LED. Row {@code r} assigns input {@code j} the bit
+ * {@code (r >> (inputCount - 1 - j)) & 1}, so the first input is the most
+ * significant bit.
+ */
+public class TruthTableLayout {
+
+    private final CompiledCircuit netlist;
+    private final int[] inputNodes;
+    private final int[] inputSlots;   // -1 for switches
+    private final int[] outputNodes;
+    private final String[] inputLabels;
+    private final String[] outputLabels;
+
+    private TruthTableLayout(CompiledCircuit netlist, List<int[]> inputs, List<String> inputLabels,
+                             List<Integer> outputs, List<String> outputLabels) {
+        this.netlist = netlist;
+        this.inputNodes = new int[inputs.size()];
+        this.inputSlots = new int[inputs.size()];
+        for (int j = 0; j < inputs.size(); j++) {
+            inputNodes[j] = inputs.get(j)[0];
+            inputSlots[j] = inputs.get(j)[1];
+        }
+        this.outputNodes = outputs.stream().mapToInt(Integer::intValue).toArray();
+        this.inputLabels = inputLabels.toArray(new String[0]);
+        this.outputLabels = outputLabels.toArray(new String[0]);
+    }
+
+    /**
+     * Discovers the inputs and outputs of the circuit a netlist was compiled from.
+     */
+    public static TruthTableLayout of(CompiledCircuit netlist) {
+        Circuit circuit = netlist.getCircuit();
+        List<int[]> inputs = new ArrayList<>();
+        List<String> inputLabels = new ArrayList<>();
+
+        // Unconnected gate inputs
+        for (Gate gate : circuit.getGates()) {
+            int node = netlist.indexOf(gate.getComponentId());
+            if (gate.getInput1() != null && !gate.getInput1().isConnected()) {
+                inputs.add(new int[] {node, 0});
+                inputLabels.add(gate.getGateType() + " " + gate.getComponentId() + " In 1");
+            }
+            if (gate.getInput2() != null && !gate.getInput2().isConnected()) {
+                inputs.add(new int[] {node, 1});
+                inputLabels.add(gate.getGateType() + " " + gate.getComponentId() + " In 2");
+            }
+        }
+
+        // Switches
+        for (Switch switchComp : circuit.getSwitches()) {
+            inputs.add(new int[] {netlist.indexOf(switchComp.getComponentId()), -1});
+            inputLabels.add("Switch " + switchComp.getComponentId());
+        }
+
+        // Gates not acting as sources, then LEDs
+        List<Integer> outputs = new ArrayList<>();
+        List<String> outputLabels = new ArrayList<>();
+        for (Gate gate : circuit.getGates()) {
+            if (circuit.getFanoutConnectors(gate.getComponentId()).isEmpty()) {
+                outputs.add(netlist.indexOf(gate.getComponentId()));
+                outputLabels.add(gate.getGateType() + " " + gate.getComponentId() + " Out");
+            }
+        }
+        for (LED led : circuit.getLeds()) {
+            outputs.add(netlist.indexOf(led.getComponentId()));
+            outputLabels.add("LED " + led.getComponentId());
+        }
+
+        return new TruthTableLayout(netlist, inputs, inputLabels, outputs, outputLabels);
+    }
+
+    /**
+     * Layout of only the ports of a circuit: its switches as inputs and its
+     * LEDs as outputs, in circuit order, as a subcircuit instance sees them.
+     * Unconnected gate inputs keep their set values.
+     */
+    public static TruthTableLayout ofPorts(CompiledCircuit netlist) {
+        Circuit circuit = netlist.getCircuit();
+        List<int[]> inputs = new ArrayList<>();
+        List<String> inputLabels = new ArrayList<>();
+        for (Switch switchComp : circuit.getSwitches()) {
+            inputs.add(new int[] {netlist.indexOf(switchComp.getComponentId()), -1});
+            inputLabels.add("Switch " + switchComp.getComponentId());
+        }
+        List<Integer> outputs = new ArrayList<>();
+        List<String> outputLabels = new ArrayList<>();
+        for (LED led : circuit.getLeds()) {
+            outputs.add(netlist.indexOf(led.getComponentId()));
+            outputLabels.add("LED " + led.getComponentId());
+        }
+        return new TruthTableLayout(netlist, inputs, inputLabels, outputs, outputLabels);
+    }
+
+    public CompiledCircuit getNetlist() {
+        return netlist;
+    }
+
+    public int getInputCount() {
+        return inputNodes.length;
+    }
+
+    public int getOutputCount() {
+        return outputNodes.length;
+    }
+
+    /**
+     * @return input labels followed by output labels
+     */
+    public String[] getHeader() {
+        String[] header = new String[inputLabels.length + outputLabels.length];
+        System.arraycopy(inputLabels, 0, header, 0, inputLabels.length);
+        System.arraycopy(outputLabels, 0, header, inputLabels.length, outputLabels.length);
+        return header;
+    }
+
+    public String getInputLabel(int input) {
+        return inputLabels[input];
+    }
+
+    public String getOutputLabel(int output) {
+        return outputLabels[output];
+    }
+
+    public int getInputNode(int input) {
+        return inputNodes[input];
+    }
+
+    /**
+     * @return input slot of a gate input, or -1 if the input is a switch
+     */
+    public int getInputSlot(int input) {
+        return inputSlots[input];
+    }
+
+    public int getOutputNode(int output) {
+        return outputNodes[output];
+    }
+
+    /**
+     * @return value of input {@code input} in row {@code row}
+     */
+    public int inputBit(long row, int input) {
+        return (int) (row >>> (inputNodes.length - 1 - input)) & 1;
+    }
+
+    /**
+     * Applies the input values of one row to a scalar evaluator.
+     */
+    public void applyRow(CompiledEvaluator evaluator, long row) {
+        for (int j = 0; j < inputNodes.length; j++) {
+            byte bit = (byte) inputBit(row, j);
+            if (inputSlots[j] < 0) {
+                evaluator.setValue(inputNodes[j], bit);
+            } else {
+                evaluator.setDirectInput(inputNodes[j], inputSlots[j], bit);
+            }
+        }
+    }
+
+    /**
+     * Applies rows {@code baseRow} to {@code baseRow + 63} to a bit-parallel
+     * evaluator, one row per bit lane. {@code baseRow} must be a multiple of 64.
+     */
+    public void applyBlock(BitParallelEvaluator evaluator, long baseRow) {
+        for (int j = 0; j < inputNodes.length; j++) {
+            long pattern = BitParallelEvaluator.rowPattern(inputNodes.length - 1 - j, baseRow);
+            if (inputSlots[j] < 0) {
+                evaluator.setValue(inputNodes[j], pattern);
+            } else {
+                evaluator.setDirectInput(inputNodes[j], inputSlots[j], pattern);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.scd.business.simulation;
+
+
+/**
+ * Up to 64 consecutive truth-table rows in bit-packed form: one {@code long}
+ * per output column, bit {@code i} holding the output of row
+ * {@code baseRow + i}. Input columns are not stored; they follow from the row
+ * number.
+ */
+public class TruthTablePage {
+
+    private final TruthTableLayout layout;
+    private final long baseRow;
+    private final int rowCount;
+    private final long[] outputWords;
+
+    TruthTablePage(TruthTableLayout layout, long baseRow, int rowCount, long[] outputWords) {
+        this.layout = layout;
+        this.baseRow = baseRow;
+        this.rowCount = rowCount;
+        this.outputWords = outputWords;
+    }
+
+    public long getBaseRow() {
+        return baseRow;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @param lane row offset within the page
+     */
+    public boolean getInput(int lane, int input) {
+        return layout.inputBit(baseRow + lane, input) == 1;
+    }
+
+    /**
+     * @param lane row offset within the page
+     */
+    public boolean getOutput(int lane, int output) {
+        return ((outputWords[output] >>> lane) & 1L) != 0;
+    }
+
+    /**
+     * @return the packed outputs of the page for one output column
+     */
+    public long getOutputWord(int output) {
+        return outputWords[output];
+    }
+}
@@ -0,0 +1,132 @@
+package org.scd.business.simulation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Streams a {@link TruthTable} to a channel as CSV or Berkeley PLA.
+ *
+ * Rows are written byte by byte into one reusable buffer that is flushed to
+ * the channel whenever it fills up, so no string is built per row and memory
+ * use does not depend on the size of the table.
+ */
+public class TruthTableWriter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    public TruthTableWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /**
+     * Writes a header line with the column labels, then one line of
+     * comma-separated 0/1 values per row.
+     */
+    public void writeCsv(TruthTable table) throws IOException {
+        int columns = table.getInputCount() + table.getOutputCount();
+        for (int c = 0; c < columns; c++) {
+            if (c > 0) put((byte) ',');
+            put(csvField(c < table.getInputCount()
+                    ? table.getInputLabel(c) : table.getOutputLabel(c - table.getInputCount())));
+        }
+        put((byte) '\n');
+
+        for (long row = 0; row < table.getRowCount(); row++) {
+            for (int j = 0; j < table.getInputCount(); j++) {
+                if (j > 0) put((byte) ',');
+                put(table.getInput(row, j) ? (byte) '1' : (byte) '0');
+            }
+            for (int k = 0; k < table.getOutputCount(); k++) {
+                if (k > 0 || table.getInputCount() > 0) put((byte) ',');
+                put(table.getOutput(row, k) ? (byte) '1' : (byte) '0');
+            }
+            put((byte) '\n');
+        }
+        flush();
+    }
+
+    /**
+     * Writes the table in Berkeley PLA format as an fr-type cover listing
+     * every minterm with its on/off outputs. Label whitespace is replaced by
+     * underscores, since PLA names are whitespace separated.
+     */
+    public void writePla(TruthTable table) throws IOException {
+        put(".i " + table.getInputCount() + "\n");
+        put(".o " + table.getOutputCount() + "\n");
+        if (table.getInputCount() > 0) {
+            put(".ilb");
+            for (int j = 0; j < table.getInputCount(); j++) {
+                put(" " + plaName(table.getInputLabel(j)));
+            }
+            put("\n");
+        }
+        if (table.getOutputCount() > 0) {
+            put(".ob");
+            for (int k = 0; k < table.getOutputCount(); k++) {
+                put(" " + plaName(table.getOutputLabel(k)));
+            }
+            put("\n");
+        }
+        put(".type fr\n");
+        put(".p " + table.getRowCount() + "\n");
+
+        for (long row = 0; row < table.getRowCount(); row++) {
+            for (int j = 0; j < table.getInputCount(); j++) {
+                put(table.getInput(row, j) ? (byte) '1' : (byte) '0');
+            }
+            put((byte) ' ');
+            for (int k = 0; k < table.getOutputCount(); k++) {
+                put(table.getOutput(row, k) ? (byte) '1' : (byte) '0');
+            }
+            put((byte) '\n');
+        }
+        put(".e\n");
+        flush();
+    }
+
+    private static String csvField(String label) {
+        if (label.indexOf(',') < 0 && label.indexOf('"') < 0 && label.indexOf('\n') < 0) {
+            return label;
+        }
+        return '"' + label.replace("\"", "\"\"") + '"';
+    }
+
+    private static String plaName(String label) {
+        return label.trim().replaceAll("\\s+", "_");
+    }
+
+    private void put(byte b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put(b);
+    }
+
+    private void put(String text) throws IOException {
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            put(b);
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes any buffered bytes to the channel. The channel is not closed.
+     */
+    public void flush() throws IOException {
+        drain();
+    }
+}
@@ -0,0 +1,51 @@
+package org.scd.business.simulation;
+
+
+/**
+ * A batch of input vectors in bit-parallel form: for every input column one
+ * 64-bit word per 64 vectors, vector {@code v} being bit {@code v % 64} of
+ * word {@code v / 64}. Batches are read by a {@link VectorReader} and turned
+ * into {@link ResultBatch}es by {@link VectorSimulator#evaluate(VectorBatch)}.
+ */
+public final class VectorBatch {
+
+    private final long firstVector;
+    private final int count;
+    private final long[][] inputs; // [input][word]
+
+    VectorBatch(long firstVector, int count, long[][] inputs) {
+        this.firstVector = firstVector;
+        this.count = count;
+        this.inputs = inputs;
+    }
+
+    /**
+     * @return position of this batch's first vector in the whole stream, from 0
+     */
+    public long getFirstVector() {
+        return firstVector;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getInputCount() {
+        return inputs.length;
+    }
+
+    public int getWordCount() {
+        return (count + BitParallelEvaluator.LANES - 1) / BitParallelEvaluator.LANES;
+    }
+
+    /**
+     * @return bit of one input in one vector of this batch
+     */
+    public boolean getInput(int vector, int input) {
+        return (inputs[input][vector >>> 6] >>> (vector & 63) & 1L) != 0;
+    }
+
+    long getInputWord(int input, int word) {
+        return inputs[input][word];
+    }
+}
@@ -0,0 +1,227 @@
+package org.scd.business.simulation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Streams input vectors through a circuit in bounded memory, connected with
+ * {@link java.util.concurrent.Flow}:
+ *
+ * <pre>
+ * source(reader) --VectorBatch--&gt; evaluator() --ResultBatch--&gt; ResultSink
+ * </pre>
+ *
+ * The source reads a batch only when the evaluator has demand for it, the
+ * evaluator asks for the next batch only after handing its result on, and
+ * its output buffer holds at most {@code maxInFlight} results, which a
+ * {@link ResultSink} takes one at a time. A slow sink therefore stalls
+ * evaluation and reading instead of filling memory: at most about
+ * {@code 2 * maxInFlight + 2} batches exist at any time, however long the
+ * input is.
+ *
+ * Reading and evaluation run on one task of the executor and delivery to
+ * the sink on another, so the sink's I/O overlaps with simulation.
+ */
+public class VectorPipeline {
+
+    /** Default words of 64 vectors per batch. */
+    public static final int DEFAULT_BATCH_WORDS = 16;
+
+    /** Default number of result batches buffered ahead of the sink. */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    private final VectorSimulator simulator;
+    private final Executor executor;
+    private final int batchWords;
+    private final int maxInFlight;
+
+    public VectorPipeline(VectorSimulator simulator) {
+        this(simulator, ForkJoinPool.commonPool(), DEFAULT_BATCH_WORDS, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * @param executor runs the reading/evaluation task and delivers results
+     * @param batchWords words of 64 vectors per batch
+     * @param maxInFlight result batches buffered ahead of the sink
+     */
+    public VectorPipeline(VectorSimulator simulator, Executor executor, int batchWords, int maxInFlight) {
+        if (batchWords < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("Batch words and batches in flight must be at least 1");
+        }
+        this.simulator = simulator;
+        this.executor = executor;
+        this.batchWords = batchWords;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public VectorSimulator getSimulator() {
+        return simulator;
+    }
+
+    /**
+     * Runs every vector read from {@code in} through the circuit into the sink
+     * and waits until the sink has handled the last batch.
+     *
+     * @return number of vectors simulated
+     * @throws IllegalArgumentException if a line is not a valid vector
+     */
+    public long run(BufferedReader in, ResultSink sink) throws IOException, InterruptedException {
+        Flow.Processor<VectorBatch, ResultBatch> evaluator = evaluator();
+        evaluator.subscribe(sink);
+        source(in).subscribe(evaluator);
+        try {
+            return sink.getCompletion().get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * @return a publisher that reads batches from {@code in} on demand; it
+     *         accepts a single subscriber
+     */
+    public Flow.Publisher<VectorBatch> source(BufferedReader in) {
+        VectorReader reader = simulator.reader(in);
+        AtomicInteger subscribers = new AtomicInteger();
+        return subscriber -> {
+            if (subscribers.getAndIncrement() > 0) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override public void request(long n) {}
+                    @Override public void cancel() {}
+                });
+                subscriber.onError(new IllegalStateException("A vector source can only be read once"));
+                return;
+            }
+            subscriber.onSubscribe(new SourceSubscription(reader, subscriber));
+        };
+    }
+
+    /**
+     * @return a stage that simulates each batch it receives; it must be
+     *         subscribed to before its source starts
+     */
+    public Flow.Processor<VectorBatch, ResultBatch> evaluator() {
+        return new EvaluatorStage();
+    }
+
+    /**
+     * Reads and emits batches on the executor while there is demand. The work
+     * counter makes sure only one task reads at a time.
+     */
+    private final class SourceSubscription implements Flow.Subscription {
+        private final VectorReader reader;
+        private final Flow.Subscriber<? super VectorBatch> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private volatile boolean cancelled;
+        private boolean done;
+
+        SourceSubscription(VectorReader reader, Flow.Subscriber<? super VectorBatch> subscriber) {
+            this.reader = reader;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancelled = true;
+                subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+                return;
+            }
+            demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            if (work.getAndIncrement() == 0) {
+                executor.execute(this::emit);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void emit() {
+            int missed = 1;
+            do {
+                while (!done && !cancelled && demand.get() > 0) {
+                    VectorBatch batch;
+                    try {
+                        batch = reader.next(batchWords);
+                    } catch (IOException | RuntimeException e) {
+                        done = true;
+                        subscriber.onError(e);
+                        break;
+                    }
+                    if (batch == null) {
+                        done = true;
+                        subscriber.onComplete();
+                        break;
+                    }
+                    demand.decrementAndGet();
+                    subscriber.onNext(batch);
+                }
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+
+    /**
+     * Simulates batches as they arrive and publishes the results through a
+     * bounded buffer. Publishing blocks while the buffer is full, and the
+     * next batch is only requested afterwards.
+     */
+    private final class EvaluatorStage implements Flow.Processor<VectorBatch, ResultBatch> {
+        private final SubmissionPublisher<ResultBatch> out = new SubmissionPublisher<>(executor, maxInFlight);
+        private Flow.Subscription upstream;
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ResultBatch> subscriber) {
+            out.subscribe(subscriber);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            upstream = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(VectorBatch batch) {
+            try {
+                out.submit(simulator.evaluate(batch));
+            } catch (RuntimeException e) {
+                upstream.cancel();
+                out.closeExceptionally(e);
+                return;
+            }
+            if (out.getNumberOfSubscribers() == 0) {
+                // The sink gave up; stop reading
+                upstream.cancel();
+                out.close();
+                return;
+            }
+            upstream.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            out.closeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            out.close();
+        }
+    }
+}
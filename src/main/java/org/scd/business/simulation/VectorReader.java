@@ -0,0 +1,96 @@
+package org.scd.business.simulation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+
+/**
+ * Reads input vectors from text into {@link VectorBatch}es.
+ *
+ * Each vector line holds one 0/1 character per input, in layout order;
+ * spaces, tabs, commas and underscores between the bits are ignored, and
+ * blank lines and lines starting with {@code #} are skipped. Only the lines
+ * of the batch being read are held in memory.
+ */
+public class VectorReader {
+
+    private final BufferedReader in;
+    private final int inputCount;
+    private final char[] bits;
+    private int lineNumber;
+    private long vectorCount;
+
+    public VectorReader(BufferedReader in, int inputCount) {
+        this.in = in;
+        this.inputCount = inputCount;
+        this.bits = new char[inputCount];
+    }
+
+    /**
+     * Reads up to {@code words * 64} vectors.
+     *
+     * @return the next batch, or null at the end of the input
+     * @throws IllegalArgumentException if a line is not a valid vector
+     */
+    public VectorBatch next(int words) throws IOException {
+        int capacity = words * BitParallelEvaluator.LANES;
+        long[][] inputs = null;
+        int count = 0;
+        String text;
+        while (count < capacity && (text = in.readLine()) != null) {
+            lineNumber++;
+            if (!parse(text)) continue;
+            if (inputs == null) {
+                inputs = new long[inputCount][words];
+            }
+            for (int j = 0; j < inputCount; j++) {
+                if (bits[j] == '1') inputs[j][count >>> 6] |= 1L << (count & 63);
+            }
+            count++;
+        }
+        if (count == 0) {
+            return null;
+        }
+        VectorBatch batch = new VectorBatch(vectorCount, count, inputs);
+        vectorCount += count;
+        return batch;
+    }
+
+    /**
+     * @return vectors read so far
+     */
+    public long getVectorCount() {
+        return vectorCount;
+    }
+
+    /**
+     * Reads the input bits of one line.
+     *
+     * @return false for a blank or comment line
+     */
+    private boolean parse(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '0' || c == '1') {
+                if (count == inputCount) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": more than "
+                            + inputCount + " input bits");
+                }
+                bits[count++] = c;
+            } else if (c == '#' && count == 0) {
+                return false;
+            } else if (c != ' ' && c != '\t' && c != ',' && c != '_') {
+                throw new IllegalArgumentException("Line " + lineNumber + ": unexpected character '" + c + "'");
+            }
+        }
+        if (count == 0) {
+            return false;
+        }
+        if (count != inputCount) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": expected " + inputCount
+                    + " input bits, got " + count);
+        }
+        return true;
+    }
+}
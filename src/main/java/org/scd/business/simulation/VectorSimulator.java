@@ -0,0 +1,120 @@
+package org.scd.business.simulation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+
+
+/**
+ * Applies input vectors to a compiled circuit, for batch runs without the UI.
+ *
+ * Vectors are read by a {@link VectorReader} and evaluated 64 at a time in
+ * the lanes of a {@link BitParallelEvaluator}, so the netlist is walked once
+ * per 64 vectors. {@link #run(BufferedReader, Writer)} streams the results
+ * on the calling thread; a {@link VectorPipeline} runs reading, evaluation
+ * and output concurrently.
+ *
+ * Every vector starts from the state the circuit had when the simulator was
+ * created, so results do not depend on the order of the vectors. An instance
+ * must not evaluate on two threads at once.
+ */
+public class VectorSimulator {
+
+    /** Words of 64 vectors per batch in {@link #run(BufferedReader, Writer)}. */
+    private static final int RUN_BATCH_WORDS = 1;
+
+    private final TruthTableLayout layout;
+    private final BitParallelEvaluator initial;
+    private final BitParallelEvaluator evaluator;
+    private long vectorCount;
+
+    public VectorSimulator(TruthTableLayout layout) {
+        this.layout = layout;
+        this.initial = new BitParallelEvaluator(layout.getNetlist());
+        initial.load();
+        this.evaluator = initial.copy();
+    }
+
+    public TruthTableLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Writes a comment line naming the input and output columns.
+     */
+    public void writeHeader(Writer out) throws IOException {
+        out.write('#');
+        for (int j = 0; j < layout.getInputCount(); j++) {
+            out.write(' ');
+            out.write(layout.getInputLabel(j).replace(' ', '_'));
+        }
+        out.write(" |");
+        for (int k = 0; k < layout.getOutputCount(); k++) {
+            out.write(' ');
+            out.write(layout.getOutputLabel(k).replace(' ', '_'));
+        }
+        out.write('\n');
+    }
+
+    /**
+     * @return a reader for vectors of this circuit's inputs
+     */
+    public VectorReader reader(BufferedReader in) {
+        return new VectorReader(in, layout.getInputCount());
+    }
+
+    /**
+     * Simulates every vector read from {@code in} and writes one result line
+     * per vector to {@code out}. The writer is flushed but not closed.
+     *
+     * @return number of vectors simulated
+     * @throws IllegalArgumentException if a line is not a valid vector
+     */
+    public long run(BufferedReader in, Writer out) throws IOException {
+        long start = vectorCount;
+        VectorReader reader = reader(in);
+        VectorBatch batch;
+        while ((batch = reader.next(RUN_BATCH_WORDS)) != null) {
+            evaluate(batch).write(out);
+        }
+        out.flush();
+        return vectorCount - start;
+    }
+
+    /**
+     * Computes the outputs of every vector of a batch.
+     */
+    public ResultBatch evaluate(VectorBatch batch) {
+        int words = batch.getWordCount();
+        int outputs = layout.getOutputCount();
+        long[][] value = new long[outputs][words];
+        long[][] known = new long[outputs][words];
+
+        for (int w = 0; w < words; w++) {
+            evaluator.copyStateFrom(initial);
+            for (int j = 0; j < layout.getInputCount(); j++) {
+                int node = layout.getInputNode(j);
+                int slot = layout.getInputSlot(j);
+                if (slot < 0) {
+                    evaluator.setValue(node, batch.getInputWord(j, w));
+                } else {
+                    evaluator.setDirectInput(node, slot, batch.getInputWord(j, w));
+                }
+            }
+            evaluator.evaluate();
+            for (int k = 0; k < outputs; k++) {
+                value[k][w] = evaluator.getValue(layout.getOutputNode(k));
+                known[k][w] = evaluator.getKnown(layout.getOutputNode(k));
+            }
+        }
+        vectorCount += batch.getCount();
+        return new ResultBatch(batch, value, known);
+    }
+
+    /**
+     * @return vectors simulated since this simulator was created
+     */
+    public long getVectorCount() {
+        return vectorCount;
+    }
+}
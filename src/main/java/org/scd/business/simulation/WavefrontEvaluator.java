@@ -0,0 +1,137 @@
+package org.scd.business.simulation;
+
+import org.scd.business.model.Circuit;
+import org.scd.business.model.Component;
+import org.scd.business.model.Sequential;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * {@link LevelizedEvaluator} that splits each wide level across cores.
+ *
+ * All components of a level depend only on earlier levels, so they can pull
+ * their inputs and {@code calculate()} concurrently: each writes only its own
+ * inputs and output. A level is split into slices on a {@link ForkJoinPool}
+ * and the pool invocation returns only when every slice has finished, which
+ * is the barrier before the next level starts.
+ *
+ * Coordination is only worth it for wide levels of large circuits. Circuits
+ * with fewer levelized components than the parallel threshold, and any level
+ * narrower than the minimum width, are evaluated on the calling thread
+ * exactly as the sequential evaluator does. Feedback loops and storage
+ * elements are always handled sequentially.
+ */
+public class WavefrontEvaluator extends LevelizedEvaluator {
+
+    /** Default number of levelized components below which nothing runs in parallel. */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 20_000;
+
+    /** Default number of components below which a level runs on the calling thread. */
+    public static final int DEFAULT_MIN_LEVEL_WIDTH = 1024;
+
+    /** Components per slice below which a slice is not split further. */
+    private static final int SLICE_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private int minLevelWidth = DEFAULT_MIN_LEVEL_WIDTH;
+    private long parallelLevelCount;
+
+    public WavefrontEvaluator(Circuit circuit) {
+        this(circuit, ForkJoinPool.commonPool());
+    }
+
+    public WavefrontEvaluator(Circuit circuit, ForkJoinPool pool) {
+        super(circuit);
+        this.pool = pool;
+    }
+
+    /**
+     * @param components levelized components a circuit needs before any level
+     *                   is split; 0 always allows splitting
+     */
+    public void setParallelThreshold(int components) {
+        this.parallelThreshold = components;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * @param components components a level needs to be split across cores
+     */
+    public void setMinLevelWidth(int components) {
+        this.minLevelWidth = Math.max(1, components);
+    }
+
+    public int getMinLevelWidth() {
+        return minLevelWidth;
+    }
+
+    /**
+     * @return number of levels evaluated in parallel since this evaluator was created
+     */
+    public long getParallelLevelCount() {
+        return parallelLevelCount;
+    }
+
+    @Override
+    void evaluateLevels() {
+        List<List<Component>> levels = getLevels();
+        int levelized = 0;
+        for (List<Component> level : levels) {
+            levelized += level.size();
+        }
+        if (levelized < parallelThreshold) {
+            super.evaluateLevels();
+            return;
+        }
+
+        for (List<Component> level : levels) {
+            if (level.size() < minLevelWidth) {
+                evaluateSlice(level, 0, level.size());
+            } else {
+                pool.invoke(new Slice(level, 0, level.size()));
+                parallelLevelCount++;
+            }
+        }
+    }
+
+    private void evaluateSlice(List<Component> level, int from, int to) {
+        for (int i = from; i < to; i++) {
+            Component component = level.get(i);
+            if (component instanceof Sequential) continue;
+            pullInputs(component);
+            calculate(component);
+        }
+    }
+
+    /**
+     * Evaluates components {@code from} to {@code to - 1} of one level.
+     */
+    private class Slice extends RecursiveAction {
+        private final List<Component> level;
+        private final int from;
+        private final int to;
+
+        Slice(List<Component> level, int from, int to) {
+            this.level = level;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SLICE_SIZE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Slice(level, from, mid), new Slice(level, mid, to));
+                return;
+            }
+            evaluateSlice(level, from, to);
+        }
+    }
+}
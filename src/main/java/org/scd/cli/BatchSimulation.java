@@ -0,0 +1,190 @@
+package org.scd.cli;
+
+import org.scd.business.model.Circuit;
+import org.scd.business.model.Project;
+import org.scd.business.service.CircuitService;
+import org.scd.business.simulation.ResultSink;
+import org.scd.business.simulation.VectorPipeline;
+import org.scd.dao.sqlDao;
+import org.scd.dao.sqlSetup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+
+/**
+ * Headless entry point: simulates input vectors against a saved project.
+ *
+ * <pre>
+ * java -cp ... org.scd.cli.BatchSimulation &lt;projectId&gt; &lt;vectorFile&gt;
+ *     [-c circuitName] [-o outputFile] [--db jdbcUrl] [--no-header]
+ * </pre>
+ *
+ * The project is loaded through {@link sqlDao#loadProject(int)} and the
+ * circuit (the main circuit unless {@code -c} names another) is streamed
+ * through {@link CircuitService#openVectorPipeline()}, so reading, simulation
+ * and output overlap and memory stays bounded for any number of vectors.
+ * A vector file of {@code -} reads standard input. Results go to standard
+ * output unless {@code -o} is given; anything else the application prints is
+ * sent to standard error so it cannot mix with the results. No Swing class
+ * is loaded.
+ *
+ * Exit status is 0 on success, 1 if the project, circuit or a vector is
+ * invalid, and 2 for a usage error.
+ */
+public class BatchSimulation {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private BatchSimulation() {}
+
+    public static void main(String[] args) {
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+        System.exit(run(args, stdout, System.err));
+    }
+
+    /**
+     * Runs one batch simulation.
+     *
+     * @param stdout stream the results go to when no output file is given
+     * @param stderr stream for errors and the summary line
+     * @return exit status
+     */
+    static int run(String[] args, OutputStream stdout, PrintStream stderr) {
+        String projectArg = null;
+        String vectorFile = null;
+        String circuitName = null;
+        String outputFile = null;
+        String dbUrl = null;
+        boolean header = true;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ((arg.equals("-c") || arg.equals("-o") || arg.equals("--db")) && i + 1 >= args.length) {
+                return usage(stderr, "Missing value for " + arg);
+            }
+            switch (arg) {
+                case "-c": circuitName = args[++i]; break;
+                case "-o": outputFile = args[++i]; break;
+                case "--db": dbUrl = args[++i]; break;
+                case "--no-header": header = false; break;
+                default:
+                    if (projectArg == null) projectArg = arg;
+                    else if (vectorFile == null) vectorFile = arg;
+                    else return usage(stderr, "Unexpected argument: " + arg);
+            }
+        }
+        if (projectArg == null || vectorFile == null) {
+            return usage(stderr, null);
+        }
+        int projectId;
+        try {
+            projectId = Integer.parseInt(projectArg);
+        } catch (NumberFormatException e) {
+            return usage(stderr, "Project id must be a number: " + projectArg);
+        }
+
+        Project project;
+        try (Connection connection = dbUrl != null ? DriverManager.getConnection(dbUrl) : sqlSetup.getConnection()) {
+            project = new sqlDao(connection).loadProject(projectId);
+        } catch (SQLException e) {
+            stderr.println("Cannot open database: " + e.getMessage());
+            return 1;
+        }
+        if (project == null || project.getCircuits() == null || project.getCircuits().isEmpty()) {
+            stderr.println("Project " + projectId + " not found or has no circuits");
+            return 1;
+        }
+
+        CircuitService service = CircuitService.getInstance();
+        service.loadProjectCircuits(project.getCircuits());
+        Circuit circuit = findCircuit(service, circuitName);
+        if (circuit == null) {
+            stderr.println("Project " + projectId + " has no circuit named " + circuitName);
+            return 1;
+        }
+        service.switchToCircuit(circuit);
+        VectorPipeline pipeline;
+        try {
+            pipeline = service.openVectorPipeline();
+        } catch (IllegalArgumentException e) {
+            stderr.println("Cannot simulate circuit '" + circuit.getCircuitName() + "': " + e.getMessage());
+            return 1;
+        }
+
+        long start = System.nanoTime();
+        try (BufferedReader in = openInput(vectorFile);
+             Writer out = openOutput(outputFile, stdout)) {
+            if (header) {
+                pipeline.getSimulator().writeHeader(out);
+            }
+            long vectors = pipeline.run(in, ResultSink.writingTo(out));
+            long nanos = System.nanoTime() - start;
+            stderr.printf("%d vectors on circuit '%s' in %.1f ms%n", vectors, circuit.getCircuitName(), nanos / 1e6);
+            return 0;
+        } catch (IllegalArgumentException e) {
+            stderr.println(vectorFile + ": " + e.getMessage());
+            return 1;
+        } catch (IOException e) {
+            stderr.println("I/O error: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stderr.println("Interrupted");
+            return 1;
+        }
+    }
+
+    private static Circuit findCircuit(CircuitService service, String name) {
+        if (name == null) {
+            return service.getAllCircuits().get(0);
+        }
+        for (Circuit circuit : service.getAllCircuits()) {
+            if (name.equals(circuit.getCircuitName())) return circuit;
+        }
+        return null;
+    }
+
+    private static BufferedReader openInput(String file) throws IOException {
+        InputStreamReader reader = file.equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.US_ASCII)
+                : new InputStreamReader(new FileInputStream(file), StandardCharsets.US_ASCII);
+        return new BufferedReader(reader, BUFFER_SIZE);
+    }
+
+    private static Writer openOutput(String file, OutputStream stdout) throws IOException {
+        if (file == null) {
+            // Flushed by the simulator; closing must not close standard output
+            return new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.US_ASCII), BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+        }
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.US_ASCII),
+                BUFFER_SIZE);
+    }
+
+    private static int usage(PrintStream stderr, String error) {
+        if (error != null) {
+            stderr.println(error);
+        }
+        stderr.println("Usage: BatchSimulation <projectId> <vectorFile|-> [-c circuitName] [-o outputFile]"
+                + " [--db jdbcUrl] [--no-header]");
+        return 2;
+    }
+}
@@ -20,6 +20,7 @@ CREATE TABLE Component (
                            positionX REAL NOT NULL,
                            positionY REAL NOT NULL,
                            component_output INTEGER,
+                           definition_id INTEGER, -- circuit placed by a SUBCIRCUIT component
                            FOREIGN KEY (circuit_id) REFERENCES Circuit(circuitID) ON DELETE CASCADE
 );
 
@@ -38,6 +39,8 @@ CREATE TABLE Connector (
                            component_color TEXT,
                            source_id INTEGER NOT NULL,
                            sink_id INTEGER NOT NULL,
+                           target_input_index INTEGER DEFAULT 0,
+                           source_output_index INTEGER DEFAULT 0,
                            FOREIGN KEY (source_id) REFERENCES Component(component_id) ON DELETE CASCADE,
                            FOREIGN KEY (sink_id) REFERENCES Component(component_id) ON DELETE CASCADE
 );
\ No newline at end of file
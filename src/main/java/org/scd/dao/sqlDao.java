@@ -4,6 +4,7 @@ import org.scd.business.model.*;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -63,10 +64,16 @@ public class sqlDao implements daoInterface {
                 }
             }
 
-            // 2. Save each Circuit
+            // 2. Save each Circuit, all before any components so that
+            // subcircuit instances can reference circuits saved after them
+            Map<Circuit, Integer> circuitIdMap = new IdentityHashMap<>();
             if (project.getCircuits() != null) {
                 for (Circuit circuit : project.getCircuits()) {
-                    int circuitId = saveCircuit(circuit, projectId);
+                    circuitIdMap.put(circuit, saveCircuit(circuit, projectId));
+                }
+
+                for (Circuit circuit : project.getCircuits()) {
+                    int circuitId = circuitIdMap.get(circuit);
 
                     // 3. Save components and build component ID map
                     Map<Component, Integer> componentIdMap = new HashMap<>();
@@ -92,6 +99,14 @@ public class sqlDao implements daoInterface {
                         }
                     }
 
+                    // Save Clocks
+                    if (circuit.getClocks() != null) {
+                        for (Clock clock : circuit.getClocks()) {
+                            int clockId = saveClock(clock, circuitId);
+                            componentIdMap.put(clock, clockId);
+                        }
+                    }
+
                     // Save LEDs
                     if (circuit.getLeds() != null) {
                         for (LED led : circuit.getLeds()) {
@@ -107,6 +122,17 @@ public class sqlDao implements daoInterface {
                         }
                     }
 
+                    // Save Subcircuit instances with the circuit they place
+                    for (SubcircuitInstance instance : circuit.getSubcircuits()) {
+                        Integer definitionId = circuitIdMap.get(instance.getDefinition());
+                        if (definitionId == null) {
+                            throw new SQLException("Subcircuit instance " + instance.getComponentId()
+                                    + " places a circuit that is not part of the project");
+                        }
+                        int instanceId = saveSubcircuit(instance, circuitId, definitionId);
+                        componentIdMap.put(instance, instanceId);
+                    }
+
                     // 4. Save Connectors after all components are saved
                     if (circuit.getConnectors() != null) {
                         for (Connector connector : circuit.getConnectors()) {
@@ -221,6 +247,25 @@ public class sqlDao implements daoInterface {
         throw new SQLException("Failed to get switch ID");
     }
 
+    private int saveClock(Clock clock, int circuitId) throws SQLException {
+        String sql = "INSERT INTO Gate (circuit_id, component_type, positionX, " +
+                "positionY, component_output) VALUES (?, ?, ?, ?, ?)";
+        PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+
+        stmt.setInt(1, circuitId);
+        stmt.setString(2, clock.getComponentType());
+        stmt.setFloat(3, clock.getPositionX());
+        stmt.setFloat(4, clock.getPositionY());
+        stmt.setInt(5, clock.getOutput());
+
+        stmt.executeUpdate();
+        ResultSet keys = stmt.getGeneratedKeys();
+        if (keys.next()) {
+            return keys.getInt(1);
+        }
+        throw new SQLException("Failed to get clock ID");
+    }
+
     private int saveLED(LED led, int circuitId) throws SQLException {
         String sql = "INSERT INTO Gate (circuit_id, component_type, positionX, " +
                 "positionY, component_output) VALUES (?, ?, ?, ?, ?)";
@@ -240,6 +285,27 @@ public class sqlDao implements daoInterface {
         throw new SQLException("Failed to get LED ID");
     }
 
+    private int saveSubcircuit(SubcircuitInstance instance, int circuitId, int definitionId)
+            throws SQLException {
+        String sql = "INSERT INTO Gate (circuit_id, component_type, positionX, " +
+                "positionY, component_output, definition_id) VALUES (?, ?, ?, ?, ?, ?)";
+        PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+
+        stmt.setInt(1, circuitId);
+        stmt.setString(2, instance.getComponentType());
+        stmt.setFloat(3, instance.getPositionX());
+        stmt.setFloat(4, instance.getPositionY());
+        stmt.setNull(5, java.sql.Types.INTEGER);
+        stmt.setInt(6, definitionId);
+
+        stmt.executeUpdate();
+        ResultSet keys = stmt.getGeneratedKeys();
+        if (keys.next()) {
+            return keys.getInt(1);
+        }
+        throw new SQLException("Failed to get subcircuit ID");
+    }
+
     private void saveInputs(List<Input> inputs, int gateId) throws SQLException {
         String sql = "INSERT INTO Gate_Input (component_id, input_value, input_order) " +
                 "VALUES (?, ?, ?)";
@@ -256,8 +322,8 @@ public class sqlDao implements daoInterface {
 
     private void saveConnector(Connector connector, Map<Component, Integer> componentIdMap, Circuit circuit)
             throws SQLException {
-        String sql = "INSERT INTO Connector (component_color, source_id, sink_id, target_input_index) " +
-                "VALUES (?, ?, ?, ?)";
+        String sql = "INSERT INTO Connector (component_color, source_id, sink_id, target_input_index, " +
+                "source_output_index) VALUES (?, ?, ?, ?, ?)";
         PreparedStatement stmt = conn.prepareStatement(sql);
 
         // Find the Component objects using the IDs stored in Connector
@@ -272,24 +338,14 @@ public class sqlDao implements daoInterface {
             stmt.setInt(2, sourceId);
             stmt.setInt(3, sinkId);
             stmt.setInt(4, connector.getTargetInputIndex());
+            stmt.setInt(5, connector.getSourceOutputIndex());
             stmt.executeUpdate();
         }
     }
 
     private Component findComponentById(Circuit circuit, int componentId) {
-        // Check gates
-        Gate gate = circuit.findGateById(componentId);
-        if (gate != null) return gate;
-
-        // Check switches
-        Switch switchComp = circuit.findSwitchById(componentId);
-        if (switchComp != null) return switchComp;
-
-        // Check LEDs
-        LED led = circuit.findLEDById(componentId);
-        if (led != null) return led;
-
-        return null;
+        // Gates, switches, clocks, LEDs and subcircuits share the circuit's id index
+        return circuit.findComponentById(componentId);
     }
 
     /**
@@ -315,9 +371,11 @@ public class sqlDao implements daoInterface {
                 return null; // Project not found
             }
 
-            // 2. Load Circuits
+            // 2. Load Circuits in the order they were saved
             List<Circuit> circuits = new ArrayList<>();
-            String circuitSql = "SELECT circuitID, circuitName FROM Circuit WHERE projectID = ?";
+            Map<Integer, Circuit> circuitsById = new HashMap<>();
+            String circuitSql = "SELECT circuitID, circuitName FROM Circuit WHERE projectID = ? " +
+                    "ORDER BY circuitID";
             PreparedStatement circuitStmt = conn.prepareStatement(circuitSql);
             circuitStmt.setInt(1, projectId);
             ResultSet circuitRs = circuitStmt.executeQuery();
@@ -325,23 +383,42 @@ public class sqlDao implements daoInterface {
             while (circuitRs.next()) {
                 Circuit circuit = new Circuit();
                 circuit.setCircuitName(circuitRs.getString("circuitName"));
-                int circuitId = circuitRs.getInt("circuitID");
+                circuitsById.put(circuitRs.getInt("circuitID"), circuit);
+                circuits.add(circuit);
+            }
+
+            // 3. Load all components and build componentMap. Subcircuit
+            // instances may place any circuit of the project, so they are
+            // resolved only once every circuit has been created.
+            Map<Integer, Map<Integer, Component>> componentMaps = new HashMap<>();
+            for (Map.Entry<Integer, Circuit> entry : circuitsById.entrySet()) {
+                int circuitId = entry.getKey();
+                Circuit circuit = entry.getValue();
 
-                // 3. Load all components and build componentMap
                 Map<Integer, Component> componentMap = new HashMap<>();
                 List<Gate> gates = loadGates(circuitId, componentMap);
                 List<Switch> switches = loadSwitches(circuitId, componentMap);
+                List<Clock> clocks = loadClocks(circuitId, componentMap);
                 List<LED> leds = loadLEDs(circuitId, componentMap);
                 
                 circuit.setGates(gates);
                 circuit.setSwitches(switches);
+                circuit.setClocks(clocks);
                 circuit.setLeds(leds);
+                componentMaps.put(circuitId, componentMap);
+            }
 
-                // 4. Load Connectors
-                List<Connector> connectors = loadConnectors(circuitId, componentMap);
-                circuit.setConnectors(connectors);
+            for (Map.Entry<Integer, Circuit> entry : circuitsById.entrySet()) {
+                int circuitId = entry.getKey();
+                Map<Integer, Component> componentMap = componentMaps.get(circuitId);
+                entry.getValue().setSubcircuits(loadSubcircuits(circuitId, circuitsById, componentMap));
+            }
 
-                circuits.add(circuit);
+            // 4. Load Connectors once every port exists
+            for (Map.Entry<Integer, Circuit> entry : circuitsById.entrySet()) {
+                int circuitId = entry.getKey();
+                List<Connector> connectors = loadConnectors(circuitId, componentMaps.get(circuitId));
+                entry.getValue().setConnectors(connectors);
             }
 
             project.setCircuits(circuits);
@@ -357,10 +434,10 @@ public class sqlDao implements daoInterface {
             throws SQLException {
         List<Gate> gates = new ArrayList<>();
 
-        // Load all gates (AND, OR, NOT)
+        // Load all gates (AND, OR, NOT) and storage elements, whose state is the saved output
         String sql = "SELECT component_id, component_type, positionX, positionY, " +
                 "component_output FROM Gate WHERE circuit_id = ? " +
-                "AND component_type IN ('AND', 'OR', 'NOT')";
+                "AND component_type IN ('AND', 'OR', 'NOT', 'DFF', 'LATCH')";
         PreparedStatement stmt = conn.prepareStatement(sql);
         stmt.setInt(1, circuitId);
         ResultSet rs = stmt.executeQuery();
@@ -419,6 +496,32 @@ public class sqlDao implements daoInterface {
         return switches;
     }
 
+    private List<Clock> loadClocks(int circuitId, Map<Integer, Component> componentMap)
+            throws SQLException {
+        List<Clock> clocks = new ArrayList<>();
+
+        String sql = "SELECT component_id, positionX, positionY, component_output " +
+                "FROM Gate WHERE circuit_id = ? AND component_type = 'CLOCK'";
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        stmt.setInt(1, circuitId);
+        ResultSet rs = stmt.executeQuery();
+
+        while (rs.next()) {
+            int clockId = rs.getInt("component_id");
+            int posX = (int) rs.getFloat("positionX");
+            int posY = (int) rs.getFloat("positionY");
+            int output = rs.getInt("component_output");
+
+            Clock clock = new Clock(clockId, posX, posY);
+            clock.setHigh(output == 1);
+
+            clocks.add(clock);
+            componentMap.put(clockId, clock);
+        }
+
+        return clocks;
+    }
+
     private List<LED> loadLEDs(int circuitId, Map<Integer, Component> componentMap)
             throws SQLException {
         List<LED> leds = new ArrayList<>();
@@ -450,6 +553,34 @@ public class sqlDao implements daoInterface {
         return leds;
     }
 
+    private List<SubcircuitInstance> loadSubcircuits(int circuitId, Map<Integer, Circuit> circuitsById,
+            Map<Integer, Component> componentMap) throws SQLException {
+        List<SubcircuitInstance> subcircuits = new ArrayList<>();
+
+        String sql = "SELECT component_id, positionX, positionY, definition_id " +
+                "FROM Gate WHERE circuit_id = ? AND component_type = 'SUBCIRCUIT'";
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        stmt.setInt(1, circuitId);
+        ResultSet rs = stmt.executeQuery();
+
+        while (rs.next()) {
+            int instanceId = rs.getInt("component_id");
+            int posX = (int) rs.getFloat("positionX");
+            int posY = (int) rs.getFloat("positionY");
+            Circuit definition = circuitsById.get(rs.getInt("definition_id"));
+            if (definition == null) {
+                throw new SQLException("Subcircuit instance " + instanceId
+                        + " places a circuit that is not part of the project");
+            }
+
+            SubcircuitInstance instance = new SubcircuitInstance(instanceId, definition, posX, posY);
+            subcircuits.add(instance);
+            componentMap.put(instanceId, instance);
+        }
+
+        return subcircuits;
+    }
+
     private List<Input> loadInputs(int gateId) throws SQLException {
         List<Input> inputs = new ArrayList<>();
         String sql = "SELECT input_value, input_order FROM Gate_Input " +
@@ -486,7 +617,8 @@ public class sqlDao implements daoInterface {
             throws SQLException {
         List<Connector> connectors = new ArrayList<>();
 
-        String sql = "SELECT c.connector_id, c.component_color, c.source_id, c.sink_id, c.target_input_index " +
+        String sql = "SELECT c.connector_id, c.component_color, c.source_id, c.sink_id, " +
+                "c.target_input_index, c.source_output_index " +
                 "FROM Connector c " +
                 "INNER JOIN Gate src ON c.source_id = src.component_id " +
                 "WHERE src.circuit_id = ?";
@@ -499,6 +631,7 @@ public class sqlDao implements daoInterface {
             connector.setWireColor(rs.getString("component_color"));
             connector.setConnectorId(rs.getInt("connector_id"));
             connector.setTargetInputIndex(rs.getInt("target_input_index"));
+            connector.setSourceOutputIndex(rs.getInt("source_output_index"));
 
             int sourceId = rs.getInt("source_id");
             int sinkId = rs.getInt("sink_id");
@@ -525,6 +658,12 @@ public class sqlDao implements daoInterface {
                     if (input != null) {
                         input.setSourceComponentId(sourceComponent.getComponentId());
                     }
+                } else if (sinkComponent instanceof SubcircuitInstance) {
+                    SubcircuitInstance sinkInstance = (SubcircuitInstance) sinkComponent;
+                    Input input = sinkInstance.getInput(connector.getTargetInputIndex());
+                    if (input != null) {
+                        input.setSourceComponentId(sourceComponent.getComponentId());
+                    }
                 }
             }
         }
@@ -537,6 +676,8 @@ public class sqlDao implements daoInterface {
             case "AND" -> new And(id, x, y);
             case "OR" -> new Or(id, x, y);
             case "NOT" -> new Not(id, x, y);
+            case "DFF" -> new DFlipFlop(id, x, y);
+            case "LATCH" -> new Latch(id, x, y);
             default -> null;
         };
         return result;
@@ -2,6 +2,7 @@ package org.scd.dao;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
@@ -65,6 +66,7 @@ public class sqlSetup {
                     "positionX REAL, " +
                     "positionY REAL, " +
                     "component_output INTEGER, " +
+                    "definition_id INTEGER, " +
                     "FOREIGN KEY(circuit_id) REFERENCES Circuit(circuitID) ON DELETE CASCADE)");
 
             // Gate_Input Table
@@ -82,10 +84,30 @@ public class sqlSetup {
                     "source_id INTEGER, " +
                     "sink_id INTEGER, " +
                     "target_input_index INTEGER DEFAULT 0, " +
+                    "source_output_index INTEGER DEFAULT 0, " +
                     "FOREIGN KEY(source_id) REFERENCES Gate(component_id) ON DELETE CASCADE, " +
                     "FOREIGN KEY(sink_id) REFERENCES Gate(component_id) ON DELETE CASCADE)");
+
+            // Columns added after the first release, for databases created before them
+            addColumnIfMissing(conn, "Gate", "definition_id", "INTEGER");
+            addColumnIfMissing(conn, "Connector", "source_output_index", "INTEGER DEFAULT 0");
             
             System.out.println("[sqlSetup] Tables checked/created.");
         }
     }
+
+    private static void addColumnIfMissing(Connection conn, String table, String column, String type)
+            throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return;
+                }
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+        }
+    }
 }
@@ -16,11 +16,13 @@ public class CircuitCanvas extends JPanel {
     private List<GateComponent> gates;
     private List<LEDComponent> leds;
     private List<SwitchComponent> switches;
+    private List<SubcircuitComponent> subcircuits;
     private List<WireConnection> wires;
     
     public List<GateComponent> getGates() { return gates; }
     public List<LEDComponent> getLEDs() { return leds; }
     public List<SwitchComponent> getSwitches() { return switches; }
+    public List<SubcircuitComponent> getSubcircuits() { return subcircuits; }
     public List<WireConnection> getWires() { return wires; }
     
     // Layout settings
@@ -52,6 +54,7 @@ public class CircuitCanvas extends JPanel {
         gates = new ArrayList<>();
         leds = new ArrayList<>();
         switches = new ArrayList<>();
+        subcircuits = new ArrayList<>();
         wires = new ArrayList<>();
         rowYPositions = new ArrayList<>();
         columnXPositions = new ArrayList<>();
@@ -75,6 +78,9 @@ public class CircuitCanvas extends JPanel {
         for (LEDComponent led : leds) {
             led.updateImage();
         }
+        for (SubcircuitComponent subcircuit : subcircuits) {
+            subcircuit.updateImage();
+        }
         repaint();
     }
     
@@ -211,6 +217,16 @@ public class CircuitCanvas extends JPanel {
         repaint();
     }
     
+    /**
+     * Adds the view of a subcircuit instance that is already in the model.
+     */
+    public void addSubcircuitComponent(SubcircuitComponent subcircuit) {
+        subcircuits.add(subcircuit);
+        add(subcircuit);
+        expandCanvasIfNeeded(subcircuit.getX() + subcircuit.getWidth(), subcircuit.getY() + subcircuit.getHeight());
+        repaint();
+    }
+
     public void addSwitchComponent(SwitchComponent switchComp) {
         switches.add(switchComp);
         add(switchComp);
@@ -282,6 +298,13 @@ public class CircuitCanvas extends JPanel {
             }
         }
         
+        // Check overlap with subcircuit instances
+        for (SubcircuitComponent subcircuit : subcircuits) {
+            if (subcircuit != excludeComponent && bounds.intersects(subcircuit.getBounds())) {
+                return true;
+            }
+        }
+        
         return false;
     }
  
@@ -436,6 +459,14 @@ public class CircuitCanvas extends JPanel {
             
             // Remove connected wires
             removeConnectedWires(switchComp);
+        } else if (component instanceof SubcircuitComponent) {
+            SubcircuitComponent subcircuit = (SubcircuitComponent) component;
+            
+            // Removing the instance also removes its connectors from the model
+            service.removeSubcircuit(subcircuit.getComponentId());
+            subcircuits.remove(subcircuit);
+            remove(subcircuit);
+            removeConnectedWires(subcircuit);
         }
         
         // Notify listener about count change
@@ -706,6 +737,7 @@ public class CircuitCanvas extends JPanel {
         gates.clear();
         leds.clear();
         switches.clear();
+        subcircuits.clear();
         wires.clear();
         
         // Reset layout
@@ -800,6 +832,24 @@ public class CircuitCanvas extends JPanel {
             maxColumn = Math.max(maxColumn, col);
         }
         
+        // Load Subcircuit instances
+        for (org.scd.business.model.SubcircuitInstance instance : circuit.getSubcircuits()) {
+            SubcircuitComponent sc = new SubcircuitComponent(instance);
+            subcircuits.add(sc);
+            add(sc);
+            
+            int col = (instance.getPositionX() - currentX + (horizontalSpacing / 2)) / (gateWidth + horizontalSpacing);
+            int row = (instance.getPositionY() - currentY + (verticalSpacing / 2)) / (gateHeight + verticalSpacing);
+            
+            col = Math.max(0, col);
+            row = Math.max(0, row);
+            
+            sc.setRowColumn(row, col);
+            
+            maxRow = Math.max(maxRow, row);
+            maxColumn = Math.max(maxColumn, col);
+        }
+        
         // Update layout tracking variables
         currentRow = maxRow;
         currentColumn = maxColumn + 1;
@@ -969,38 +1019,32 @@ public class CircuitCanvas extends JPanel {
      * Update circuit when a switch is toggled
      */
     public void updateCircuitFromSwitch(SwitchComponent switchComp) {
-        // Find all wires connected from this switch
-        for (WireConnection wire : wires) {
-            if (wire.getSourceComponent() == switchComp) {
-                Object target = wire.getTargetComponent();
-                int targetInputIndex = wire.getTargetInputIndex();
-                
-                // Update the target component's input with the new switch value
-                if (target instanceof GateComponent) {
-                    GateComponent targetGate = (GateComponent) target;
-                    if (targetInputIndex == 0) {
-                        targetGate.getInput1().setValue(switchComp.getOutput());
-                    } else {
-                        targetGate.getInput2().setValue(switchComp.getOutput());
-                    }
-                    targetGate.calculateOutput();
-                    targetGate.updateImage();
-                } else if (target instanceof LEDComponent) {
-                    LEDComponent targetLED = (LEDComponent) target;
-                    targetLED.getInput().setValue(switchComp.getOutput());
-                    targetLED.updateState();
-                }
+        // Only the logic driven by this switch is re-evaluated and redrawn
+        service.propagateChange(switchComp.getComponentId());
+        refreshComponents(service.getFanoutCone(switchComp.getComponentId()));
+    }
+    
+    /**
+     * Redraws only the gates, LEDs and subcircuits with the given ids, looking each one up
+     * in the service's UI component map, so the cost follows the number of ids
+     * rather than the size of the board.
+     */
+    public void refreshComponents(java.util.Set<Integer> componentIds) {
+        for (int id : componentIds) {
+            Object component = service.getUIComponent(id);
+            if (component instanceof GateComponent) {
+                ((GateComponent) component).updateImage();
+            } else if (component instanceof LEDComponent) {
+                ((LEDComponent) component).updateImage();
+            } else if (component instanceof SubcircuitComponent) {
+                ((SubcircuitComponent) component).updateImage();
             }
         }
-        
-        // Recalculate the entire circuit to propagate changes
-        service.calculateCircuit();
-        refreshCircuit();
     }
     
   
     public int getComponentCount() {
-        return gates.size() + leds.size() + switches.size();
+        return gates.size() + leds.size() + switches.size() + subcircuits.size();
     }
     
   
@@ -0,0 +1,146 @@
+package org.scd.ui;
+
+import org.scd.business.model.SubcircuitInstance;
+import org.scd.business.service.CircuitService;
+
+import javax.swing.*;
+import java.awt.*;
+
+
+/**
+ * Box standing for a placed circuit. It shows the name of the circuit and
+ * the values of its output ports; the gates inside are not drawn.
+ */
+public class SubcircuitComponent extends JLabel {
+    public static final int WIDTH = 150;
+    public static final int HEIGHT = 80;
+
+    private int componentId; // Store only the ID, not the model
+    private CircuitService service;
+
+    private int positionX;
+    private int positionY;
+    private int row;    // Row position in grid
+    private int column; // Column position in grid
+
+    public SubcircuitComponent(SubcircuitInstance instance) {
+        this.service = CircuitService.getInstance();
+        this.positionX = instance.getPositionX();
+        this.positionY = instance.getPositionY();
+
+        this.componentId = instance.getComponentId();
+        service.registerUIComponent(this.componentId, this);
+
+        initComponent();
+    }
+
+    private void initComponent() {
+        setBounds(positionX, positionY, WIDTH, HEIGHT);
+        setHorizontalAlignment(SwingConstants.CENTER);
+
+        setOpaque(true);
+        setBackground(new Color(235, 240, 250));
+        setBorder(BorderFactory.createLineBorder(Color.DARK_GRAY, 2));
+        updateImage();
+
+        // Add click and drag listeners
+        final Point[] dragOffset = {null};
+
+        addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                Container parent = getParent();
+                if (parent instanceof CircuitCanvas) {
+                    ((CircuitCanvas) parent).handleComponentClick(SubcircuitComponent.this);
+                }
+            }
+
+            @Override
+            public void mousePressed(java.awt.event.MouseEvent e) {
+                dragOffset[0] = e.getPoint();
+            }
+
+            @Override
+            public void mouseReleased(java.awt.event.MouseEvent e) {
+                dragOffset[0] = null;
+            }
+        });
+
+        addMouseMotionListener(new java.awt.event.MouseMotionAdapter() {
+            @Override
+            public void mouseDragged(java.awt.event.MouseEvent e) {
+                if (dragOffset[0] != null) {
+                    Point parentPoint = SwingUtilities.convertPoint(SubcircuitComponent.this, e.getPoint(), getParent());
+                    int newX = parentPoint.x - dragOffset[0].x;
+                    int newY = parentPoint.y - dragOffset[0].y;
+
+                    Container parent = getParent();
+                    if (parent instanceof CircuitCanvas) {
+                        CircuitCanvas canvas = (CircuitCanvas) parent;
+                        Rectangle newBounds = new Rectangle(newX, newY, getWidth(), getHeight());
+
+                        // Only move if no overlap (excluding self)
+                        if (!canvas.checkOverlap(newBounds, SubcircuitComponent.this)) {
+                            setLocation(newX, newY);
+                            positionX = newX;
+                            positionY = newY;
+
+                            service.updateSubcircuitPosition(componentId, newX, newY);
+
+                            // Update row/column for wire routing
+                            int col = (newX - 20 + 25) / (150 + 50);
+                            int row = (newY - 20 + 40) / (80 + 80);
+                            setRowColumn(Math.max(0, row), Math.max(0, col));
+
+                            canvas.repaint();
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Redraws the label from the instance's current output ports.
+     */
+    public void updateImage() {
+        SubcircuitInstance instance = service.findSubcircuit(componentId);
+        if (instance == null) {
+            return;
+        }
+        StringBuilder outputs = new StringBuilder();
+        for (int port = 0; port < instance.getOutputCount(); port++) {
+            Integer value = instance.getOutput(port);
+            outputs.append(value == null ? "-" : value.toString());
+        }
+        setText("<html><center><b>" + instance.getDefinition().getCircuitName() + "</b><br>"
+                + instance.getInputCount() + " in / " + instance.getOutputCount() + " out<br>"
+                + outputs + "</center></html>");
+    }
+
+    // Getters
+    public int getComponentId() {
+        return this.componentId;
+    }
+
+    public void setRowColumn(int row, int column) {
+        this.row = row;
+        this.column = column;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public int getPositionX() {
+        return positionX;
+    }
+
+    public int getPositionY() {
+        return positionY;
+    }
+}
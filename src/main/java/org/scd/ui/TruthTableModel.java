@@ -0,0 +1,57 @@
+package org.scd.ui;
+
+import org.scd.business.simulation.LazyTruthTable;
+
+import javax.swing.table.AbstractTableModel;
+
+
+/**
+ * Table model over a {@link LazyTruthTable}. Rows are only evaluated when the
+ * table asks for them, i.e. when the user scrolls them into view.
+ */
+public class TruthTableModel extends AbstractTableModel {
+    private final LazyTruthTable truthTable;
+    private final String[] header;
+    private final int rowCount;
+
+    /**
+     * @param truthTable the table to show
+     * @param maxRows upper bound on the rows a JTable can display
+     */
+    public TruthTableModel(LazyTruthTable truthTable, int maxRows) {
+        this.truthTable = truthTable;
+        this.header = truthTable.getLayout().getHeader();
+        this.rowCount = (int) Math.min(truthTable.getRowCount(), maxRows);
+    }
+
+    /**
+     * @return true if the circuit has more rows than this model shows
+     */
+    public boolean isTruncated() {
+        return rowCount < truthTable.getRowCount();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return header.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return header[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        int numInputs = truthTable.getInputCount();
+        boolean bit = columnIndex < numInputs
+            ? truthTable.getInput(rowIndex, columnIndex)
+            : truthTable.getOutput(rowIndex, columnIndex - numInputs);
+        return bit ? "1" : "0";
+    }
+}
@@ -353,46 +353,38 @@ public class mainPanel extends JPanel {
         JPanel truthTablePanel = new JPanel(new BorderLayout());
         truthTablePanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
-        java.util.List<String[]> tableData = service.generateTruthTable();
-        
-        StringBuilder displayText = new StringBuilder();
-        displayText.append("Truth Table for Circuit:\n\n");
+        org.scd.business.simulation.LazyTruthTable truthTable;
+        try {
+            truthTable = service.openTruthTable();
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Truth Table", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
         
-        if (tableData.isEmpty()) {
-            displayText.append("No components in the circuit.");
-        } else {
-            // Calculate column widths based on header
-            String[] header = tableData.get(0);
-            int numCols = header.length;
-            int colWidth = 15; // Default width
-            
-            // Build format string dynamically
-            StringBuilder formatBuilder = new StringBuilder();
-            for (int i = 0; i < numCols; i++) {
-                formatBuilder.append("%-").append(colWidth).append("s ");
-            }
-            formatBuilder.append("\n");
-            String formatString = formatBuilder.toString();
-            
-            // Print Header
-            displayText.append(String.format(formatString, (Object[])header));
-            
-            // Print Separator
-            displayText.append("-".repeat(numCols * (colWidth + 1))).append("\n");
-            
-            // Print Rows (skip header)
-            for (int i = 1; i < tableData.size(); i++) {
-                displayText.append(String.format(formatString, (Object[])tableData.get(i)));
-            }
+        // Rows are evaluated only when they are scrolled into view; JTable
+        // addresses rows in pixels, so very large tables are cut off
+        JTable table = new JTable();
+        table.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        TruthTableModel model = new TruthTableModel(truthTable, Integer.MAX_VALUE / table.getRowHeight());
+        table.setModel(model);
+        table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        for (int i = 0; i < model.getColumnCount(); i++) {
+            table.getColumnModel().getColumn(i).setPreferredWidth(120);
         }
         
-        JTextArea textArea = new JTextArea(displayText.toString());
-        textArea.setEditable(false);
-        textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        String title = "Truth Table for Circuit: " + truthTable.getRowCount() + " rows";
+        if (truthTable.getLayout().getHeader().length == 0) {
+            title = "No components in the circuit.";
+        } else if (model.isTruncated()) {
+            title += " (showing the first " + model.getRowCount() + ")";
+        }
+        JLabel titleLabel = new JLabel(title);
+        titleLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
         
-        JScrollPane scrollPane = new JScrollPane(textArea);
+        JScrollPane scrollPane = new JScrollPane(table);
         scrollPane.setPreferredSize(new Dimension(800, 500)); // Increased size for larger tables
         
+        truthTablePanel.add(titleLabel, BorderLayout.NORTH);
         truthTablePanel.add(scrollPane, BorderLayout.CENTER);
         
         JDialog dialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), "Truth Table", true);
@@ -787,12 +779,22 @@ public class mainPanel extends JPanel {
         // IMPORTANT: Add cloned components to service FIRST, before creating UI components
         // This ensures that when GateComponent constructor queries service.getComponentPositionX/Y,
         // the components are already in the service with correct positions
-        service.mergeComponentsIntoCurrentCircuit(cloned.gates, cloned.leds, cloned.switches, cloned.connectors);
+        try {
+            service.mergeComponentsIntoCurrentCircuit(cloned.gates, cloned.leds, cloned.switches, cloned.clocks,
+                cloned.subcircuits, cloned.connectors);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this,
+                e.getMessage(),
+                "Invalid Placement",
+                JOptionPane.WARNING_MESSAGE);
+            return;
+        }
         
         // Now create UI components - they will query service for positions
         java.util.List<GateComponent> tempGates = new java.util.ArrayList<>();
         java.util.List<LEDComponent> tempLEDs = new java.util.ArrayList<>();
         java.util.List<SwitchComponent> tempSwitches = new java.util.ArrayList<>();
+        java.util.List<SubcircuitComponent> tempSubcircuits = new java.util.ArrayList<>();
 
         // Create UI components for cloned model components
         for (org.scd.business.model.Gate gate : cloned.gates) {
@@ -807,6 +809,9 @@ public class mainPanel extends JPanel {
             SwitchComponent sc = new SwitchComponent(sw);
             tempSwitches.add(sc);
         }
+        for (org.scd.business.model.SubcircuitInstance instance : cloned.subcircuits) {
+            tempSubcircuits.add(new SubcircuitComponent(instance));
+        }
 
         // Check for overlap before committing UI components
         boolean hasOverlap = false;
@@ -834,6 +839,15 @@ public class mainPanel extends JPanel {
                 }
             }
         }
+
+        if (!hasOverlap) {
+            for (SubcircuitComponent sc : tempSubcircuits) {
+                if (circuitCanvas.checkOverlap(sc.getBounds(), null)) {
+                    hasOverlap = true;
+                    break;
+                }
+            }
+        }
         
         if (hasOverlap) {
             // Overlap detected - need to remove the components we just added to service
@@ -846,6 +860,9 @@ public class mainPanel extends JPanel {
             for (org.scd.business.model.Switch switchComp : cloned.switches) {
                 service.removeSwitch(switchComp.getComponentId());
             }
+            for (org.scd.business.model.SubcircuitInstance instance : cloned.subcircuits) {
+                service.removeSubcircuit(instance.getComponentId());
+            }
             for (org.scd.business.model.Connector connector : cloned.connectors) {
                 service.removeConnector(connector.getConnectorId());
             }
@@ -886,6 +903,12 @@ public class mainPanel extends JPanel {
             maxBottom = Math.max(maxBottom, sc.getY() + sc.getHeight());
         }
         
+        for (SubcircuitComponent sc : tempSubcircuits) {
+            circuitCanvas.addSubcircuitComponent(sc);
+            maxRight = Math.max(maxRight, sc.getX() + sc.getWidth());
+            maxBottom = Math.max(maxBottom, sc.getY() + sc.getHeight());
+        }
+        
         // Expand canvas to fit new components
         Dimension currentSize = circuitCanvas.getPreferredSize();
         int padding = 100;
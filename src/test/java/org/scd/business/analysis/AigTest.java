@@ -0,0 +1,67 @@
+package org.scd.business.analysis;
+
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+import org.scd.business.simulation.CompiledCircuit;
+import org.scd.business.simulation.LazyTruthTable;
+import org.scd.business.simulation.TruthTableLayout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AigTest {
+
+    @Test
+    void testStructuralHashingAndFolding() {
+        Aig aig = new Aig(2);
+        int a = aig.input(0);
+        int b = aig.input(1);
+
+        assertEquals(aig.and(a, b), aig.and(b, a));
+        assertEquals(1, aig.getAndCount());
+        assertEquals(a, aig.and(a, Aig.TRUE));
+        assertEquals(Aig.FALSE, aig.and(a, Aig.FALSE));
+        assertEquals(Aig.FALSE, aig.and(a, Aig.not(a)));
+        assertEquals(a, aig.and(a, a));
+
+        // OR is a complemented AND of complements: a new node only once
+        int or = aig.or(a, b);
+        assertEquals(or, aig.or(b, a));
+        assertEquals(2, aig.getAndCount());
+    }
+
+    @Test
+    void testCircuitConversionMatchesTruthTable() {
+        // Duplicate gates and a double inversion collapse into shared nodes
+        CircuitBuilder builder = new CircuitBuilder("AIG");
+        int a = builder.addSwitch();
+        int b = builder.addSwitch();
+        int c = builder.addSwitch();
+        int and1 = builder.and(a, b);
+        int and2 = builder.and(b, a);
+        builder.led(builder.or(and1, builder.not(builder.not(c))));
+        builder.led(and2);
+        Circuit circuit = builder.getCircuit();
+
+        TruthTableLayout layout = TruthTableLayout.of(CompiledCircuit.compile(circuit));
+        Aig aig = Aig.of(layout);
+        assertEquals(3, aig.getInputCount());
+        assertEquals(2, aig.getOutputCount());
+        assertEquals(2, aig.getAndCount());   // one AND, one OR
+        assertEquals(aig.getOutput(0), aig.or(aig.getOutput(1), aig.input(2)));
+
+        // All 8 rows in one word: input j is bit (row >> (2 - j))
+        long[] words = new long[3];
+        for (int row = 0; row < 8; row++) {
+            for (int j = 0; j < 3; j++) {
+                if ((row >> (2 - j) & 1) == 1) words[j] |= 1L << row;
+            }
+        }
+        long[] outputs = aig.simulate(words);
+        LazyTruthTable table = new LazyTruthTable(layout);
+        for (int row = 0; row < 8; row++) {
+            for (int k = 0; k < 2; k++) {
+                assertEquals(table.getOutput(row, k), (outputs[k] >> row & 1) == 1, "row " + row);
+            }
+        }
+    }
+}
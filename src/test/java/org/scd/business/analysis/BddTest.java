@@ -0,0 +1,52 @@
+package org.scd.business.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BddTest {
+
+    @Test
+    void testEqualFunctionsShareOneNode() {
+        Bdd bdd = new Bdd(3);
+        int x = bdd.variable(0);
+        int y = bdd.variable(1);
+        int z = bdd.variable(2);
+
+        int left = bdd.and(x, bdd.or(y, z));
+        int right = bdd.or(bdd.and(x, y), bdd.and(x, z));
+        assertEquals(left, right);
+        assertEquals(Bdd.ONE, bdd.or(x, bdd.not(x)));
+        assertEquals(Bdd.ZERO, bdd.and(x, bdd.not(x)));
+        assertEquals(bdd.xor(x, y), bdd.xor(y, x));
+    }
+
+    @Test
+    void testSatCountAndAssignment() {
+        Bdd bdd = new Bdd(70);
+        int f = bdd.xor(bdd.variable(3), bdd.variable(60));
+
+        // Half of all 2^70 assignments
+        assertEquals(BigInteger.ONE.shiftLeft(69), bdd.satCount(f));
+        assertEquals(BigInteger.ONE.shiftLeft(70), bdd.satCount(Bdd.ONE));
+        assertEquals(BigInteger.ZERO, bdd.satCount(Bdd.ZERO));
+
+        boolean[] assignment = bdd.satisfyingAssignment(f);
+        assertTrue(bdd.evaluate(f, assignment));
+        assertNull(bdd.satisfyingAssignment(Bdd.ZERO));
+    }
+
+    @Test
+    void testNodeLimit() {
+        Bdd bdd = new Bdd(20, 16);
+        assertThrows(IllegalStateException.class, () -> {
+            int f = Bdd.ZERO;
+            for (int i = 0; i < 20; i += 2) {
+                f = bdd.or(f, bdd.and(bdd.variable(i), bdd.variable(i + 1)));
+                f = bdd.xor(f, bdd.variable(i));
+            }
+        });
+    }
+}
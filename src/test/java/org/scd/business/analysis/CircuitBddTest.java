@@ -0,0 +1,90 @@
+package org.scd.business.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+import org.scd.business.simulation.CompiledCircuit;
+import org.scd.business.simulation.TruthTableLayout;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitBddTest {
+
+    private CircuitBuilder builder;
+
+    @BeforeEach
+    void setUp() {
+        builder = new CircuitBuilder("BDD");
+    }
+
+    private CircuitBdd build(CircuitBdd.VariableOrder order) {
+        return CircuitBdd.build(TruthTableLayout.of(CompiledCircuit.compile(builder.getCircuit())), order);
+    }
+
+    @Test
+    void testWideAndHasOneMinterm() {
+        // 40 inputs: far beyond what a truth table can enumerate
+        int output = builder.addSwitch();
+        for (int i = 1; i < 40; i++) {
+            output = builder.and(output, builder.addSwitch());
+        }
+        builder.led(output);
+
+        CircuitBdd bdd = build(CircuitBdd.VariableOrder.DEPTH_FIRST);
+        assertEquals(40, bdd.getLayout().getInputCount());
+        assertEquals(BigInteger.ONE, bdd.countMinterms(0));
+        assertTrue(bdd.isSatisfiable(0));
+        assertFalse(bdd.isTautology(0));
+        boolean[] inputs = bdd.findSatisfyingInputs(0);
+        for (boolean input : inputs) {
+            assertTrue(input);
+        }
+    }
+
+    @Test
+    void testDeMorganOutputsAreEquivalent() {
+        int a = builder.addSwitch();
+        int b = builder.addSwitch();
+        builder.led(builder.not(builder.and(a, b)));
+        builder.led(builder.or(builder.not(a), builder.not(b)));
+        builder.led(builder.or(a, builder.not(a)));
+
+        CircuitBdd bdd = build(CircuitBdd.VariableOrder.LAYOUT);
+        assertTrue(bdd.isEquivalent(0, 1));
+        assertEquals(BigInteger.valueOf(3), bdd.countMinterms(1));
+        assertFalse(bdd.isTautology(0));
+        assertTrue(bdd.isTautology(2));
+    }
+
+    @Test
+    void testDepthFirstOrderKeepsPairsTogether() {
+        // (a1 & b1) | (a2 & b2) | ...: exponential with all a's before all b's
+        int n = 10;
+        int[] a = new int[n];
+        int[] b = new int[n];
+        for (int i = 0; i < n; i++) a[i] = builder.addSwitch();
+        for (int i = 0; i < n; i++) b[i] = builder.addSwitch();
+        int output = builder.and(a[0], b[0]);
+        for (int i = 1; i < n; i++) {
+            output = builder.or(output, builder.and(a[i], b[i]));
+        }
+        builder.led(output);
+
+        CircuitBdd layoutOrder = build(CircuitBdd.VariableOrder.LAYOUT);
+        CircuitBdd depthFirst = build(CircuitBdd.VariableOrder.DEPTH_FIRST);
+        assertEquals(layoutOrder.countMinterms(0), depthFirst.countMinterms(0));
+        assertTrue(depthFirst.getSize() <= 2 * n + 2);
+        assertTrue(layoutOrder.getSize() > 1 << n);
+    }
+
+    @Test
+    void testFeedbackIsRejected() {
+        int a = builder.addSwitch();
+        int id = builder.or(a);
+        builder.connect(id, id, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> build(CircuitBdd.VariableOrder.LAYOUT));
+    }
+}
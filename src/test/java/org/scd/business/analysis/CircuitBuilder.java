@@ -0,0 +1,77 @@
+package org.scd.business.analysis;
+
+import org.scd.business.model.*;
+
+/**
+ * Wires small combinational circuits for the analysis tests. Components get
+ * consecutive ids, and every connector also marks the input it feeds as
+ * driven, as CircuitService.addConnector does; inputs given no source stay
+ * free.
+ */
+class CircuitBuilder {
+
+    private final Circuit circuit;
+    private int nextId = 1;
+    private int nextConnectorId = 1;
+
+    CircuitBuilder(String name) {
+        circuit = new Circuit(1, name);
+    }
+
+    Circuit getCircuit() {
+        return circuit;
+    }
+
+    Gate gate(int id) {
+        return circuit.findGateById(id);
+    }
+
+    int addSwitch() {
+        circuit.addSwitch(new Switch(nextId, 0, 0));
+        return nextId++;
+    }
+
+    /** @param sources drivers of input 1 and, if given, input 2 */
+    int and(int... sources) {
+        return addGate(new And(nextId, 0, 0), sources);
+    }
+
+    /** @param sources drivers of input 1 and, if given, input 2 */
+    int or(int... sources) {
+        return addGate(new Or(nextId, 0, 0), sources);
+    }
+
+    int not(int source) {
+        return addGate(new Not(nextId, 0, 0), source);
+    }
+
+    int led(int source) {
+        int id = led();
+        connect(source, id, 0);
+        return id;
+    }
+
+    /** Adds an LED with nothing driving it. */
+    int led() {
+        circuit.addLED(new LED(nextId, 0, 0));
+        return nextId++;
+    }
+
+    void connect(int sourceId, int targetId, int inputIndex) {
+        circuit.addConnector(new Connector(nextConnectorId++, sourceId, targetId, inputIndex, "#000"));
+        Gate gate = circuit.findGateById(targetId);
+        if (gate != null) {
+            (inputIndex == 0 ? gate.getInput1() : gate.getInput2()).setSourceComponentId(sourceId);
+        } else {
+            circuit.findLEDById(targetId).getInput().setSourceComponentId(sourceId);
+        }
+    }
+
+    private int addGate(Gate gate, int... sources) {
+        circuit.addGate(gate);
+        for (int i = 0; i < sources.length; i++) {
+            connect(sources[i], gate.getComponentId(), i);
+        }
+        return nextId++;
+    }
+}
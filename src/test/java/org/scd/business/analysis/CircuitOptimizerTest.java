@@ -0,0 +1,97 @@
+package org.scd.business.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+import org.scd.business.simulation.LevelizedEvaluator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitOptimizerTest {
+
+    private CircuitBuilder builder;
+    private Circuit circuit;
+
+    @BeforeEach
+    void setUp() {
+        builder = new CircuitBuilder("Optimizer");
+        circuit = builder.getCircuit();
+    }
+
+    /**
+     * Asserts that every LED of the optimized circuit matches the original
+     * for every switch combination.
+     */
+    private void assertSameLeds(Circuit optimized) {
+        int switches = circuit.getSwitches().size();
+        for (int row = 0; row < 1 << switches; row++) {
+            for (int j = 0; j < switches; j++) {
+                boolean on = (row >> j & 1) == 1;
+                circuit.getSwitches().get(j).setOn(on);
+                optimized.getSwitches().get(j).setOn(on);
+            }
+            new LevelizedEvaluator(circuit).evaluate();
+            new LevelizedEvaluator(optimized).evaluate();
+            for (int k = 0; k < circuit.getLeds().size(); k++) {
+                assertEquals(circuit.getLeds().get(k).isOn(), optimized.getLeds().get(k).isOn(), "row " + row);
+            }
+        }
+    }
+
+    @Test
+    void testEachRewriteRemovesGates() {
+        int a = builder.addSwitch();
+        int b = builder.addSwitch();
+        // Double inversion
+        builder.led(builder.not(builder.not(a)));
+        // Duplicate AND, then OR of a signal with itself
+        builder.led(builder.or(builder.and(a, b), builder.and(b, a)));
+        // b AND 1
+        int constant = builder.and(b);
+        builder.gate(constant).getInput2().setValue(1);
+        builder.led(constant);
+        // Reaches no LED
+        builder.not(builder.or(a, b));
+
+        OptimizationResult result = new CircuitOptimizer().optimize(circuit);
+        Circuit optimized = result.getCircuit();
+
+        assertEquals(8, result.getOriginalGateCount());
+        assertEquals(1, result.getFoldedConstantCount());
+        assertEquals(1, result.getCollapsedInversionCount());
+        assertEquals(2, result.getMergedDuplicateCount());
+        assertEquals(3, result.getDeadGateCount()); // includes the NOT left behind by the collapse
+        assertEquals(7, result.getRemovedGateCount());
+        assertEquals(1, optimized.getGates().size());
+        assertSameLeds(optimized);
+    }
+
+    @Test
+    void testDominatingConstantKeepsUndeterminedInput() {
+        int a = builder.addSwitch();
+        int open = builder.and(a);            // input 2 left undetermined
+        int zero = builder.and(a);
+        builder.gate(zero).getInput2().setValue(0);     // a AND 0 is always 0
+        int masked = builder.and(open);
+        builder.gate(masked).getInput2().setValue(0);   // undetermined AND 0 stays undetermined
+        builder.led(zero);
+        builder.led(masked);
+        builder.led(builder.or(masked, a));
+
+        OptimizationResult result = new CircuitOptimizer().optimize(circuit);
+        assertSameLeds(result.getCircuit());
+        assertTrue(result.getFoldedConstantCount() >= 2);
+    }
+
+    @Test
+    void testOriginalCircuitIsUntouched() {
+        int a = builder.addSwitch();
+        builder.led(builder.not(builder.not(a)));
+        int connectors = circuit.getConnectors().size();
+
+        new CircuitOptimizer().optimize(circuit);
+
+        assertEquals(2, circuit.getGates().size());
+        assertEquals(connectors, circuit.getConnectors().size());
+    }
+}
@@ -0,0 +1,114 @@
+package org.scd.business.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EquivalenceCheckerTest {
+
+    @Test
+    void testDeMorganIsStructurallyEquivalent() {
+        // NOT(a AND b) against (NOT a) OR (NOT b)
+        CircuitBuilder original = new CircuitBuilder("Original");
+        int a = original.addSwitch();
+        int b = original.addSwitch();
+        original.led(original.not(original.and(a, b)));
+
+        CircuitBuilder revised = new CircuitBuilder("Revised");
+        a = revised.addSwitch();
+        b = revised.addSwitch();
+        revised.led(revised.or(revised.not(a), revised.not(b)));
+
+        EquivalenceResult result = new EquivalenceChecker().check(original.getCircuit(), revised.getCircuit());
+        assertTrue(result.isEquivalent());
+        assertEquals(EquivalenceResult.Method.STRUCTURAL, result.getMethod());
+        assertNull(result.getCounterexample());
+    }
+
+    @Test
+    void testXorRefactorNeedsSat() {
+        // (a AND NOT b) OR (NOT a AND b) against (a OR b) AND NOT (a AND b)
+        CircuitBuilder original = new CircuitBuilder("Original");
+        int a = original.addSwitch();
+        int b = original.addSwitch();
+        original.led(original.or(original.and(a, original.not(b)), original.and(original.not(a), b)));
+
+        CircuitBuilder revised = new CircuitBuilder("Revised");
+        a = revised.addSwitch();
+        b = revised.addSwitch();
+        revised.led(revised.and(revised.or(a, b), revised.not(revised.and(a, b))));
+
+        EquivalenceResult result = new EquivalenceChecker().check(original.getCircuit(), revised.getCircuit());
+        assertTrue(result.isEquivalent());
+        assertEquals(EquivalenceResult.Method.SAT, result.getMethod());
+        assertEquals(EquivalenceChecker.DEFAULT_RANDOM_WORDS * 64, result.getRandomPatternCount());
+    }
+
+    @Test
+    void testChangedGateFoundByRandomSimulation() {
+        CircuitBuilder original = new CircuitBuilder("Original");
+        int a = original.addSwitch();
+        int b = original.addSwitch();
+        int c = original.addSwitch();
+        original.led(original.and(a, b));
+        original.led(c);
+
+        CircuitBuilder revised = new CircuitBuilder("Revised");
+        a = revised.addSwitch();
+        b = revised.addSwitch();
+        c = revised.addSwitch();
+        revised.led(revised.or(a, b));
+        revised.led(c);
+
+        EquivalenceResult result = new EquivalenceChecker().check(original.getCircuit(), revised.getCircuit());
+        assertFalse(result.isEquivalent());
+        assertEquals(EquivalenceResult.Method.RANDOM_SIMULATION, result.getMethod());
+        assertEquals(List.of(0), result.getDifferingOutputs());
+        boolean[] vector = result.getCounterexample();
+        assertNotEquals(vector[0], vector[1]);   // AND and OR differ only there
+    }
+
+    @Test
+    void testRareCounterexampleFoundBySat() {
+        // A 40-input AND against a dark LED: only the all-ones vector differs
+        int width = 40;
+        CircuitBuilder original = new CircuitBuilder("Original");
+        int output = original.addSwitch();
+        for (int j = 1; j < width; j++) {
+            output = original.and(output, original.addSwitch());
+        }
+        original.led(output);
+
+        CircuitBuilder revised = new CircuitBuilder("Revised");
+        for (int j = 0; j < width; j++) {
+            revised.addSwitch();
+        }
+        revised.led();
+
+        EquivalenceChecker checker = new EquivalenceChecker(ForkJoinPool.commonPool(), 64, 1);
+        EquivalenceResult result = checker.check(original.getCircuit(), revised.getCircuit());
+        assertFalse(result.isEquivalent());
+        assertEquals(EquivalenceResult.Method.SAT, result.getMethod());
+        boolean[] vector = result.getCounterexample();
+        for (int j = 0; j < width; j++) {
+            assertTrue(vector[j], "input " + j);
+        }
+        assertEquals(List.of(0), result.getDifferingOutputs());
+    }
+
+    @Test
+    void testMismatchedPortsRejected() {
+        CircuitBuilder original = new CircuitBuilder("Original");
+        original.led(original.addSwitch());
+        original.addSwitch();
+        CircuitBuilder revised = new CircuitBuilder("Revised");
+        revised.led(revised.addSwitch());
+        revised.addSwitch();
+        revised.addSwitch();
+        assertThrows(IllegalArgumentException.class,
+                () -> new EquivalenceChecker().check(original.getCircuit(), revised.getCircuit()));
+    }
+}
@@ -0,0 +1,57 @@
+package org.scd.business.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SatSolverTest {
+
+    @Test
+    void testSatisfiableModelSatisfiesEveryClause() {
+        int[][] clauses = {{1, 2, -3}, {-1, 3}, {-2, 3}, {-3, 4}, {-4, -1, -2}, {1, -4, 2}};
+        SatSolver solver = new SatSolver();
+        for (int v = 0; v < 4; v++) solver.newVariable();
+        for (int[] clause : clauses) solver.addClause(clause);
+
+        assertTrue(solver.solve());
+        for (int[] clause : clauses) {
+            boolean satisfied = false;
+            for (int literal : clause) {
+                satisfied |= solver.getValue(Math.abs(literal)) == (literal > 0);
+            }
+            assertTrue(satisfied);
+        }
+    }
+
+    @Test
+    void testPigeonholeIsUnsatisfiable() {
+        // 5 pigeons, 4 holes: variable p * 4 + h + 1 puts pigeon p in hole h
+        int pigeons = 5;
+        int holes = 4;
+        SatSolver solver = new SatSolver();
+        for (int v = 0; v < pigeons * holes; v++) solver.newVariable();
+        for (int p = 0; p < pigeons; p++) {
+            int[] somewhere = new int[holes];
+            for (int h = 0; h < holes; h++) somewhere[h] = p * holes + h + 1;
+            solver.addClause(somewhere);
+        }
+        for (int h = 0; h < holes; h++) {
+            for (int p = 0; p < pigeons; p++) {
+                for (int q = p + 1; q < pigeons; q++) {
+                    solver.addClause(-(p * holes + h + 1), -(q * holes + h + 1));
+                }
+            }
+        }
+
+        assertFalse(solver.solve());
+        assertTrue(solver.getConflictCount() > 0);
+    }
+
+    @Test
+    void testLubySequence() {
+        int[] expected = {1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], SatSolver.luby(i));
+        }
+    }
+}
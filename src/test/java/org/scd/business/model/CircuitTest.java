@@ -63,4 +63,53 @@ public class CircuitTest {
         assertEquals(0, circuit.getComponentCount());
         assertNull(circuit.findLEDById(1));
     }
+
+    @Test
+    void testFaninAndFanoutIndex() {
+        circuit.addSwitch(new Switch(1, 0, 0));
+        circuit.addGate(new Not(2, 0, 0));
+        circuit.addLED(new LED(3, 0, 0));
+        Connector in = new Connector(10, 1, 2, 0, "#000");
+        Connector out = new Connector(11, 2, 3, 0, "#000");
+        circuit.addConnector(in);
+        circuit.addConnector(out);
+
+        assertEquals(java.util.List.of(in), circuit.getFaninConnectors(2));
+        assertEquals(java.util.List.of(out), circuit.getFanoutConnectors(2));
+        assertTrue(circuit.findComponentById(1) instanceof Switch);
+
+        // Removing the gate drops both of its connectors from the index
+        circuit.removeGate(2);
+        assertNull(circuit.findComponentById(2));
+        assertTrue(circuit.getFanoutConnectors(1).isEmpty());
+        assertTrue(circuit.getFaninConnectors(3).isEmpty());
+        assertTrue(circuit.getConnectors().isEmpty());
+    }
+
+    @Test
+    void testIndexIsRebuiltAfterSetter() {
+        circuit.addGate(new And(1, 0, 0));
+        assertNotNull(circuit.findGateById(1));
+
+        java.util.List<Gate> gates = new java.util.ArrayList<>();
+        gates.add(new Or(5, 0, 0));
+        circuit.setGates(gates);
+        assertNull(circuit.findGateById(1));
+        assertEquals("OR", circuit.findGateById(5).getGateType());
+    }
+
+    @Test
+    void testListsCannotBeEditedBehindTheIndex() {
+        java.util.List<Gate> gates = new java.util.ArrayList<>();
+        gates.add(new Or(5, 0, 0));
+        circuit.setGates(gates);
+        int version = circuit.getStructureVersion();
+
+        // The setter keeps its own copy and the getter is read-only
+        gates.add(new And(6, 0, 0));
+        assertNull(circuit.findGateById(6));
+        assertThrows(UnsupportedOperationException.class, () -> circuit.getGates().add(new And(7, 0, 0)));
+        assertThrows(UnsupportedOperationException.class, () -> circuit.getConnectors().clear());
+        assertEquals(version, circuit.getStructureVersion());
+    }
 }
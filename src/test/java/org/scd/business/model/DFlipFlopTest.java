@@ -0,0 +1,61 @@
+package org.scd.business.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DFlipFlopTest {
+
+    private DFlipFlop flipFlop;
+
+    @BeforeEach
+    void setUp() {
+        flipFlop = new DFlipFlop(1, 0, 0);
+    }
+
+    @Test
+    void testInitialState() {
+        assertEquals("DFF", flipFlop.getGateType());
+        assertEquals(0, flipFlop.getOutput());
+        assertNull(flipFlop.getLastClock());
+    }
+
+    @Test
+    void testCapturesOnRisingEdgeOnly() {
+        flipFlop.getInput1().setValue(1);
+        flipFlop.getInput2().setValue(0);
+        flipFlop.calculate();
+        assertEquals(0, flipFlop.getOutput());
+
+        flipFlop.getInput2().setValue(1);
+        flipFlop.calculate();
+        assertEquals(1, flipFlop.getOutput());
+
+        // D changes while the clock stays high: Q holds
+        flipFlop.getInput1().setValue(0);
+        flipFlop.calculate();
+        assertEquals(1, flipFlop.getOutput());
+    }
+
+    @Test
+    void testFirstSampleIsNotAnEdge() {
+        flipFlop.getInput1().setValue(1);
+        flipFlop.getInput2().setValue(1);
+        flipFlop.calculate();
+        assertEquals(0, flipFlop.getOutput());
+    }
+
+    @Test
+    void testLatchIsTransparentWhileEnabled() {
+        Latch latch = new Latch(2, 0, 0);
+        latch.getInput1().setValue(1);
+        latch.getInput2().setValue(1);
+        latch.calculate();
+        assertEquals(1, latch.getOutput());
+
+        latch.getInput2().setValue(0);
+        latch.getInput1().setValue(0);
+        latch.calculate();
+        assertEquals(1, latch.getOutput());
+    }
+}
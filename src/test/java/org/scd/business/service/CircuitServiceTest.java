@@ -2,8 +2,19 @@ package org.scd.business.service;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.scd.business.model.Circuit;
 import org.scd.business.model.Gate;
 import org.scd.business.model.Connector;
+import org.scd.business.model.LED;
+import org.scd.business.model.SubcircuitInstance;
+import org.scd.business.model.Switch;
+import org.scd.business.simulation.SimulationResult;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class CircuitServiceTest {
@@ -59,6 +70,46 @@ public class CircuitServiceTest {
         assertEquals(0, notGate.getOutput());
     }
 
+    @Test
+    void testTruthTable() {
+        Gate andGate = service.addGate("AND", 10, 10);
+        service.setGateInput(andGate.getComponentId(), 0, 1, null);
+        
+        java.util.List<String[]> table = service.generateTruthTable();
+        
+        // Header plus one row per input combination
+        assertEquals(5, table.size());
+        assertArrayEquals(new String[] {"AND 1 In 1", "AND 1 In 2", "AND 1 Out"}, table.get(0));
+        assertArrayEquals(new String[] {"0", "0", "0"}, table.get(1));
+        assertArrayEquals(new String[] {"1", "1", "1"}, table.get(4));
+        
+        // The circuit keeps the values set before the table was generated
+        assertEquals(1, andGate.getInput1().getValue());
+        assertNull(andGate.getInput2().getValue());
+    }
+
+    @Test
+    void testTruthTableIsNotCapped() {
+        // 6 AND gates = 12 free inputs, more than the old 1024-row limit
+        for (int i = 0; i < 6; i++) {
+            service.addGate("AND", 10, 10);
+        }
+        
+        assertEquals(4096, service.openTruthTable().getRowCount());
+        assertEquals(4097, service.generateTruthTable().size());
+    }
+
+    @Test
+    void testHugeTruthTableFailsFast() {
+        // 9 AND gates = 18 free inputs: pageable, but too many rows to materialize
+        for (int i = 0; i < 9; i++) {
+            service.addGate("AND", 10, 10);
+        }
+        
+        assertEquals(1 << 18, service.openTruthTable().getRowCount());
+        assertThrows(IllegalStateException.class, () -> service.generateTruthTable());
+    }
+
     @Test
     void testDeleteGate() {
         Gate gate = service.addGate("AND", 10, 10);
@@ -67,4 +118,95 @@ public class CircuitServiceTest {
         service.removeGate(gate.getComponentId());
         assertEquals(0, service.getComponentCount());
     }
+
+    @Test
+    void testSimulateAllSettlesEveryCircuit() throws Exception {
+        // Circuit 1: switch -> LED; circuit 2: NOT feeding itself
+        Switch sw = service.addSwitch(10, 10);
+        LED led = service.addLED(100, 10);
+        service.addConnector(sw.getComponentId(), led.getComponentId(), 0, "#000000");
+        sw.setOn(true);
+        
+        service.createNewCircuit("Oscillator");
+        Gate not = service.addGate("NOT", 10, 10);
+        not.setOutput(0);
+        service.addConnector(not.getComponentId(), not.getComponentId(), 0, "#000000");
+        
+        List<SimulationResult> results;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            results = service.simulateAll(executor);
+        }
+        
+        assertEquals(2, results.size());
+        assertEquals("Test Circuit", results.get(0).getCircuitName());
+        assertTrue(results.get(0).isConverged());
+        assertEquals(Boolean.TRUE, results.get(0).getLedStates().get(led.getComponentId()));
+        assertTrue(led.isOn());
+        
+        assertFalse(results.get(1).isConverged());
+        assertNull(results.get(1).getFailure());
+    }
+
+    @Test
+    void testFanoutConeIsCachedUntilWiringChanges() {
+        // switch -> NOT -> LED, plus an unrelated AND
+        Switch sw = service.addSwitch(10, 10);
+        Gate not = service.addGate("NOT", 100, 10);
+        LED led = service.addLED(200, 10);
+        Gate other = service.addGate("AND", 100, 100);
+        service.addConnector(sw.getComponentId(), not.getComponentId(), 0, "#000000");
+        service.addConnector(not.getComponentId(), led.getComponentId(), 0, "#000000");
+        
+        Set<Integer> cone = service.getFanoutCone(sw.getComponentId());
+        assertEquals(Set.of(sw.getComponentId(), not.getComponentId(), led.getComponentId()), cone);
+        assertSame(cone, service.getFanoutCone(sw.getComponentId()));
+        
+        service.addConnector(not.getComponentId(), other.getComponentId(), 0, "#000000");
+        assertTrue(service.getFanoutCone(sw.getComponentId()).contains(other.getComponentId()));
+    }
+
+    @Test
+    void testCloningCopiesSubcircuitInstances() {
+        // Definition: switch -> NOT -> LED
+        Circuit inverter = service.getCurrentCircuit();
+        Switch in = service.addSwitch(10, 10);
+        Gate not = service.addGate("NOT", 100, 10);
+        LED out = service.addLED(200, 10);
+        service.addConnector(in.getComponentId(), not.getComponentId(), 0, "#000000");
+        service.addConnector(not.getComponentId(), out.getComponentId(), 0, "#000000");
+        
+        // Host: switch -> instance -> LED
+        Circuit host = service.createNewCircuit("Host");
+        Switch sw = service.addSwitch(10, 10);
+        SubcircuitInstance instance = service.addSubcircuit(inverter, 100, 10);
+        LED led = service.addLED(200, 10);
+        service.addConnector(sw.getComponentId(), instance.getComponentId(), 0, "#000000");
+        service.addConnector(instance.getComponentId(), 0, led.getComponentId(), 0, "#000000");
+        
+        service.createNewCircuit("Copy");
+        CircuitService.ClonedComponents cloned = service.cloneCircuitComponents(host, 0, 100);
+        assertEquals(1, cloned.subcircuits.size());
+        assertSame(inverter, cloned.subcircuits.get(0).getDefinition());
+        service.mergeComponentsIntoCurrentCircuit(cloned.gates, cloned.leds, cloned.switches, cloned.clocks,
+                cloned.subcircuits, cloned.connectors);
+        
+        Circuit copy = service.getCurrentCircuit();
+        assertEquals(3, copy.getComponentCount());
+        assertEquals(2, copy.getConnectors().size());
+        assertTrue(cloned.subcircuits.get(0).getInput(0).isConnected());
+        service.calculateCircuit();
+        assertTrue(copy.getLeds().get(0).isOn());   // switch off, inverted
+    }
+
+    @Test
+    void testPlacedCircuitCannotContainSubcircuits() {
+        Circuit a = service.getCurrentCircuit();
+        service.createNewCircuit("B");
+        service.addSubcircuit(a, 10, 10);
+        Circuit c = service.createNewCircuit("C");
+        
+        service.switchToCircuit(a);
+        assertThrows(IllegalArgumentException.class, () -> service.addSubcircuit(c, 10, 10));
+        assertTrue(a.getSubcircuits().isEmpty());
+    }
 }
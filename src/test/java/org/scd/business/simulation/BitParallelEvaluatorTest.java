@@ -0,0 +1,98 @@
+package org.scd.business.simulation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BitParallelEvaluatorTest {
+
+    private Circuit circuit;
+
+    @BeforeEach
+    void setUp() {
+        // Three switches and a small mix of gates with free inputs (7 inputs, 128 rows)
+        circuit = new Circuit(1, "Test Circuit");
+        circuit.addSwitch(new Switch(1, 0, 0));
+        circuit.addSwitch(new Switch(2, 0, 0));
+        circuit.addSwitch(new Switch(3, 0, 0));
+        Gate and1 = new And(10, 0, 0);
+        Gate or1 = new Or(11, 0, 0);
+        Gate not1 = new Not(12, 0, 0);
+        Gate and2 = new And(13, 0, 0);
+        Gate or2 = new Or(14, 0, 0);
+        circuit.addGate(and1);
+        circuit.addGate(or1);
+        circuit.addGate(not1);
+        circuit.addGate(and2);
+        circuit.addGate(or2);
+        circuit.addGate(new Not(15, 0, 0));
+        circuit.addLED(new LED(20, 0, 0));
+        circuit.addConnector(new Connector(1, 1, 10, 0, "#000"));
+        circuit.addConnector(new Connector(2, 2, 11, 0, "#000"));
+        circuit.addConnector(new Connector(3, 10, 12, 0, "#000"));
+        circuit.addConnector(new Connector(4, 12, 13, 0, "#000"));
+        circuit.addConnector(new Connector(5, 11, 13, 1, "#000"));
+        circuit.addConnector(new Connector(6, 3, 14, 0, "#000"));
+        circuit.addConnector(new Connector(7, 13, 20, 0, "#000"));
+
+        // Mark the wired gate inputs; the rest stay free truth-table inputs
+        and1.getInput1().setSourceComponentId(1);
+        or1.getInput1().setSourceComponentId(2);
+        not1.getInput1().setSourceComponentId(10);
+        and2.getInput1().setSourceComponentId(12);
+        and2.getInput2().setSourceComponentId(11);
+        or2.getInput1().setSourceComponentId(3);
+    }
+
+    @Test
+    void testRowPatterns() {
+        assertEquals(0xAAAAAAAAAAAAAAAAL, BitParallelEvaluator.rowPattern(0, 0));
+        assertEquals(0xFFFFFFFF00000000L, BitParallelEvaluator.rowPattern(5, 0));
+        assertEquals(0L, BitParallelEvaluator.rowPattern(6, 0));
+        assertEquals(-1L, BitParallelEvaluator.rowPattern(6, 64));
+    }
+
+    @Test
+    void testEveryLaneMatchesScalarEvaluation() {
+        CompiledCircuit netlist = CompiledCircuit.compile(circuit);
+        TruthTableLayout layout = TruthTableLayout.of(netlist);
+        assertEquals(7, layout.getInputCount());
+
+        BitParallelEvaluator parallel = new BitParallelEvaluator(netlist);
+        CompiledEvaluator scalar = new CompiledEvaluator(netlist);
+        int rows = 1 << layout.getInputCount();
+
+        for (int base = 0; base < rows; base += BitParallelEvaluator.LANES) {
+            layout.applyBlock(parallel, base);
+            parallel.evaluate();
+            for (int lane = 0; lane < BitParallelEvaluator.LANES; lane++) {
+                layout.applyRow(scalar, base + lane);
+                scalar.evaluate();
+                for (int node = 0; node < netlist.getNodeCount(); node++) {
+                    byte expected = scalar.getValue(node);
+                    boolean known = ((parallel.getKnown(node) >>> lane) & 1L) != 0;
+                    boolean high = ((parallel.getValue(node) >>> lane) & 1L) != 0;
+                    assertEquals(expected != CompiledCircuit.UNKNOWN, known);
+                    assertEquals(expected == CompiledCircuit.HIGH, high);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testUnknownInputKeepsGateUnknown() {
+        Circuit single = new Circuit(2, "Single");
+        And and = new And(1, 0, 0);
+        single.addGate(and);
+        CompiledCircuit netlist = CompiledCircuit.compile(single);
+        BitParallelEvaluator evaluator = new BitParallelEvaluator(netlist);
+
+        evaluator.setDirectInput(0, 0, 0L);
+        evaluator.evaluate();
+
+        // Input 2 was never set: even 0 AND unknown stays unknown, as in And.calculate()
+        assertEquals(0L, evaluator.getKnown(0));
+        assertEquals(0L, evaluator.getValue(0));
+    }
+}
@@ -0,0 +1,112 @@
+package org.scd.business.simulation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClockedSimulatorTest {
+
+    private Circuit circuit;
+
+    @BeforeEach
+    void setUp() {
+        circuit = new Circuit(1, "Test Circuit");
+    }
+
+    @Test
+    void testClockDrivesLogic() {
+        // LED = NOT clock
+        circuit.addClock(new Clock(1, 0, 0));
+        circuit.addGate(new Not(2, 0, 0));
+        circuit.addLED(new LED(3, 0, 0));
+        circuit.addConnector(new Connector(1, 1, 2, 0, "#000"));
+        circuit.addConnector(new Connector(2, 2, 3, 0, "#000"));
+
+        ClockedSimulator simulator = new ClockedSimulator(CompiledCircuit.compile(circuit));
+        CompiledCircuit netlist = simulator.getNetlist();
+        assertEquals(CompiledCircuit.HIGH, simulator.getValue(netlist.indexOf(3)));
+
+        // A full cycle returns the clock low
+        simulator.runCycles(1);
+        assertEquals(CompiledCircuit.LOW, simulator.getValue(netlist.indexOf(1)));
+        assertEquals(CompiledCircuit.HIGH, simulator.getValue(netlist.indexOf(3)));
+        assertEquals(4, simulator.getEvaluationCount());
+        assertEquals(1, simulator.getCycleCount());
+
+        simulator.writeBack();
+        assertFalse(circuit.findClockById(1).isHigh());
+        assertTrue(circuit.findLEDById(3).isOn());
+    }
+
+    @Test
+    void testOnlyClockedConeIsEvaluated() {
+        // 999 gates driven by a switch (odd, so the AND sees a 1), 2 gates driven by the clock
+        circuit.addSwitch(new Switch(1, 0, 0));
+        int previous = 1;
+        for (int id = 100; id < 1099; id++) {
+            circuit.addGate(new Not(id, 0, 0));
+            circuit.addConnector(new Connector(id, previous, id, 0, "#000"));
+            previous = id;
+        }
+        circuit.addClock(new Clock(2, 0, 0));
+        circuit.addGate(new And(3, 0, 0));
+        circuit.addGate(new Not(4, 0, 0));
+        circuit.addConnector(new Connector(2000, 2, 3, 0, "#000"));
+        circuit.addConnector(new Connector(2001, 1098, 3, 1, "#000"));
+        circuit.addConnector(new Connector(2002, 3, 4, 0, "#000"));
+
+        ClockedSimulator simulator = new ClockedSimulator(CompiledCircuit.compile(circuit));
+        simulator.runCycles(10_000);
+
+        // Two gates per edge, two edges per cycle
+        assertEquals(4 * 10_000, simulator.getEvaluationCount());
+        assertTrue(simulator.getCyclesPerSecond() > 0);
+    }
+
+    @Test
+    void testFeedbackBehindClockIsSettled() {
+        // OR(clock, itself) latches high on the first rising edge
+        Gate or = new Or(2, 0, 0);
+        or.setOutput(0);
+        circuit.addClock(new Clock(1, 0, 0));
+        circuit.addGate(or);
+        circuit.addConnector(new Connector(1, 1, 2, 0, "#000"));
+        circuit.addConnector(new Connector(2, 2, 2, 1, "#000"));
+
+        ClockedSimulator simulator = new ClockedSimulator(CompiledCircuit.compile(circuit));
+        assertEquals(CompiledCircuit.LOW, simulator.getValue(simulator.getNetlist().indexOf(2)));
+        simulator.runCycles(3);
+        assertEquals(CompiledCircuit.HIGH, simulator.getValue(simulator.getNetlist().indexOf(2)));
+    }
+
+    @Test
+    void testShiftRegisterMovesOneStagePerCycle() {
+        // Switch -> DFF -> DFF -> DFF, all on one clock
+        circuit.addSwitch(new Switch(1, 0, 0));
+        circuit.findSwitchById(1).setOn(true);
+        circuit.addClock(new Clock(2, 0, 0));
+        for (int id = 10; id < 13; id++) {
+            circuit.addGate(new DFlipFlop(id, 0, 0));
+            circuit.addConnector(new Connector(id, id == 10 ? 1 : id - 1, id, 0, "#000"));
+            circuit.addConnector(new Connector(100 + id, 2, id, 1, "#000"));
+        }
+
+        ClockedSimulator simulator = new ClockedSimulator(CompiledCircuit.compile(circuit));
+        CompiledCircuit netlist = simulator.getNetlist();
+
+        // All stages sample before any commits, so the 1 moves one stage per cycle
+        for (int cycle = 1; cycle <= 3; cycle++) {
+            simulator.runCycles(1);
+            for (int id = 10; id < 13; id++) {
+                byte expected = id - 10 < cycle ? CompiledCircuit.HIGH : CompiledCircuit.LOW;
+                assertEquals(expected, simulator.getValue(netlist.indexOf(id)), "stage " + id + " after " + cycle);
+            }
+        }
+
+        simulator.writeBack();
+        assertEquals(1, circuit.findGateById(12).getOutput());
+        assertEquals(0, ((DFlipFlop) circuit.findGateById(12)).getLastClock());
+    }
+}
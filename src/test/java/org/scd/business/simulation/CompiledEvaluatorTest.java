@@ -0,0 +1,144 @@
+package org.scd.business.simulation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompiledEvaluatorTest {
+
+    private Circuit circuit;
+    private Switch sw;
+    private Gate and;
+    private Gate or;
+    private Gate not;
+    private LED led;
+
+    @BeforeEach
+    void setUp() {
+        // LED = NOT(AND(switch, in) OR in)
+        circuit = new Circuit(1, "Test Circuit");
+        sw = new Switch(1, 0, 0);
+        and = new And(2, 0, 0);
+        or = new Or(3, 0, 0);
+        not = new Not(4, 0, 0);
+        led = new LED(5, 0, 0);
+        circuit.addLED(led);
+        circuit.addGate(not);
+        circuit.addGate(or);
+        circuit.addGate(and);
+        circuit.addSwitch(sw);
+        circuit.addConnector(new Connector(1, 1, 2, 0, "#000"));
+        circuit.addConnector(new Connector(2, 2, 3, 0, "#000"));
+        circuit.addConnector(new Connector(3, 3, 4, 0, "#000"));
+        circuit.addConnector(new Connector(4, 4, 5, 0, "#000"));
+    }
+
+    @Test
+    void testNodesAreInTopologicalOrder() {
+        CompiledCircuit netlist = CompiledCircuit.compile(circuit);
+        assertEquals(5, netlist.getNodeCount());
+        assertEquals(netlist.getNodeCount(), netlist.getFeedbackStart());
+        for (int node = 0; node < netlist.getNodeCount(); node++) {
+            for (int slot = 0; slot < 2; slot++) {
+                assertTrue(netlist.getSource(node, slot) < node);
+            }
+        }
+        assertEquals(CompiledCircuit.UNDRIVEN, netlist.getSource(netlist.indexOf(2), 1));
+    }
+
+    @Test
+    void testMatchesObjectModelEvaluation() {
+        CompiledEvaluator evaluator = new CompiledEvaluator(CompiledCircuit.compile(circuit));
+        LevelizedEvaluator reference = new LevelizedEvaluator(circuit);
+
+        for (int row = 0; row < 8; row++) {
+            sw.setOn((row & 1) != 0);
+            and.getInput2().setValue((row >> 1) & 1);
+            or.getInput2().setValue((row >> 2) & 1);
+
+            reference.evaluate();
+            evaluator.load();
+            evaluator.evaluate();
+
+            CompiledCircuit netlist = evaluator.getNetlist();
+            assertEquals(CompiledEvaluator.encode(not.getOutput()), evaluator.getValue(netlist.indexOf(4)));
+            assertEquals(led.isOn(), evaluator.getValue(netlist.indexOf(5)) == CompiledCircuit.HIGH);
+        }
+    }
+
+    @Test
+    void testUnknownInputPropagates() {
+        CompiledEvaluator evaluator = new CompiledEvaluator(CompiledCircuit.compile(circuit));
+        evaluator.load();
+        evaluator.evaluate();
+
+        // AND and OR second inputs were never set
+        assertEquals(CompiledCircuit.UNKNOWN, evaluator.getValue(evaluator.getNetlist().indexOf(4)));
+        assertEquals(CompiledCircuit.LOW, evaluator.getValue(evaluator.getNetlist().indexOf(5)));
+    }
+
+    @Test
+    void testWriteBackOnlyOnRequest() {
+        CompiledCircuit netlist = CompiledCircuit.compile(circuit);
+        CompiledEvaluator evaluator = new CompiledEvaluator(netlist);
+        evaluator.load();
+        evaluator.setSwitch(netlist.indexOf(1), true);
+        evaluator.setDirectInput(netlist.indexOf(2), 1, CompiledCircuit.HIGH);
+        evaluator.setDirectInput(netlist.indexOf(3), 1, CompiledCircuit.LOW);
+        evaluator.evaluate();
+
+        assertNull(not.getOutput());
+        assertFalse(led.isOn());
+
+        evaluator.writeBack();
+        assertEquals(1, and.getOutput());
+        assertEquals(1, not.getInput1().getValue());
+        assertEquals(0, not.getOutput());
+        assertFalse(led.isOn());
+    }
+
+    @Test
+    void testCopyIsIndependent() {
+        CompiledCircuit netlist = CompiledCircuit.compile(circuit);
+        CompiledEvaluator evaluator = new CompiledEvaluator(netlist);
+        evaluator.setSwitch(netlist.indexOf(1), true);
+        CompiledEvaluator copy = evaluator.copy();
+        copy.setSwitch(netlist.indexOf(1), false);
+
+        assertEquals(CompiledCircuit.HIGH, evaluator.getValue(netlist.indexOf(1)));
+        assertEquals(CompiledCircuit.LOW, copy.getValue(netlist.indexOf(1)));
+    }
+
+    @Test
+    void testStaleAfterStructuralEdit() {
+        CompiledCircuit netlist = CompiledCircuit.compile(circuit);
+        assertTrue(netlist.isCurrent());
+        circuit.removeConnector(4);
+        assertFalse(netlist.isCurrent());
+    }
+
+    @Test
+    void testOscillatingLoopIsNotConverged() {
+        // NOT(4) now also feeds back into OR(3)
+        circuit.addConnector(new Connector(5, 4, 3, 1, "#000"));
+        CompiledCircuit netlist = CompiledCircuit.compile(circuit);
+        assertEquals(2, netlist.getBlockCount());
+        assertTrue(netlist.isCyclic(0));
+        assertFalse(netlist.isCyclic(1));
+
+        CompiledEvaluator evaluator = new CompiledEvaluator(netlist);
+        evaluator.load();
+        evaluator.setSwitch(netlist.indexOf(1), false);
+        evaluator.setDirectInput(netlist.indexOf(2), 1, CompiledCircuit.LOW);
+        evaluator.setValue(netlist.indexOf(3), CompiledCircuit.LOW);
+        evaluator.evaluate();
+        assertFalse(evaluator.isConverged());
+
+        // A 1 on the switch side holds the OR high, so the loop settles
+        evaluator.setSwitch(netlist.indexOf(1), true);
+        evaluator.setDirectInput(netlist.indexOf(2), 1, CompiledCircuit.HIGH);
+        evaluator.evaluate();
+        assertTrue(evaluator.isConverged());
+    }
+}
@@ -0,0 +1,92 @@
+package org.scd.business.simulation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventDrivenSimulatorTest {
+
+    private Circuit circuit;
+    private EventDrivenSimulator simulator;
+    private Switch swA;
+    private Switch swB;
+    private Gate notA;
+    private Gate notB;
+    private LED ledA;
+    private LED ledB;
+
+    @BeforeEach
+    void setUp() {
+        // Two independent cones: A -> NOT -> LED and B -> NOT -> LED
+        circuit = new Circuit(1, "Test Circuit");
+        swA = new Switch(1, 0, 0);
+        swB = new Switch(2, 0, 0);
+        notA = new Not(3, 0, 0);
+        notB = new Not(4, 0, 0);
+        ledA = new LED(5, 0, 0);
+        ledB = new LED(6, 0, 0);
+        circuit.addSwitch(swA);
+        circuit.addSwitch(swB);
+        circuit.addGate(notA);
+        circuit.addGate(notB);
+        circuit.addLED(ledA);
+        circuit.addLED(ledB);
+        circuit.addConnector(new Connector(1, 1, 3, 0, "#000"));
+        circuit.addConnector(new Connector(2, 2, 4, 0, "#000"));
+        circuit.addConnector(new Connector(3, 3, 5, 0, "#000"));
+        circuit.addConnector(new Connector(4, 4, 6, 0, "#000"));
+
+        simulator = new EventDrivenSimulator(new LevelizedEvaluator(circuit));
+        simulator.settle();
+    }
+
+    @Test
+    void testToggleOnlyTouchesItsCone() {
+        assertTrue(ledA.isOn());
+        assertTrue(ledB.isOn());
+
+        swA.toggle();
+        Set<Integer> changed = simulator.propagateFrom(swA.getComponentId());
+
+        assertFalse(ledA.isOn());
+        assertTrue(ledB.isOn());
+        assertEquals(Set.of(1, 3, 5), changed);
+        assertEquals(3, simulator.getLastEvaluationCount());
+    }
+
+    @Test
+    void testPropagationStopsWhenOutputDoesNotChange() {
+        // Re-propagating the same value reaches the NOT but goes no further
+        simulator.propagateFrom(swB.getComponentId());
+        assertEquals(2, simulator.getLastEvaluationCount());
+    }
+
+    @Test
+    void testWiringChangeFallsBackToFullSettle() {
+        circuit.addConnector(new Connector(5, 3, 6, 0, "#000"));
+        swA.toggle();
+        simulator.propagateFrom(swA.getComponentId());
+
+        // LED B is now driven by NOT A as well (last connector wins)
+        assertFalse(ledB.isOn());
+        assertEquals(circuit.getComponentCount(), simulator.getLastEvaluationCount());
+    }
+
+    @Test
+    void testFullSettleReportsSubcircuits() {
+        Circuit buffer = new Circuit(2, "Buffer");
+        buffer.addSwitch(new Switch(1, 0, 0));
+        buffer.addLED(new LED(2, 0, 0));
+        buffer.addConnector(new Connector(1, 1, 2, 0, "#000"));
+        circuit.addSubcircuit(new SubcircuitInstance(7, buffer, 0, 0));
+
+        Set<Integer> changed = simulator.propagateFrom(swA.getComponentId());
+
+        assertEquals(circuit.getComponentCount(), changed.size());
+        assertTrue(changed.contains(7));
+    }
+}
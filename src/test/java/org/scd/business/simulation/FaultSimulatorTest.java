@@ -0,0 +1,114 @@
+package org.scd.business.simulation;
+
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FaultSimulatorTest {
+
+    @Test
+    void testExhaustiveVectorsDetectEveryAndFault() throws Exception {
+        FaultSimulator simulator = new FaultSimulator(andLayout());
+        assertEquals(6, simulator.getFaultCount());
+
+        FaultCoverage coverage = simulator.run(reader("00\n01\n10\n11\n"), 1);
+        assertEquals(6, coverage.getDetectedCount());
+        assertEquals(1.0, coverage.getCoverage());
+        assertEquals(4, coverage.getVectorCount());
+    }
+
+    @Test
+    void testFaultsAreDroppedAcrossSets() throws Exception {
+        // Split down to one fault per chunk
+        FaultSimulator simulator = new FaultSimulator(andLayout(), ForkJoinPool.commonPool(), 1);
+
+        FaultCoverage first = simulator.run(reader("11\n"), 1);
+        assertEquals(3, first.getNewlyDetectedCount());   // every stuck-at-0
+
+        FaultCoverage second = simulator.run(reader("11\n00\n01\n10\n"), 1);
+        assertEquals(3, second.getNewlyDetectedCount());
+        assertEquals(6, second.getDetectedCount());
+        assertEquals(2, simulator.getDetectingVector(fault(simulator, "AND 3 Out stuck-at-1")));
+        assertEquals(3, simulator.getDetectingVector(fault(simulator, "AND 3 In 1 stuck-at-1")));
+        assertEquals(0, simulator.getDetectingVector(fault(simulator, "AND 3 In 2 stuck-at-0")));
+    }
+
+    @Test
+    void testDetectionLateInALongSet() throws Exception {
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < 1999; i++) {
+            in.append("01\n");
+        }
+        in.append("11\n");
+        FaultSimulator simulator = new FaultSimulator(andLayout());
+        simulator.run(reader(in.toString()), 64);
+
+        assertEquals(1999, simulator.getDetectingVector(fault(simulator, "AND 3 Out stuck-at-0")));
+        assertFalse(simulator.isDetected(fault(simulator, "AND 3 In 2 stuck-at-1")));
+        assertEquals(2000, simulator.getVectorCount());
+    }
+
+    @Test
+    void testRedundantLogicLeavesFaultsUndetected() throws Exception {
+        // a OR (a AND b) is just a, so faults that only change the AND term are invisible
+        Circuit circuit = new Circuit(1, "Redundant");
+        circuit.addSwitch(new Switch(1, 0, 0));
+        circuit.addSwitch(new Switch(2, 0, 0));
+        Gate and = new And(3, 0, 0);
+        and.getInput1().setSourceComponentId(1);
+        and.getInput2().setSourceComponentId(2);
+        Gate or = new Or(4, 0, 0);
+        or.getInput1().setSourceComponentId(1);
+        or.getInput2().setSourceComponentId(3);
+        circuit.addGate(and);
+        circuit.addGate(or);
+        circuit.addLED(new LED(5, 0, 0));
+        circuit.addConnector(new Connector(1, 1, 3, 0, "#000"));
+        circuit.addConnector(new Connector(2, 2, 3, 1, "#000"));
+        circuit.addConnector(new Connector(3, 1, 4, 0, "#000"));
+        circuit.addConnector(new Connector(4, 3, 4, 1, "#000"));
+        circuit.addConnector(new Connector(5, 4, 5, 0, "#000"));
+
+        FaultSimulator simulator = new FaultSimulator(TruthTableLayout.of(CompiledCircuit.compile(circuit)));
+        FaultCoverage coverage = simulator.run(reader("00\n01\n10\n11\n"), 1);
+
+        assertEquals(12, coverage.getFaultCount());
+        assertEquals(7, coverage.getDetectedCount());
+        assertFalse(simulator.isDetected(fault(simulator, "AND 3 Out stuck-at-0")));
+        assertFalse(simulator.isDetected(fault(simulator, "OR 4 In 2 stuck-at-0")));
+        assertTrue(simulator.isDetected(fault(simulator, "AND 3 Out stuck-at-1")));
+        assertEquals(5, simulator.getUndetectedFaults().length);
+    }
+
+    private static TruthTableLayout andLayout() {
+        // Two switches -> AND -> LED
+        Circuit circuit = new Circuit(1, "Test Circuit");
+        circuit.addSwitch(new Switch(1, 0, 0));
+        circuit.addSwitch(new Switch(2, 0, 0));
+        Gate and = new And(3, 0, 0);
+        and.getInput1().setSourceComponentId(1);
+        and.getInput2().setSourceComponentId(2);
+        circuit.addGate(and);
+        circuit.addLED(new LED(4, 0, 0));
+        circuit.addConnector(new Connector(1, 1, 3, 0, "#000"));
+        circuit.addConnector(new Connector(2, 2, 3, 1, "#000"));
+        circuit.addConnector(new Connector(3, 3, 4, 0, "#000"));
+        return TruthTableLayout.of(CompiledCircuit.compile(circuit));
+    }
+
+    private static VectorReader reader(String vectors) {
+        return new VectorReader(new BufferedReader(new StringReader(vectors)), 2);
+    }
+
+    private static int fault(FaultSimulator simulator, String label) {
+        for (int f = 0; f < simulator.getFaultCount(); f++) {
+            if (simulator.getFaultLabel(f).equals(label)) return f;
+        }
+        throw new AssertionError("No fault " + label);
+    }
+}
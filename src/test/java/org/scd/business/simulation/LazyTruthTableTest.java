@@ -0,0 +1,82 @@
+package org.scd.business.simulation;
+
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LazyTruthTableTest {
+
+    /**
+     * Builds an OR tree over {@code n} switches (n must be a power of two).
+     */
+    private Circuit orTree(int n) {
+        Circuit circuit = new Circuit(1, "OR tree");
+        int nextId = 1;
+        int[] level = new int[n];
+        for (int i = 0; i < n; i++) {
+            circuit.addSwitch(new Switch(nextId, 0, 0));
+            level[i] = nextId++;
+        }
+        int connectorId = 1;
+        while (level.length > 1) {
+            int[] next = new int[level.length / 2];
+            for (int i = 0; i < next.length; i++) {
+                Or or = new Or(nextId, 0, 0);
+                circuit.addGate(or);
+                circuit.addConnector(new Connector(connectorId++, level[2 * i], nextId, 0, "#000"));
+                circuit.addConnector(new Connector(connectorId++, level[2 * i + 1], nextId, 1, "#000"));
+                or.getInput1().setSourceComponentId(level[2 * i]);
+                or.getInput2().setSourceComponentId(level[2 * i + 1]);
+                next[i] = nextId++;
+            }
+            level = next;
+        }
+        return circuit;
+    }
+
+    @Test
+    void testLargeTableWithoutCap() {
+        LazyTruthTable table = new LazyTruthTable(TruthTableLayout.of(CompiledCircuit.compile(orTree(16))));
+        assertEquals(16, table.getInputCount());
+        assertEquals(1, table.getOutputCount());
+        assertEquals(1L << 16, table.getRowCount());
+
+        // Only row 0 has all switches off
+        assertFalse(table.getOutput(0, 0));
+        assertTrue(table.getOutput(1, 0));
+        assertTrue(table.getOutput(40000, 0));
+        assertTrue(table.getOutput(table.getRowCount() - 1, 0));
+        assertTrue(table.getInput(1L << 15, 0));
+        assertFalse(table.getInput(1L << 15, 1));
+    }
+
+    @Test
+    void testPagesCoverEveryRowOnce() {
+        LazyTruthTable table = new LazyTruthTable(TruthTableLayout.of(CompiledCircuit.compile(orTree(8))));
+        Iterator<TruthTablePage> pages = table.pages();
+        long rows = 0;
+        int ones = 0;
+        while (pages.hasNext()) {
+            TruthTablePage page = pages.next();
+            assertEquals(rows, page.getBaseRow());
+            rows += page.getRowCount();
+            ones += Long.bitCount(page.getOutputWord(0));
+        }
+        assertEquals(256, rows);
+        assertEquals(255, ones);
+    }
+
+    @Test
+    void testPartialPageIsMasked() {
+        Circuit circuit = new Circuit(1, "NOT");
+        circuit.addGate(new Not(1, 0, 0));
+        LazyTruthTable table = new LazyTruthTable(TruthTableLayout.of(CompiledCircuit.compile(circuit)));
+        TruthTablePage page = table.pages().next();
+
+        assertEquals(2, page.getRowCount());
+        assertEquals(0b01L, page.getOutputWord(0));
+    }
+}
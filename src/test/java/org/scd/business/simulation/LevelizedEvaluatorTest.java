@@ -0,0 +1,177 @@
+package org.scd.business.simulation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LevelizedEvaluatorTest {
+
+    private Circuit circuit;
+    private LevelizedEvaluator evaluator;
+
+    @BeforeEach
+    void setUp() {
+        circuit = new Circuit(1, "Test Circuit");
+        evaluator = new LevelizedEvaluator(circuit);
+    }
+
+    @Test
+    void testDeepChainSettlesInOneEvaluation() {
+        // Switch -> 25 NOT gates -> LED, deeper than the old 10-pass limit
+        Switch sw = new Switch(1, 0, 0);
+        circuit.addSwitch(sw);
+        int previousId = 1;
+        Gate last = null;
+        for (int i = 0; i < 25; i++) {
+            int id = 100 + i;
+            last = new Not(id, 0, 0);
+            circuit.addGate(last);
+            circuit.addConnector(new Connector(id, previousId, id, 0, "#000"));
+            previousId = id;
+        }
+        LED led = new LED(2, 0, 0);
+        circuit.addLED(led);
+        circuit.addConnector(new Connector(999, previousId, 2, 0, "#000"));
+
+        sw.setOn(true);
+        evaluator.evaluate();
+
+        // Odd number of inversions
+        assertEquals(0, last.getOutput());
+        assertFalse(led.isOn());
+        assertEquals(27, evaluator.getLevels().size());
+        assertTrue(evaluator.getFeedbackComponents().isEmpty());
+    }
+
+    @Test
+    void testSourcesAreOrderedBeforeTargets() {
+        // Added in reverse order on purpose
+        Gate not = new Not(3, 0, 0);
+        Gate and = new And(2, 0, 0);
+        circuit.addGate(not);
+        circuit.addGate(and);
+        circuit.addConnector(new Connector(1, 2, 3, 0, "#000"));
+        and.getInput1().setValue(1);
+        and.getInput2().setValue(1);
+
+        evaluator.evaluate();
+
+        assertEquals(1, and.getOutput());
+        assertEquals(0, not.getOutput());
+        assertSame(and, evaluator.getLevels().get(0).get(0));
+    }
+
+    @Test
+    void testOrderIsRebuiltWhenWiringChanges() {
+        Gate and = new And(1, 0, 0);
+        Gate not = new Not(2, 0, 0);
+        circuit.addGate(and);
+        circuit.addGate(not);
+        and.getInput1().setValue(0);
+        and.getInput2().setValue(1);
+        evaluator.evaluate();
+        assertNull(not.getOutput());
+        assertEquals(1, evaluator.getLevels().size());
+
+        circuit.addConnector(new Connector(1, 1, 2, 0, "#000"));
+        evaluator.evaluate();
+        assertEquals(1, not.getOutput());
+        assertEquals(2, evaluator.getLevels().size());
+    }
+
+    @Test
+    void testFeedbackLoopIsSeparated() {
+        // NOT feeding back into itself cannot be ordered
+        Gate not = new Not(1, 0, 0);
+        circuit.addGate(not);
+        circuit.addConnector(new Connector(1, 1, 1, 0, "#000"));
+
+        evaluator.evaluate();
+
+        assertEquals(1, evaluator.getFeedbackComponents().size());
+        assertNull(not.getOutput());
+    }
+
+    @Test
+    void testOscillatingLoopIsReported() {
+        // NOT feeding itself from a known value flips on every pass
+        Gate not = new Not(1, 0, 0);
+        not.setOutput(0);
+        LED led = new LED(2, 0, 0);
+        circuit.addGate(not);
+        circuit.addLED(led);
+        circuit.addConnector(new Connector(1, 1, 1, 0, "#000"));
+        circuit.addConnector(new Connector(2, 1, 2, 0, "#000"));
+
+        ConvergenceReport report = evaluator.evaluate();
+
+        assertFalse(report.isConverged());
+        assertEquals(1, report.getLoops().size());
+        assertEquals(LevelizedEvaluator.MAX_FEEDBACK_PASSES, report.getLoops().get(0).getIterations());
+        assertEquals(java.util.List.of(1), report.getOscillatingComponentIds());
+    }
+
+    @Test
+    void testOnlyLoopMembersAreIterated() {
+        // Switch -> OR holding itself -> NOT; the NOT is behind the loop but not on it
+        Switch sw = new Switch(1, 0, 0);
+        Gate or = new Or(2, 0, 0);
+        Gate not = new Not(3, 0, 0);
+        circuit.addSwitch(sw);
+        circuit.addGate(or);
+        circuit.addGate(not);
+        circuit.addConnector(new Connector(1, 1, 2, 0, "#000"));
+        circuit.addConnector(new Connector(2, 2, 2, 1, "#000"));
+        circuit.addConnector(new Connector(3, 2, 3, 0, "#000"));
+        or.setOutput(0);
+        sw.setOn(true);
+
+        ConvergenceReport report = evaluator.evaluate();
+
+        assertTrue(report.isConverged());
+        assertEquals(2, evaluator.getFeedbackBlocks().size());
+        assertTrue(evaluator.isCyclicBlock(0));
+        assertFalse(evaluator.isCyclicBlock(1));
+        assertSame(not, evaluator.getFeedbackBlocks().get(1).get(0));
+        assertEquals(1, or.getOutput());
+        assertEquals(0, not.getOutput());
+    }
+
+    @Test
+    void testAcyclicCircuitReportsNoLoops() {
+        circuit.addGate(new And(1, 0, 0));
+        assertSame(ConvergenceReport.ACYCLIC, evaluator.evaluate());
+    }
+
+    @Test
+    void testToggleFlipFlopBreaksLoop() {
+        // DFF with D = NOT Q toggles once per rising edge of the switch
+        Switch clock = new Switch(1, 0, 0);
+        DFlipFlop flipFlop = new DFlipFlop(2, 0, 0);
+        circuit.addSwitch(clock);
+        circuit.addGate(flipFlop);
+        circuit.addGate(new Not(3, 0, 0));
+        circuit.addConnector(new Connector(1, 3, 2, 0, "#000"));
+        circuit.addConnector(new Connector(2, 1, 2, 1, "#000"));
+        circuit.addConnector(new Connector(3, 2, 3, 0, "#000"));
+
+        // The flip-flop cuts the loop, so there is no feedback to iterate
+        assertSame(ConvergenceReport.ACYCLIC, evaluator.evaluate());
+        assertEquals(0, flipFlop.getOutput());
+
+        clock.setOn(true);
+        evaluator.evaluate();
+        assertEquals(1, flipFlop.getOutput());
+
+        // No new edge while the clock stays high
+        evaluator.evaluate();
+        assertEquals(1, flipFlop.getOutput());
+
+        clock.setOn(false);
+        evaluator.evaluate();
+        clock.setOn(true);
+        evaluator.evaluate();
+        assertEquals(0, flipFlop.getOutput());
+    }
+}
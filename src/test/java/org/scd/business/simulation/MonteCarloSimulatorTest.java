@@ -0,0 +1,70 @@
+package org.scd.business.simulation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MonteCarloSimulatorTest {
+
+    private TruthTableLayout layout;
+
+    @BeforeEach
+    void setUp() {
+        // Switch -> AND (input 2 left open) -> NOT -> LED
+        Circuit circuit = new Circuit(1, "Test Circuit");
+        circuit.addSwitch(new Switch(1, 0, 0));
+        Gate and = new And(2, 0, 0);
+        and.getInput1().setSourceComponentId(1);
+        Gate not = new Not(3, 0, 0);
+        not.getInput1().setSourceComponentId(2);
+        circuit.addGate(and);
+        circuit.addGate(not);
+        circuit.addLED(new LED(4, 0, 0));
+        circuit.addConnector(new Connector(1, 1, 2, 0, "#000"));
+        circuit.addConnector(new Connector(2, 2, 3, 0, "#000"));
+        circuit.addConnector(new Connector(3, 3, 4, 0, "#000"));
+        layout = TruthTableLayout.of(CompiledCircuit.compile(circuit));
+    }
+
+    @Test
+    void testProbabilitiesAndToggleRates() {
+        MonteCarloResult result = new MonteCarloSimulator(layout).run(1 << 20, 42);
+
+        assertEquals(2, layout.getInputCount());   // the open AND input and the switch
+        assertEquals(1 << 20, result.getVectorCount());
+        assertEquals(0.75, result.getSignalProbability(0), 0.005);
+        // An AND of two random bits changes with probability 2 * 1/4 * 3/4
+        assertEquals(0.375, result.getToggleRateById(2), 0.005);
+        assertEquals(result.getToggleRateById(2), result.getToggleRateById(3));
+        assertEquals(-1, result.getToggleRateById(4));
+        assertTrue(result.getVectorsPerSecond() > 0);
+    }
+
+    @Test
+    void testSameSeedGivesSameStatisticsOnAnyPool() {
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            MonteCarloResult a = new MonteCarloSimulator(layout, single, 4).run(10_000, 7);
+            MonteCarloResult b = new MonteCarloSimulator(layout, ForkJoinPool.commonPool(), 4).run(10_000, 7);
+            assertEquals(a.getSignalProbability(0), b.getSignalProbability(0));
+            assertEquals(a.getToggleRate(0), b.getToggleRate(0));
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void testPartialWordIsMasked() {
+        MonteCarloResult result = new MonteCarloSimulator(layout).run(100, 1);
+        double ones = result.getSignalProbability(0) * 100;
+        assertEquals(Math.rint(ones), ones, 1e-9);
+        assertTrue(ones <= 100);
+
+        MonteCarloResult empty = new MonteCarloSimulator(layout).run(0, 1);
+        assertEquals(0, empty.getSignalProbability(0));
+    }
+}
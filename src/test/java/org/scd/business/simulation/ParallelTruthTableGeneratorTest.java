@@ -0,0 +1,79 @@
+package org.scd.business.simulation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelTruthTableGeneratorTest {
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * A chain of alternating AND/OR gates, each with one free input (n inputs).
+     */
+    private Circuit chain(int n) {
+        Circuit circuit = new Circuit(1, "Chain");
+        for (int i = 1; i <= n; i++) {
+            Gate gate = (i % 2 == 0) ? new And(i, 0, 0) : new Or(i, 0, 0);
+            circuit.addGate(gate);
+            if (i > 1) {
+                circuit.addConnector(new Connector(i, i - 1, i, 0, "#000"));
+                gate.getInput1().setSourceComponentId(i - 1);
+            }
+        }
+        circuit.addLED(new LED(100, 0, 0));
+        circuit.addConnector(new Connector(100, n, 100, 0, "#000"));
+        return circuit;
+    }
+
+    @Test
+    void testMatchesLazyTable() {
+        TruthTableLayout layout = TruthTableLayout.of(CompiledCircuit.compile(chain(12)));
+        assertEquals(13, layout.getInputCount());
+
+        // Small chunks force many splits
+        TruthTable table = new ParallelTruthTableGenerator(pool, 256).generate(layout);
+        LazyTruthTable lazy = new LazyTruthTable(layout);
+
+        assertEquals(lazy.getRowCount(), table.getRowCount());
+        assertEquals(layout.getOutputCount(), table.getOutputCount());
+        for (int k = 0; k < table.getOutputCount(); k++) {
+            for (long row = 0; row < lazy.getRowCount(); row++) {
+                assertEquals(lazy.getOutput(row, k), table.getOutput(row, k), "row " + row);
+            }
+        }
+    }
+
+    @Test
+    void testSmallTableHasNoBitsPastLastRow() {
+        Circuit circuit = new Circuit(1, "NOT");
+        circuit.addGate(new Not(1, 0, 0));
+        TruthTable table = new ParallelTruthTableGenerator(pool, 64)
+                .generate(TruthTableLayout.of(CompiledCircuit.compile(circuit)));
+
+        assertEquals(1, table.getOutputColumn(0).cardinality());
+        assertTrue(table.getOutput(0, 0));
+    }
+
+    @Test
+    void testRejectsTooManyInputs() {
+        TruthTableLayout layout = TruthTableLayout.of(CompiledCircuit.compile(chain(32)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParallelTruthTableGenerator(pool, 1 << 14).generate(layout));
+    }
+}
@@ -0,0 +1,191 @@
+package org.scd.business.simulation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SubcircuitInstanceTest {
+
+    private static final int BITS = 8;
+
+    private Circuit halfAdder;
+    private Circuit circuit;
+    private Switch[] x;
+    private LED[] sum;
+    private int connectorId = 1000;
+
+    @BeforeEach
+    void setUp() {
+        // Half adder: sum = (a OR b) AND NOT (a AND b), carry = a AND b
+        halfAdder = new Circuit(1, "Half Adder");
+        halfAdder.addSwitch(new Switch(1, 0, 0));
+        halfAdder.addSwitch(new Switch(2, 0, 0));
+        halfAdder.addGate(new Or(3, 0, 0));
+        halfAdder.addGate(new And(4, 0, 0));
+        halfAdder.addGate(new Not(5, 0, 0));
+        halfAdder.addGate(new And(6, 0, 0));
+        halfAdder.addLED(new LED(7, 0, 0));
+        halfAdder.addLED(new LED(8, 0, 0));
+        halfAdder.addConnector(new Connector(1, 1, 3, 0, "#000"));
+        halfAdder.addConnector(new Connector(2, 2, 3, 1, "#000"));
+        halfAdder.addConnector(new Connector(3, 1, 4, 0, "#000"));
+        halfAdder.addConnector(new Connector(4, 2, 4, 1, "#000"));
+        halfAdder.addConnector(new Connector(5, 4, 5, 0, "#000"));
+        halfAdder.addConnector(new Connector(6, 3, 6, 0, "#000"));
+        halfAdder.addConnector(new Connector(7, 5, 6, 1, "#000"));
+        halfAdder.addConnector(new Connector(8, 6, 7, 0, "#000"));
+        halfAdder.addConnector(new Connector(9, 4, 8, 0, "#000"));
+
+        // Incrementer: a chain of half adders, carry in from a switch
+        circuit = new Circuit(2, "Incrementer");
+        Switch carryIn = new Switch(1, 0, 0);
+        carryIn.setOn(true);
+        circuit.addSwitch(carryIn);
+        x = new Switch[BITS];
+        sum = new LED[BITS];
+        int carryId = 1;
+        int carryPort = 0;
+        for (int i = 0; i < BITS; i++) {
+            x[i] = new Switch(10 + i, 0, 0);
+            sum[i] = new LED(20 + i, 0, 0);
+            SubcircuitInstance adder = new SubcircuitInstance(30 + i, halfAdder, 0, 0);
+            circuit.addSwitch(x[i]);
+            circuit.addLED(sum[i]);
+            circuit.addSubcircuit(adder);
+            connect(x[i].getComponentId(), 0, adder.getComponentId(), 0);
+            connect(carryId, carryPort, adder.getComponentId(), 1);
+            connect(adder.getComponentId(), 0, sum[i].getComponentId(), 0);
+            carryId = adder.getComponentId();
+            carryPort = 1;
+        }
+    }
+
+    private void connect(int sourceId, int sourcePort, int targetId, int targetPort) {
+        Connector connector = new Connector(connectorId++, sourceId, targetId, targetPort, "#000");
+        connector.setSourceOutputIndex(sourcePort);
+        circuit.addConnector(connector);
+    }
+
+    private int evaluate(int value) {
+        for (int i = 0; i < BITS; i++) {
+            x[i].setOn((value >> i & 1) == 1);
+        }
+        new LevelizedEvaluator(circuit).evaluate();
+        int result = 0;
+        for (int i = 0; i < BITS; i++) {
+            if (sum[i].isOn()) result |= 1 << i;
+        }
+        return result;
+    }
+
+    @Test
+    void testInstancesEvaluateThroughTheirDefinition() {
+        assertEquals(0b10111000, evaluate(0b10110111));
+        assertEquals(0, evaluate(0xFF));
+        assertEquals(1, evaluate(0));
+
+        SubcircuitInstance first = circuit.findSubcircuitById(30);
+        assertEquals(2, first.getInputCount());
+        assertEquals(2, first.getOutputCount());
+        assertEquals(BITS * 3 + 1, circuit.getComponentCount());
+    }
+
+    @Test
+    void testDefinitionModelIsNotWritten() {
+        evaluate(0xFF);
+
+        // Every instance saw 1 + 1, but the definition keeps its own state
+        assertFalse(halfAdder.getSwitches().get(0).isOn());
+        assertFalse(halfAdder.getLeds().get(0).isOn());
+        assertNull(halfAdder.findGateById(3).getOutput());
+    }
+
+    @Test
+    void testEditedDefinitionIsRecompiled() {
+        assertEquals(0b100, evaluate(0b011));
+
+        // Turn the sum output into a plain OR
+        halfAdder.removeGate(6);
+        halfAdder.addConnector(new Connector(10, 3, 7, 0, "#000"));
+
+        assertEquals(0b111, evaluate(0b011));
+    }
+
+    @Test
+    void testDirectInputEditIsSeenByInstances() {
+        // Definition: AND of its switch and a direct 1
+        Circuit gated = new Circuit(3, "Gated");
+        gated.addSwitch(new Switch(1, 0, 0));
+        gated.addGate(new And(2, 0, 0));
+        gated.addLED(new LED(3, 0, 0));
+        gated.addConnector(new Connector(1, 1, 2, 0, "#000"));
+        gated.addConnector(new Connector(2, 2, 3, 0, "#000"));
+        gated.setGateInput(2, 1, 1, null);
+
+        Circuit parent = new Circuit(4, "Parent");
+        Switch enable = new Switch(1, 0, 0);
+        enable.setOn(true);
+        LED out = new LED(3, 0, 0);
+        parent.addSwitch(enable);
+        parent.addSubcircuit(new SubcircuitInstance(2, gated, 0, 0));
+        parent.addLED(out);
+        parent.addConnector(new Connector(1, 1, 2, 0, "#000"));
+        parent.addConnector(new Connector(2, 2, 3, 0, "#000"));
+
+        LevelizedEvaluator evaluator = new LevelizedEvaluator(parent);
+        evaluator.evaluate();
+        assertTrue(out.isOn());
+
+        gated.setGateInput(2, 1, 0, null);
+        evaluator.evaluate();
+        assertFalse(out.isOn());
+    }
+
+    @Test
+    void testRepeatedInputPatternsHitTheCache() {
+        SubcircuitDefinition definition = SubcircuitDefinition.of(halfAdder);
+        assertSame(definition, halfAdder.getDefinitionState());  // held by the circuit, not a global map
+
+        // Every stage sees 1 + 1: one gate-level evaluation, then cache hits
+        assertEquals(0, evaluate(0xFF));
+        assertEquals(1, definition.getCacheMisses());
+        assertEquals(BITS - 1, definition.getCacheHits());
+        assertEquals(1, definition.getCacheSize());
+
+        // Editing the definition drops the remembered results
+        halfAdder.removeGate(6);
+        halfAdder.addConnector(new Connector(10, 3, 7, 0, "#000"));
+        assertEquals(0xFF, evaluate(0xFF));
+        assertEquals(2, definition.getCacheMisses());
+    }
+
+    @Test
+    void testCacheIsBoundedAndCanBeDisabled() {
+        SubcircuitDefinition definition = SubcircuitDefinition.of(halfAdder);
+        definition.setCacheCapacity(1);
+
+        assertEquals(0b10111000, evaluate(0b10110111));
+        assertEquals(1, definition.getCacheSize());
+
+        definition.setCacheCapacity(0);
+        definition.clearCache();
+        assertEquals(0b10111000, evaluate(0b10110111));
+        assertEquals(BITS, definition.getCacheMisses());
+        assertEquals(0, definition.getCacheHits());
+        assertEquals(0, definition.getCacheSize());
+    }
+
+    @Test
+    void testNestedDefinitionIsRejected() {
+        halfAdder.addSubcircuit(new SubcircuitInstance(9, new Circuit(5, "Inner"), 0, 0));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> evaluate(1));
+        assertTrue(e.getMessage().contains("cannot be used as a definition"));
+    }
+
+    @Test
+    void testCompiledNetlistRejectsInstances() {
+        assertThrows(IllegalArgumentException.class, () -> CompiledCircuit.compile(circuit));
+    }
+}
@@ -0,0 +1,91 @@
+package org.scd.business.simulation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingSimulatorTest {
+
+    private Circuit circuit;
+
+    @BeforeEach
+    void setUp() {
+        circuit = new Circuit(1, "Test Circuit");
+    }
+
+    @Test
+    void testStaticHazardProducesGlitch() {
+        // AND(a, NOT a) is always 0 at zero delay, but pulses while the NOT is switching
+        circuit.addSwitch(new Switch(1, 0, 0));
+        circuit.addGate(new Not(2, 0, 0));
+        circuit.addGate(new And(3, 0, 0));
+        circuit.addConnector(new Connector(1, 1, 2, 0, "#000"));
+        circuit.addConnector(new Connector(2, 1, 3, 0, "#000"));
+        circuit.addConnector(new Connector(3, 2, 3, 1, "#000"));
+
+        CompiledCircuit netlist = CompiledCircuit.compile(circuit);
+        TimingSimulator simulator = new TimingSimulator(netlist);
+        simulator.setDelay("NOT", 1);
+        simulator.setDelay("AND", 2);
+        int and = netlist.indexOf(3);
+        assertEquals(CompiledCircuit.LOW, simulator.getValue(and));
+
+        List<String> changes = new ArrayList<>();
+        simulator.setListener((time, node, value) -> {
+            if (node == and) changes.add(time + ":" + value);
+        });
+        simulator.setSwitch(1, true, 1);
+
+        assertTrue(simulator.runUntilQuiet(100));
+        assertEquals(List.of("3:1", "4:0"), changes);
+        assertEquals(CompiledCircuit.LOW, simulator.getValue(and));
+    }
+
+    @Test
+    void testRingOscillatorRunsMillionsOfEvents() {
+        // AND(enable, NOT(AND)) oscillates with a period of AND + NOT delay, twice over
+        Gate and = new And(2, 0, 0);
+        Gate not = new Not(3, 0, 0);
+        and.setOutput(0);
+        not.setOutput(1);
+        circuit.addSwitch(new Switch(1, 0, 0));
+        circuit.addGate(and);
+        circuit.addGate(not);
+        circuit.addConnector(new Connector(1, 1, 2, 0, "#000"));
+        circuit.addConnector(new Connector(2, 3, 2, 1, "#000"));
+        circuit.addConnector(new Connector(3, 2, 3, 0, "#000"));
+
+        TimingSimulator simulator = new TimingSimulator(CompiledCircuit.compile(circuit), 4);
+        simulator.setSwitch(1, true, 1);
+
+        assertFalse(simulator.runUntilQuiet(3_000_001));
+        assertEquals(3_000_001, simulator.getTime());
+        // Switch edge plus two changes per 3-tick half period
+        assertEquals(1 + 2 * 1_000_000, simulator.getEventCount(), 2);
+        assertTrue(simulator.getPendingEventCount() <= 2);
+    }
+
+    @Test
+    void testFarStimulusWaitsForItsRound() {
+        circuit.addSwitch(new Switch(1, 0, 0));
+        circuit.addLED(new LED(2, 0, 0));
+        circuit.addConnector(new Connector(1, 1, 2, 0, "#000"));
+        CompiledCircuit netlist = CompiledCircuit.compile(circuit);
+
+        // 1000 ticks is several turns of a 16-slot wheel
+        TimingSimulator simulator = new TimingSimulator(netlist, 16);
+        simulator.setSwitch(1, true, 1000);
+        simulator.runUntil(999);
+        assertEquals(CompiledCircuit.LOW, simulator.getValue(netlist.indexOf(2)));
+        simulator.runUntil(1001);
+        assertEquals(CompiledCircuit.HIGH, simulator.getValue(netlist.indexOf(2)));
+
+        simulator.writeBack();
+        assertTrue(circuit.findLEDById(2).isOn());
+    }
+}
@@ -0,0 +1,64 @@
+package org.scd.business.simulation;
+
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TruthTableWriterTest {
+
+    private TruthTable andTable() {
+        Circuit circuit = new Circuit(1, "AND");
+        circuit.addGate(new And(1, 0, 0));
+        return new ParallelTruthTableGenerator(ForkJoinPool.commonPool(), 64)
+                .generate(TruthTableLayout.of(CompiledCircuit.compile(circuit)));
+    }
+
+    private String write(TruthTable table, boolean pla) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TruthTableWriter writer = new TruthTableWriter(Channels.newChannel(out));
+        if (pla) {
+            writer.writePla(table);
+        } else {
+            writer.writeCsv(table);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testCsv() throws IOException {
+        assertEquals("AND 1 In 1,AND 1 In 2,AND 1 Out\n"
+                + "0,0,0\n0,1,0\n1,0,0\n1,1,1\n", write(andTable(), false));
+    }
+
+    @Test
+    void testPla() throws IOException {
+        assertEquals(".i 2\n.o 1\n"
+                + ".ilb AND_1_In_1 AND_1_In_2\n.ob AND_1_Out\n"
+                + ".type fr\n.p 4\n"
+                + "00 0\n01 0\n10 0\n11 1\n.e\n", write(andTable(), true));
+    }
+
+    @Test
+    void testRowsLargerThanBuffer() throws IOException {
+        // 2^14 rows of 15 bytes each spill over the 64 KiB buffer several times
+        Circuit circuit = new Circuit(1, "Wide");
+        for (int i = 1; i <= 7; i++) {
+            circuit.addGate(new Or(i, 0, 0));
+        }
+        TruthTable table = new ParallelTruthTableGenerator(ForkJoinPool.commonPool(), 1 << 10)
+                .generate(TruthTableLayout.of(CompiledCircuit.compile(circuit)));
+
+        String[] lines = write(table, true).split("\n");
+        assertEquals(6 + 16384 + 1, lines.length);
+        assertEquals("00000000000000 0000000", lines[6]);
+        assertEquals("11111111111111 1111111", lines[6 + 16383]);
+        assertEquals(".e", lines[lines.length - 1]);
+    }
+}
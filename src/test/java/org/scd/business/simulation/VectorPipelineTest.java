@@ -0,0 +1,103 @@
+package org.scd.business.simulation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VectorPipelineTest {
+
+    private VectorSimulator simulator;
+
+    @BeforeEach
+    void setUp() {
+        // Switch -> NOT -> LED
+        Circuit circuit = new Circuit(1, "Test Circuit");
+        circuit.addSwitch(new Switch(1, 0, 0));
+        Gate not = new Not(2, 0, 0);
+        not.getInput1().setSourceComponentId(1);
+        circuit.addGate(not);
+        circuit.addLED(new LED(3, 0, 0));
+        circuit.addConnector(new Connector(1, 1, 2, 0, "#000"));
+        circuit.addConnector(new Connector(2, 2, 3, 0, "#000"));
+        simulator = new VectorSimulator(TruthTableLayout.of(CompiledCircuit.compile(circuit)));
+    }
+
+    @Test
+    void testResultsArriveInOrder() throws Exception {
+        StringBuilder in = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            in.append(i % 2).append('\n');
+            expected.append(i % 2).append(' ').append(1 - i % 2).append('\n');
+        }
+        VectorPipeline pipeline = new VectorPipeline(simulator, ForkJoinPool.commonPool(), 1, 2);
+        StringWriter out = new StringWriter();
+
+        long count = pipeline.run(new BufferedReader(new StringReader(in.toString())), ResultSink.writingTo(out));
+
+        assertEquals(1000, count);
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    @Test
+    void testSlowSinkHoldsBackReading() throws Exception {
+        // An endless source: only the sink's pace decides how much is read
+        AtomicLong linesRead = new AtomicLong();
+        Reader endless = new Reader() {
+            private long position;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                for (int i = 0; i < length; i++, position++) {
+                    buffer[offset + i] = position % 2 == 0 ? '1' : '\n';
+                }
+                linesRead.set(position / 2);
+                return length;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        VectorPipeline pipeline = new VectorPipeline(simulator, ForkJoinPool.commonPool(), 1, 2);
+        ResultSink sink = new ResultSink() {
+            private int batches;
+
+            @Override
+            protected void accept(ResultBatch batch) {
+                assertEquals(CompiledCircuit.LOW, batch.getOutput(0, 0));
+                if (++batches == 20) {
+                    throw new IllegalStateException("enough");
+                }
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        assertThrows(IllegalStateException.class,
+                () -> pipeline.run(new BufferedReader(endless, 64), sink));
+
+        // 20 batches of 64 vectors consumed; the stages only ran a few batches ahead
+        Thread.sleep(50);
+        assertTrue(linesRead.get() < 64 * 40, "read " + linesRead.get() + " lines");
+    }
+
+    @Test
+    void testInvalidVectorFailsTheRun() {
+        VectorPipeline pipeline = new VectorPipeline(simulator);
+        assertThrows(IllegalArgumentException.class, () -> pipeline.run(
+                new BufferedReader(new StringReader("1\n2\n")), ResultSink.writingTo(new StringWriter())));
+    }
+}
@@ -0,0 +1,65 @@
+package org.scd.business.simulation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VectorSimulatorTest {
+
+    private VectorSimulator simulator;
+
+    @BeforeEach
+    void setUp() {
+        // Two switches -> AND -> LED
+        Circuit circuit = new Circuit(1, "Test Circuit");
+        circuit.addSwitch(new Switch(1, 0, 0));
+        circuit.addSwitch(new Switch(2, 0, 0));
+        Gate and = new And(3, 0, 0);
+        and.getInput1().setSourceComponentId(1);
+        and.getInput2().setSourceComponentId(2);
+        circuit.addGate(and);
+        circuit.addLED(new LED(4, 0, 0));
+        circuit.addConnector(new Connector(1, 1, 3, 0, "#000"));
+        circuit.addConnector(new Connector(2, 2, 3, 1, "#000"));
+        circuit.addConnector(new Connector(3, 3, 4, 0, "#000"));
+        simulator = new VectorSimulator(TruthTableLayout.of(CompiledCircuit.compile(circuit)));
+    }
+
+    @Test
+    void testVectorsAreSimulatedInOrder() throws Exception {
+        StringWriter out = new StringWriter();
+        long count = simulator.run(new BufferedReader(new StringReader("# a b\n11\n0 1\n\n1,0\n")), out);
+
+        assertEquals(3, count);
+        assertEquals("11 1\n01 0\n10 0\n", out.toString());
+    }
+
+    @Test
+    void testMoreThanOneBatch() throws Exception {
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            in.append(i % 4 == 3 ? "11\n" : "01\n");
+        }
+        StringWriter out = new StringWriter();
+        simulator.run(new BufferedReader(new StringReader(in.toString())), out);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(200, lines.length);
+        assertEquals("11 1", lines[199]);
+        assertEquals("01 0", lines[198]);
+        assertEquals(200, simulator.getVectorCount());
+    }
+
+    @Test
+    void testWrongWidthIsRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> simulator.run(new BufferedReader(new StringReader("11\n1\n")), new StringWriter()));
+        assertTrue(e.getMessage().startsWith("Line 2"));
+    }
+}
@@ -0,0 +1,59 @@
+package org.scd.business.simulation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WavefrontEvaluatorTest {
+
+    private static final int WIDTH = 5000;
+
+    private Circuit circuit;
+
+    @BeforeEach
+    void setUp() {
+        // WIDTH switches, each -> NOT -> AND(NOT, next switch) -> LED
+        circuit = new Circuit(1, "Wide Circuit");
+        int connectorId = 0;
+        for (int i = 0; i < WIDTH; i++) {
+            Switch sw = new Switch(i, 0, 0);
+            sw.setOn(i % 3 == 0);
+            circuit.addSwitch(sw);
+        }
+        for (int i = 0; i < WIDTH; i++) {
+            circuit.addGate(new Not(WIDTH + i, 0, 0));
+            circuit.addGate(new And(2 * WIDTH + i, 0, 0));
+            circuit.addLED(new LED(3 * WIDTH + i, 0, 0));
+            circuit.addConnector(new Connector(connectorId++, i, WIDTH + i, 0, "#000"));
+            circuit.addConnector(new Connector(connectorId++, WIDTH + i, 2 * WIDTH + i, 0, "#000"));
+            circuit.addConnector(new Connector(connectorId++, (i + 1) % WIDTH, 2 * WIDTH + i, 1, "#000"));
+            circuit.addConnector(new Connector(connectorId++, 2 * WIDTH + i, 3 * WIDTH + i, 0, "#000"));
+        }
+    }
+
+    @Test
+    void testParallelLevelsMatchSequentialResult() {
+        WavefrontEvaluator evaluator = new WavefrontEvaluator(circuit);
+        evaluator.setParallelThreshold(0);
+        evaluator.setMinLevelWidth(64);
+        evaluator.evaluate();
+
+        assertTrue(evaluator.getParallelLevelCount() >= 3);
+        for (int i = 0; i < WIDTH; i++) {
+            boolean expected = i % 3 != 0 && (i + 1) % WIDTH % 3 == 0;
+            assertEquals(expected, circuit.findLEDById(3 * WIDTH + i).isOn(), "LED " + i);
+        }
+    }
+
+    @Test
+    void testSmallCircuitStaysSequential() {
+        WavefrontEvaluator evaluator = new WavefrontEvaluator(circuit);
+        evaluator.setParallelThreshold(Integer.MAX_VALUE);
+        evaluator.evaluate();
+
+        assertEquals(0, evaluator.getParallelLevelCount());
+        assertEquals(1, circuit.findGateById(WIDTH + 1).getOutput());
+    }
+}
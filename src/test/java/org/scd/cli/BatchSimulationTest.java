@@ -0,0 +1,126 @@
+package org.scd.cli;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.scd.business.model.*;
+import org.scd.dao.sqlDao;
+import org.scd.dao.sqlSetup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchSimulationTest {
+
+    private Path database;
+    private Path vectors;
+    private int projectId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = Files.createTempFile("batch", ".db");
+        vectors = Files.createTempFile("batch", ".vec");
+
+        // Switch -> NOT -> LED, saved as a project
+        Circuit circuit = new Circuit();
+        circuit.setCircuitName("Main Circuit");
+        circuit.addSwitch(new Switch(1, 0, 0));
+        circuit.addGate(new Not(2, 0, 0));
+        circuit.addLED(new LED(3, 0, 0));
+        circuit.addConnector(new Connector(1, 1, 2, 0, "#000000"));
+        circuit.addConnector(new Connector(2, 2, 3, 0, "#000000"));
+        List<Circuit> circuits = new ArrayList<>();
+        circuits.add(circuit);
+        Project project = new Project();
+        project.setProject_Name("Batch");
+        project.setCircuits(circuits);
+
+        try (Connection connection = DriverManager.getConnection(url())) {
+            sqlSetup.createTables(connection);
+            assertTrue(new sqlDao(connection).saveProject(project));
+        }
+        projectId = project.getProjectId();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Files.deleteIfExists(database);
+        Files.deleteIfExists(vectors);
+    }
+
+    private String url() {
+        return "jdbc:sqlite:" + database;
+    }
+
+    @Test
+    void testVectorsAreStreamedToStdout() throws Exception {
+        Files.writeString(vectors, "0\n1\n");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        int status = BatchSimulation.run(new String[] {String.valueOf(projectId), vectors.toString(),
+                "--db", url(), "--no-header"}, out, new PrintStream(err));
+
+        assertEquals(0, status, err.toString());
+        assertEquals("0 1\n1 0\n", out.toString());
+    }
+
+    @Test
+    void testUnknownProjectFails() {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int status = BatchSimulation.run(new String[] {"9999", vectors.toString(), "--db", url()},
+                new ByteArrayOutputStream(), new PrintStream(err));
+        assertEquals(1, status);
+    }
+
+    @Test
+    void testMissingArgumentsIsUsageError() {
+        assertEquals(2, BatchSimulation.run(new String[] {"1"}, new ByteArrayOutputStream(),
+                new PrintStream(new ByteArrayOutputStream())));
+    }
+
+    @Test
+    void testCircuitWithSubcircuitsFailsWithMessage() throws Exception {
+        Circuit inverter = new Circuit();
+        inverter.setCircuitName("Inverter");
+        inverter.addSwitch(new Switch(1, 0, 0));
+        inverter.addGate(new Not(2, 0, 0));
+        inverter.addLED(new LED(3, 0, 0));
+        inverter.addConnector(new Connector(1, 1, 2, 0, "#000000"));
+        inverter.addConnector(new Connector(2, 2, 3, 0, "#000000"));
+
+        Circuit host = new Circuit();
+        host.setCircuitName("Host");
+        host.addSwitch(new Switch(1, 0, 0));
+        host.addSubcircuit(new SubcircuitInstance(2, inverter, 0, 0));
+        host.addLED(new LED(3, 0, 0));
+        host.addConnector(new Connector(1, 1, 2, 0, "#000000"));
+        host.addConnector(new Connector(2, 2, 3, 0, "#000000"));
+
+        List<Circuit> circuits = new ArrayList<>();
+        circuits.add(host);
+        circuits.add(inverter);
+        Project project = new Project();
+        project.setProject_Name("Hierarchical");
+        project.setCircuits(circuits);
+        try (Connection connection = DriverManager.getConnection(url())) {
+            assertTrue(new sqlDao(connection).saveProject(project));
+        }
+
+        Files.writeString(vectors, "0\n");
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int status = BatchSimulation.run(new String[] {String.valueOf(project.getProjectId()), vectors.toString(),
+                "--db", url()}, new ByteArrayOutputStream(), new PrintStream(err));
+
+        assertEquals(1, status);
+        assertTrue(err.toString().contains("Cannot simulate circuit 'Host'"), err.toString());
+    }
+}
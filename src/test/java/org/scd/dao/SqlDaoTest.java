@@ -130,4 +130,123 @@ class SqlDaoTest {
         assertTrue(projectList.containsValue("Project 1"));
         assertTrue(projectList.containsValue("Project 2"));
     }
+
+    @Test
+    void testSaveAndLoadClock() {
+        Project project = new Project();
+        project.setProject_Name("Clocked");
+        Circuit circuit = new Circuit();
+        circuit.setCircuitName("Main Circuit");
+        Clock clock = new Clock(1, 10, 20);
+        clock.setHigh(true);
+        circuit.addClock(clock);
+        circuit.addLED(new LED(2, 30, 40));
+        circuit.addConnector(new Connector(1, 1, 2, 0, "#000000"));
+        List<Circuit> circuits = new ArrayList<>();
+        circuits.add(circuit);
+        project.setCircuits(circuits);
+
+        assertTrue(dao.saveProject(project));
+        Circuit loaded = dao.loadProject(project.getProjectId()).getCircuits().get(0);
+
+        assertEquals(1, loaded.getClocks().size());
+        Clock loadedClock = loaded.getClocks().get(0);
+        assertTrue(loadedClock.isHigh());
+        assertEquals(10, loadedClock.getPositionX());
+        assertEquals(1, loaded.getConnectors().size());
+        assertEquals(loadedClock.getComponentId(), loaded.getConnectors().get(0).getSourceComponentId());
+    }
+
+    @Test
+    void testSaveAndLoadFlipFlopState() {
+        Project project = new Project();
+        project.setProject_Name("Sequential");
+        Circuit circuit = new Circuit();
+        circuit.setCircuitName("Main Circuit");
+        DFlipFlop flipFlop = new DFlipFlop(1, 10, 20);
+        flipFlop.setOutput(1);
+        circuit.addGate(flipFlop);
+        circuit.addGate(new Latch(2, 30, 40));
+        List<Circuit> circuits = new ArrayList<>();
+        circuits.add(circuit);
+        project.setCircuits(circuits);
+
+        assertTrue(dao.saveProject(project));
+        Circuit loaded = dao.loadProject(project.getProjectId()).getCircuits().get(0);
+
+        assertEquals(2, loaded.getGates().size());
+        Gate loadedFlipFlop = loaded.getGates().stream()
+                .filter(g -> g instanceof DFlipFlop).findFirst().orElseThrow();
+        assertEquals(1, loadedFlipFlop.getOutput());
+        assertNull(((DFlipFlop) loadedFlipFlop).getLastClock());
+        assertTrue(loaded.getGates().stream().anyMatch(g -> g instanceof Latch));
+    }
+
+    @Test
+    void testSaveAndLoadSubcircuitInstance() {
+        Project project = new Project();
+        project.setProject_Name("Hierarchical");
+
+        // Saved after the circuit that places it
+        Circuit definition = new Circuit();
+        definition.setCircuitName("Split");
+        definition.addSwitch(new Switch(1, 0, 0));
+        definition.addGate(new Not(2, 50, 0));
+        definition.addLED(new LED(3, 100, 0));
+        definition.addLED(new LED(4, 100, 50));
+        definition.addConnector(new Connector(1, 1, 2, 0, "#000000"));
+        definition.addConnector(new Connector(2, 2, 3, 0, "#000000"));
+        definition.addConnector(new Connector(3, 1, 4, 0, "#000000"));
+
+        Circuit host = new Circuit();
+        host.setCircuitName("Main Circuit");
+        host.addSwitch(new Switch(1, 0, 0));
+        host.addSubcircuit(new SubcircuitInstance(2, definition, 60, 70));
+        host.addLED(new LED(3, 200, 0));
+        host.addConnector(new Connector(1, 1, 2, 0, "#000000"));
+        Connector fromSecondPort = new Connector(2, 2, 3, 0, "#000000");
+        fromSecondPort.setSourceOutputIndex(1);
+        host.addConnector(fromSecondPort);
+
+        List<Circuit> circuits = new ArrayList<>();
+        circuits.add(host);
+        circuits.add(definition);
+        project.setCircuits(circuits);
+
+        assertTrue(dao.saveProject(project));
+        List<Circuit> loaded = dao.loadProject(project.getProjectId()).getCircuits();
+
+        assertEquals("Main Circuit", loaded.get(0).getCircuitName());
+        Circuit loadedHost = loaded.get(0);
+        assertEquals(1, loadedHost.getSubcircuits().size());
+        SubcircuitInstance instance = loadedHost.getSubcircuits().get(0);
+        assertSame(loaded.get(1), instance.getDefinition());
+        assertEquals(60, instance.getPositionX());
+        assertEquals(1, instance.getInputCount());
+        assertEquals(2, instance.getOutputCount());
+
+        assertEquals(2, loadedHost.getConnectors().size());
+        int switchId = loadedHost.getSwitches().get(0).getComponentId();
+        assertEquals(switchId, instance.getInput(0).getSourceComponentId());
+        Connector toLed = loadedHost.getFanoutConnectors(instance.getComponentId()).get(0);
+        assertEquals(1, toLed.getSourceOutputIndex());
+    }
+
+    @Test
+    void testSaveRefusesInstanceOfCircuitOutsideProject() {
+        Circuit outside = new Circuit();
+        outside.setCircuitName("Elsewhere");
+
+        Circuit host = new Circuit();
+        host.setCircuitName("Main Circuit");
+        host.addSubcircuit(new SubcircuitInstance(1, outside, 0, 0));
+
+        Project project = new Project();
+        project.setProject_Name("Dangling");
+        List<Circuit> circuits = new ArrayList<>();
+        circuits.add(host);
+        project.setCircuits(circuits);
+
+        assertFalse(dao.saveProject(project));
+    }
 }